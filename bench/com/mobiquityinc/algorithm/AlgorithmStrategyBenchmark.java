@@ -0,0 +1,112 @@
+package com.mobiquityinc.algorithm;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mobiquityinc.benchmark.BenchmarkData;
+import com.mobiquityinc.model.PackageBatch;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Benchmarks of solving the packages with each strategy and of choosing the
+ * packages to send, for the strategies which solve packages of every size the
+ * file allows themselves. Bitmask enumeration and the linear programming
+ * strategy only suit small problems and are benchmarked by
+ * SmallProblemStrategyBenchmark.
+ *
+ * The packages are parsed into a batch once for the trial. Solving a batch
+ * selects items and marks packages as sent, so every call of solveProblem
+ * first copies the parsed batch into a batch which is reused for the trial;
+ * the copy only moves the arrays of the batch and takes a small part of the
+ * time of solving it. Choosing the packages to send only marks packages as
+ * sent, so the same solved batch is used for every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlgorithmStrategyBenchmark {
+
+	@Param({ "dynamicProgramming", "branchAndBound", "meetInTheMiddle", "adaptive" })
+	public String strategy;
+
+	@Param({ "1", "15", "40" })
+	public int itemCount;
+
+	@Param({ "100", "10000" })
+	public int packageCount;
+
+	@Param({ "0", "0.5" })
+	public double duplicateCostRatio;
+
+	private AbstractAlgorithmStrategy algorithm;
+	private PackageBatch packages;
+	private final PackageBatch solvingPackages = new PackageBatch();
+	private PackageBatch solvedPackages;
+
+	@Setup
+	public void createData() {
+		List<String> lines = BenchmarkData.createLines(packageCount, itemCount, duplicateCostRatio);
+		algorithm = createStrategy(strategy);
+		packages = BenchmarkData.createBatch(lines);
+		solvedPackages = BenchmarkData.createBatch(lines);
+		algorithm.solveProblem(solvedPackages);
+	}
+
+	@Benchmark
+	public PackageBatch solveProblem() {
+		return solveCopy(algorithm, packages, solvingPackages);
+	}
+
+	@Benchmark
+	public PackageBatch choosePackagesToSend() {
+		algorithm.choosePackagesToSend(solvedPackages);
+		return solvedPackages;
+	}
+
+	// Solves a copy of the packages, so the packages are never changed
+	static PackageBatch solveCopy(AbstractAlgorithmStrategy algorithm, PackageBatch packages, PackageBatch copy) {
+		copy.clear();
+		copy.append(packages);
+		algorithm.solveProblem(copy);
+		return copy;
+	}
+
+	static AbstractAlgorithmStrategy createStrategy(String name) {
+		switch (name) {
+		case "dynamicProgramming":
+			return new DynamicProgrammingAlgorithmStrategy();
+		case "branchAndBound":
+			return new BranchAndBoundAlgorithmStrategy();
+		case "bitmaskEnumeration":
+			return new BitmaskEnumerationAlgorithmStrategy();
+		case "meetInTheMiddle":
+			return new MeetInTheMiddleAlgorithmStrategy();
+		case "adaptive":
+			// The fixed thresholds the packer uses unless calibration is asked for
+			return new AdaptiveAlgorithmStrategy();
+		case "binaryLP":
+			return new BinaryLPAlgorithmStrategy();
+		default:
+			throw new IllegalArgumentException("Unknown strategy " + name);
+		}
+	}
+
+}
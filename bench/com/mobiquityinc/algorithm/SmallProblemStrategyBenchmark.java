@@ -0,0 +1,70 @@
+package com.mobiquityinc.algorithm;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mobiquityinc.benchmark.BenchmarkData;
+import com.mobiquityinc.model.PackageBatch;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Benchmarks of solving the packages with the strategies which only suit
+ * small problems. Bitmask enumeration checks every selection and hands
+ * packages with more than 20 items to branch and bound, so it is only
+ * measured with fewer items. The linear programming strategy takes about a
+ * millisecond per package, so it is only measured with the smaller number of
+ * packages.
+ *
+ * The packages are parsed once for the trial and copied before they are
+ * solved, as in AlgorithmStrategyBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SmallProblemStrategyBenchmark {
+
+	@Param({ "bitmaskEnumeration", "binaryLP" })
+	public String strategy;
+
+	@Param({ "1", "15" })
+	public int itemCount;
+
+	@Param({ "100" })
+	public int packageCount;
+
+	@Param({ "0", "0.5" })
+	public double duplicateCostRatio;
+
+	private AbstractAlgorithmStrategy algorithm;
+	private PackageBatch packages;
+	private final PackageBatch solvingPackages = new PackageBatch();
+
+	@Setup
+	public void createData() {
+		algorithm = AlgorithmStrategyBenchmark.createStrategy(strategy);
+		packages = BenchmarkData.createBatch(BenchmarkData.createLines(packageCount, itemCount, duplicateCostRatio));
+	}
+
+	@Benchmark
+	public PackageBatch solveProblem() {
+		return AlgorithmStrategyBenchmark.solveCopy(algorithm, packages, solvingPackages);
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.mobiquityinc.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mobiquityinc.exception.APIException;
+import com.mobiquityinc.model.Package;
+import com.mobiquityinc.model.PackageBatch;
+import com.mobiquityinc.parser.PackageLineParser;
+import com.mobiquityinc.workload.WorkloadGenerator;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Creates the lines and packages the benchmarks run on. The data only depends
+ * on the parameters and the seed, so every run measures the same work.
+ *
+ * The lines are created by the WorkloadGenerator. The duplicate cost ratio is
+ * the share of lines which repeat the items of an earlier line, so their
+ * packages end up with the same cost and weight as the earlier package and
+ * are compared when the packages to send are chosen.
+ */
+public final class BenchmarkData {
+
+	// Seed of the data shared by all the benchmarks
+	public static final long SEED = 20170417L;
+
+	private BenchmarkData() {
+	}
+
+	// Creates lines in the format of the input file
+	public static List<String> createLines(int packageCount, int itemCount, double duplicateCostRatio) {
+		WorkloadGenerator generator = new WorkloadGenerator();
+		generator.setSeed(SEED);
+		generator.setPackageCount(packageCount);
+		generator.setMinimumItemCount(itemCount);
+		generator.setMaximumItemCount(itemCount);
+		generator.setDuplicateManifestRatio(duplicateCostRatio);
+		return generator.generateLines();
+	}
+
+	// Creates new Package objects from the lines
+	public static List<Package> createPackages(List<String> lines) {
+		PackageLineParser parser = new PackageLineParser();
+		List<Package> packages = new ArrayList<>(lines.size());
+		try {
+			for (int p = 0; p < lines.size(); p++) {
+				packages.add(parser.parse(lines.get(p), p + 1));
+			}
+		} catch (APIException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+		return packages;
+	}
+
+	// Parses the lines into a new batch
+	public static PackageBatch createBatch(List<String> lines) {
+		PackageLineParser parser = new PackageLineParser();
+		PackageBatch batch = new PackageBatch();
+		try {
+			for (int p = 0; p < lines.size(); p++) {
+				parser.parse(lines.get(p), p + 1, batch);
+			}
+		} catch (APIException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+		return batch;
+	}
+
+}
@@ -0,0 +1,48 @@
+package com.mobiquityinc.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Runs the JMH benchmarks of every stage of the packer: reading the packages
+ * (PackerBenchmark.extractPackageData), solving them with each strategy
+ * (AlgorithmStrategyBenchmark and SmallProblemStrategyBenchmark), choosing the
+ * packages to send (AlgorithmStrategyBenchmark) and writing the solution
+ * (PackerBenchmark.convertSolutionToString).
+ *
+ * The benchmarks are in the bench source folder. JMH 1.37 and the libraries
+ * it needs are in lib/jmh, including jmh-generator-annprocess, the annotation
+ * processor which generates the code that runs the benchmarks. The processor
+ * path does not expand wildcards, so its jars are named. From the root of the
+ * project:
+ *
+ * javac -cp "lib/*:lib/jmh/*" -d bin-bench
+ *     -processorpath lib/jmh/jmh-generator-annprocess-1.37.jar:lib/jmh/jmh-core-1.37.jar
+ *     $(find src bench -name '*.java')
+ * java -cp "bin-bench:lib/*:lib/jmh/*" com.mobiquityinc.benchmark.BenchmarkRunner
+ *
+ * The throughput of each benchmark and the allocation rate measured by the gc
+ * profiler are written as JSON to the file given as first argument
+ * (jmh-result.json by default), so results can be compared between releases.
+ * A regular expression given as second argument only runs the matching
+ * benchmarks.
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException {
+		String resultFile = args.length > 0 ? args[0] : "jmh-result.json";
+		String include = args.length > 1 ? args[1] : "com\\.mobiquityinc\\..*Benchmark";
+		Options options = new OptionsBuilder().include(include).addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON).result(resultFile).build();
+		new Runner(options).run();
+	}
+
+}
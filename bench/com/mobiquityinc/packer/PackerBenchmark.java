@@ -0,0 +1,94 @@
+package com.mobiquityinc.packer;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mobiquityinc.algorithm.DynamicProgrammingAlgorithmStrategy;
+import com.mobiquityinc.benchmark.BenchmarkData;
+import com.mobiquityinc.exception.APIException;
+import com.mobiquityinc.model.Package;
+import com.mobiquityinc.model.PackageBatch;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Benchmarks of reading the packages from the lines of a file and of writing
+ * the solution, the stages before and after the packages are solved. The
+ * solution is either built as a String or written to a stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PackerBenchmark {
+
+	@Param({ "1", "15", "40" })
+	public int itemCount;
+
+	@Param({ "100", "10000" })
+	public int packageCount;
+
+	@Param({ "0", "0.5" })
+	public double duplicateCostRatio;
+
+	private static final OutputStream DISCARD = new OutputStream() {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	};
+
+	private List<String> lines;
+	private List<Package> solvedPackages;
+	private PackageBatch solvedBatch;
+
+	@Setup
+	public void createData() {
+		lines = BenchmarkData.createLines(packageCount, itemCount, duplicateCostRatio);
+		solvedPackages = BenchmarkData.createPackages(lines);
+		new DynamicProgrammingAlgorithmStrategy().solveProblem(solvedPackages);
+		solvedBatch = PackageBatch.fromPackages(solvedPackages);
+	}
+
+	@Benchmark
+	public List<Package> extractPackageData() throws APIException {
+		return Packer.extractPackageData(lines.stream());
+	}
+
+	@Benchmark
+	public String convertSolutionToString() throws APIException {
+		return Packer.convertSolutionToString(solvedPackages);
+	}
+
+	@Benchmark
+	public String convertBatchSolutionToString() throws APIException {
+		return Packer.convertSolutionToString(solvedBatch);
+	}
+
+	// Writes the solution of the batch to a stream which discards the bytes
+	@Benchmark
+	public void writeBatchSolution() throws APIException {
+		Packer.writeSolution(solvedBatch, DISCARD);
+	}
+
+}
@@ -0,0 +1,496 @@
+package com.mobiquityinc.algorithm;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+import com.mobiquityinc.metrics.PackerMetrics;
+import com.mobiquityinc.metrics.PackerMetrics.Counter;
+import com.mobiquityinc.metrics.PackerMetrics.Stage;
+import com.mobiquityinc.model.Item;
+import com.mobiquityinc.model.OffHeapPackageStore;
+import com.mobiquityinc.model.Package;
+import com.mobiquityinc.model.PackageBatch;
+import com.mobiquityinc.util.LongHashIndex;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Base class for the strategies which solve every package on its own. It maps
+ * the package's items to the double arrays used by the algorithms, lets the
+ * concrete strategy select the items and then applies the selection to the
+ * Package object. Once all the packages have been solved the packages to send
+ * are chosen using the same rules for every strategy.
+ *
+ * The packages can be solved by more than one thread by setting the
+ * parallelism. Each result is stored on its own Package object and the
+ * packages to send are only chosen once every package has been solved, so the
+ * results stay in the same order as the packages in the file.
+ *
+ * Packages held in a PackageBatch are solved straight from the batch's item
+ * arrays, without creating Package or Item objects. Packages held in an
+ * OffHeapPackageStore have the weights and costs of their items copied into
+ * arrays of their own while they are solved, so only the packages being
+ * solved are held on the heap.
+ *
+ * A strategy which may not find the optimal selection, such as the
+ * TimeBudgetAlgorithmStrategy or the FptasAlgorithmStrategy, reports the ratio
+ * of the optimal cost its selection is guaranteed to reach through
+ * selectItemsWithGuarantee, and the ratio is kept with the package.
+ *
+ * Before the concrete strategy selects the items, the presolver removes the
+ * items which can never be packed and solves packages in which all the
+ * remaining items fit (see ItemPresolver), so the strategy is given fewer
+ * items or is not needed at all. The time each thread started to solve its
+ * package is kept while the package is solved (see getPackageStartNanos), so
+ * a time budget can include the time taken to presolve.
+ *
+ * The time taken to presolve, select the items and choose the packages to send
+ * and the number of packages, items, selected items and approximate packages
+ * are recorded in the default PackerMetrics.
+ */
+public abstract class AbstractAlgorithmStrategy implements AlgorithmStrategy {
+
+	// The maximum weight that a package can carry
+	protected static final double MAXIMUM_PACKAGE_WEIGHT = 100;
+	// The maximum weight of an item that can be packed
+	protected static final double MAXIMUM_ITEM_WEIGHT = 100;
+	// The maximum cost of an item that can be packed
+	protected static final double MAXIMUM_ITEM_COST = 100;
+	// The number of fixed-point units in one unit of weight or cost
+	protected static final int FIXED_POINT_SCALE = 100;
+	// Tolerance used to absorb binary floating point representation errors
+	private static final double FIXED_POINT_TOLERANCE = 1e-6;
+
+	// The registry the stages and counters are recorded in
+	protected static final PackerMetrics METRICS = PackerMetrics.getDefault();
+	// The time the package being solved on a thread was handed to the
+	// outermost strategy, or null outside of solvePackage
+	private static final ThreadLocal<Long> PACKAGE_START = new ThreadLocal<>();
+
+	// The number of threads used to solve the packages
+	private int parallelism = 1;
+	// Reduces the items of each package before they are selected
+	private ItemPresolver presolver = new ItemPresolver();
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("The parallelism must be 1 or more");
+		}
+		this.parallelism = parallelism;
+	}
+
+	public ItemPresolver getPresolver() {
+		return presolver;
+	}
+
+	// Set the presolver to null to select items from all the package's items
+	public void setPresolver(ItemPresolver presolver) {
+		this.presolver = presolver;
+	}
+
+	/*
+	 * This method solves the optimization problem for each package and then
+	 * chooses the packages to send.
+	 */
+	@Override
+	public void solveProblem(List<Package> packages) {
+		if (parallelism > 1 && packages.size() > 1) {
+			solvePackagesInParallel(packages);
+		} else {
+			packages.stream().forEachOrdered(this::solvePackage);
+		}
+		choosePackagesToSend(packages);
+	}
+
+	/*
+	 * This method solves the optimization problem for each package in the
+	 * batch and then chooses the packages to send.
+	 */
+	@Override
+	public void solveProblem(PackageBatch batch) {
+		IntStream packageNumbers = IntStream.range(0, batch.getPackageCount());
+		if (parallelism > 1 && batch.getPackageCount() > 1) {
+			solvePackagesInParallel(() -> packageNumbers.parallel().forEach(p -> solvePackage(batch, p)));
+		} else {
+			packageNumbers.forEachOrdered(p -> solvePackage(batch, p));
+		}
+		choosePackagesToSend(batch);
+	}
+
+	/*
+	 * This method solves the optimization problem for each package in the
+	 * off-heap store and then chooses the packages to send.
+	 */
+	public void solveProblem(OffHeapPackageStore store) {
+		IntStream packageNumbers = IntStream.range(0, store.getPackageCount());
+		if (parallelism > 1 && store.getPackageCount() > 1) {
+			solvePackagesInParallel(() -> packageNumbers.parallel().forEach(p -> solvePackage(store, p)));
+		} else {
+			packageNumbers.forEachOrdered(p -> solvePackage(store, p));
+		}
+		choosePackagesToSend(store);
+	}
+
+	private void solvePackagesInParallel(List<Package> packages) {
+		solvePackagesInParallel(() -> packages.parallelStream().forEach(this::solvePackage));
+	}
+
+	/*
+	 * Solves the packages on a fork join pool with the configured number of
+	 * threads. The pool is only used for this call so that its threads do not
+	 * outlive the work.
+	 */
+	private void solvePackagesInParallel(Runnable solvePackages) {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			pool.submit(solvePackages).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while solving the packages", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Unable to solve the packages", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/*
+	 * Solves the optimization problem for a single package without choosing
+	 * whether the package is sent
+	 */
+	public void solvePackage(Package packageToPack) {
+		// Map the package's item weights and costs to the double arrays
+		// required by the algorithms
+		double[] itemWeights = packageToPack.getAvailableItems().stream().mapToDouble(item -> item.getWeight())
+				.toArray();
+		double[] itemCosts = packageToPack.getAvailableItems().stream().mapToDouble(item -> item.getCost())
+				.toArray();
+		boolean[] selectedItems = new boolean[itemWeights.length];
+		METRICS.increment(Counter.PACKAGES);
+		METRICS.add(Counter.ITEMS, selectedItems.length);
+		double guaranteedRatio = presolveAndSelectItems(getPackageCapacity(packageToPack.getMaximumWeight()),
+				itemWeights, itemCosts, 0, selectedItems);
+		applySelection(packageToPack, selectedItems);
+		packageToPack.setGuaranteedRatio(guaranteedRatio);
+	}
+
+	/*
+	 * Solves the optimization problem for a single package in a batch without
+	 * choosing whether the package is sent. The algorithm reads the package's
+	 * items straight from the batch's arrays.
+	 */
+	public void solvePackage(PackageBatch batch, int packageNumber) {
+		boolean[] selectedItems = new boolean[batch.getItemCount(packageNumber)];
+		METRICS.increment(Counter.PACKAGES);
+		METRICS.add(Counter.ITEMS, selectedItems.length);
+		double guaranteedRatio = presolveAndSelectItems(getPackageCapacity(batch.getMaximumWeight(packageNumber)),
+				batch.getItemWeights(), batch.getItemCosts(), batch.getFirstItem(packageNumber), selectedItems);
+		applySelection(batch, packageNumber, selectedItems);
+		batch.setGuaranteedRatio(packageNumber, guaranteedRatio);
+	}
+
+	/*
+	 * Solves the optimization problem for a single package in an off-heap
+	 * store without choosing whether the package is sent. The weights and
+	 * costs of the package's items are copied from the store for the
+	 * algorithm.
+	 */
+	public void solvePackage(OffHeapPackageStore store, int packageNumber) {
+		int itemCount = store.getItemCount(packageNumber);
+		double[] itemWeights = new double[itemCount];
+		double[] itemCosts = new double[itemCount];
+		store.copyItems(packageNumber, itemWeights, itemCosts);
+		boolean[] selectedItems = new boolean[itemCount];
+		METRICS.increment(Counter.PACKAGES);
+		METRICS.add(Counter.ITEMS, itemCount);
+		double guaranteedRatio = presolveAndSelectItems(getPackageCapacity(store.getMaximumWeight(packageNumber)),
+				itemWeights, itemCosts, 0, selectedItems);
+		applySelection(store, packageNumber, selectedItems, itemWeights, itemCosts);
+		store.setGuaranteedRatio(packageNumber, guaranteedRatio);
+	}
+
+	/*
+	 * Reduces the package's items with the presolver and lets the strategy
+	 * select from the remaining items, unless the presolver solved the
+	 * package. Returns the ratio of the optimal cost the selection is
+	 * guaranteed to reach.
+	 */
+	private double presolveAndSelectItems(double packageCapacity, double[] itemWeights, double[] itemCosts,
+			int firstItem, boolean[] selectedItems) {
+		// A strategy solving a package for another strategy keeps its start
+		boolean outermost = PACKAGE_START.get() == null;
+		if (outermost) {
+			PACKAGE_START.set(System.nanoTime());
+		}
+		try {
+			return reduceAndSelectItems(packageCapacity, itemWeights, itemCosts, firstItem, selectedItems);
+		} finally {
+			if (outermost) {
+				PACKAGE_START.remove();
+			}
+		}
+	}
+
+	private double reduceAndSelectItems(double packageCapacity, double[] itemWeights, double[] itemCosts,
+			int firstItem, boolean[] selectedItems) {
+		ItemPresolver itemPresolver = presolver;
+		if (itemPresolver == null) {
+			return timeSelectItems(packageCapacity, itemWeights, itemCosts, firstItem, selectedItems);
+		}
+		long start = System.nanoTime();
+		ItemPresolver.Reduction reduction = itemPresolver.presolve(packageCapacity, itemWeights, itemCosts,
+				firstItem, selectedItems.length);
+		METRICS.record(Stage.PRESOLVE, start);
+		METRICS.add(Counter.PRESOLVE_REMOVED_ITEMS, reduction.getRemovedItemCount());
+		boolean[] remainingSelectedItems = new boolean[reduction.getRemainingItemCount()];
+		double guaranteedRatio = 1;
+		if (reduction.isSolved()) {
+			METRICS.increment(Counter.PRESOLVED_PACKAGES);
+			Arrays.fill(remainingSelectedItems, true);
+		} else if (reduction.getRemovedItemCount() == 0) {
+			// Nothing was removed so the items are selected where they are
+			return timeSelectItems(packageCapacity, itemWeights, itemCosts, firstItem, selectedItems);
+		} else {
+			guaranteedRatio = timeSelectItems(packageCapacity, reduction.getItemWeights(), reduction.getItemCosts(), 0,
+					remainingSelectedItems);
+		}
+		reduction.mapSelection(remainingSelectedItems, selectedItems);
+		return guaranteedRatio;
+	}
+
+	/*
+	 * The time the package being solved on this thread was handed to the
+	 * strategy, before it was presolved, or the current time if the items are
+	 * selected outside of solvePackage.
+	 */
+	protected static long getPackageStartNanos() {
+		Long start = PACKAGE_START.get();
+		return start == null ? System.nanoTime() : start;
+	}
+
+	private double timeSelectItems(double packageCapacity, double[] itemWeights, double[] itemCosts,
+			int firstItem, boolean[] selectedItems) {
+		long start = System.nanoTime();
+		double guaranteedRatio = selectItemsWithGuarantee(packageCapacity, itemWeights, itemCosts, firstItem,
+				selectedItems);
+		METRICS.record(Stage.SELECT_ITEMS, start);
+		if (guaranteedRatio < 1) {
+			METRICS.increment(Counter.APPROXIMATE_PACKAGES);
+		}
+		return guaranteedRatio;
+	}
+
+	/*
+	 * Selects the items to pack. The package's items are the selectedItems.length
+	 * items from position firstItem in the item weights and costs arrays, in
+	 * the same order as the package's available items. The strategy marks each
+	 * item that should be packed as true in the selectedItems array, where
+	 * selectedItems[i] is the item at position firstItem + i. The method can be
+	 * called by more than one thread at the same time.
+	 */
+	protected abstract void selectItems(double packageCapacity, double[] itemWeights, double[] itemCosts,
+			int firstItem, boolean[] selectedItems);
+
+	/*
+	 * Selects the items in the same way as selectItems and returns the ratio
+	 * of the optimal cost the selection is guaranteed to reach: 1 if the
+	 * selection is optimal, less than 1 if it is approximate and 0 if nothing
+	 * is guaranteed. The strategies which always find the optimal selection
+	 * keep this implementation.
+	 */
+	protected double selectItemsWithGuarantee(double packageCapacity, double[] itemWeights, double[] itemCosts,
+			int firstItem, boolean[] selectedItems) {
+		selectItems(packageCapacity, itemWeights, itemCosts, firstItem, selectedItems);
+		return 1;
+	}
+
+	/*
+	 * Add the selected items to the Package object and set the total cost and
+	 * weight carried by the package
+	 */
+	protected static void applySelection(Package packageToPack, boolean[] selectedItems) {
+		double totalPackageCost = 0;
+		double totalPackageWeight = 0;
+		int selectedItemCount = 0;
+		for (int i = 0; i < selectedItems.length; i++) {
+			if (selectedItems[i]) {
+				selectedItemCount++;
+				Item selectedItem = packageToPack.getAvailableItems().get(i);
+				packageToPack.getSelectedItems().add(selectedItem);
+				totalPackageCost += selectedItem.getCost();
+				totalPackageWeight += selectedItem.getWeight();
+			}
+		}
+		packageToPack.setCostOfItems(totalPackageCost);
+		packageToPack.setWeightOfItems(totalPackageWeight);
+		METRICS.add(Counter.SELECTED_ITEMS, selectedItemCount);
+	}
+
+	// Set the selected items of a package in a batch and the total cost and
+	// weight carried by the package
+	protected static void applySelection(PackageBatch batch, int packageNumber, boolean[] selectedItems) {
+		int firstItem = batch.getFirstItem(packageNumber);
+		double totalPackageCost = 0;
+		double totalPackageWeight = 0;
+		int selectedItemCount = 0;
+		for (int i = 0; i < selectedItems.length; i++) {
+			if (selectedItems[i]) {
+				selectedItemCount++;
+				totalPackageCost += batch.getItemCost(firstItem + i);
+				totalPackageWeight += batch.getItemWeight(firstItem + i);
+			}
+		}
+		batch.setSelectedItems(packageNumber, selectedItems);
+		batch.setCostOfItems(packageNumber, totalPackageCost);
+		batch.setWeightOfItems(packageNumber, totalPackageWeight);
+		METRICS.add(Counter.SELECTED_ITEMS, selectedItemCount);
+	}
+
+	// Set the selected items of a package in an off-heap store and the total
+	// cost and weight carried by the package
+	protected static void applySelection(OffHeapPackageStore store, int packageNumber, boolean[] selectedItems,
+			double[] itemWeights, double[] itemCosts) {
+		double totalPackageCost = 0;
+		double totalPackageWeight = 0;
+		int selectedItemCount = 0;
+		for (int i = 0; i < selectedItems.length; i++) {
+			if (selectedItems[i]) {
+				selectedItemCount++;
+				totalPackageCost += itemCosts[i];
+				totalPackageWeight += itemWeights[i];
+			}
+		}
+		store.setSelectedItems(packageNumber, selectedItems);
+		store.setCostOfItems(packageNumber, totalPackageCost);
+		store.setWeightOfItems(packageNumber, totalPackageWeight);
+		METRICS.add(Counter.SELECTED_ITEMS, selectedItemCount);
+	}
+
+	/*
+	 * The weight a package can carry is the provided package weight OR 100
+	 * should the provided package weight be more than 100
+	 */
+	protected static double getPackageCapacity(double maximumWeight) {
+		return maximumWeight <= MAXIMUM_PACKAGE_WEIGHT ? maximumWeight : MAXIMUM_PACKAGE_WEIGHT;
+	}
+
+	/*
+	 * An item can only be packed if its weight and cost are <= 100 and it is
+	 * not heavier than the package capacity
+	 */
+	protected static boolean isItemAllowed(double packageCapacity, double itemWeight, double itemCost) {
+		return itemWeight <= MAXIMUM_ITEM_WEIGHT && itemCost <= MAXIMUM_ITEM_COST && itemWeight <= packageCapacity;
+	}
+
+	/*
+	 * Weights and costs are compared as fixed-point numbers in hundredths,
+	 * which is the precision of the data in the file. Item weights are rounded
+	 * up and the capacity is rounded down so that a weight with more than two
+	 * decimals can never let the package be overweight.
+	 */
+	protected static long toFixedPointWeight(double itemWeight) {
+		return (long) Math.ceil(itemWeight * FIXED_POINT_SCALE - FIXED_POINT_TOLERANCE);
+	}
+
+	protected static long toFixedPointCapacity(double packageCapacity) {
+		return (long) Math.floor(packageCapacity * FIXED_POINT_SCALE + FIXED_POINT_TOLERANCE);
+	}
+
+	protected static long toFixedPointCost(double itemCost) {
+		return Math.round(itemCost * FIXED_POINT_SCALE);
+	}
+
+	// True if a weight or cost is a whole number of hundredths
+	protected static boolean isFixedPoint(double value) {
+		double scaled = value * FIXED_POINT_SCALE;
+		return Math.abs(scaled - Math.rint(scaled)) <= FIXED_POINT_TOLERANCE;
+	}
+
+	/*
+	 * In order to send a package in the list of provided packages from the
+	 * file, there are a few restrictions that need to be applied: Only send a
+	 * package if 1 or more items were selected. If there are multiple packages
+	 * with with the same cost, the package which weighs less should be sent.
+	 *
+	 * The packages are indexed by cost in a single pass, keeping the number of
+	 * packages and the first lightest package for each cost in primitive
+	 * arrays. A second pass then decides for each package whether it is sent,
+	 * so the time and memory used grow linearly with the number of packages.
+	 */
+	protected void choosePackagesToSend(List<Package> packages) {
+		choosePackagesToSend(packages.size(), p -> packages.get(p).getCostOfItems(),
+				p -> packages.get(p).getWeightOfItems(), p -> !packages.get(p).getSelectedItems().isEmpty(),
+				p -> packages.get(p).setSendPackage(true));
+	}
+
+	// Choose the packages to send in a batch using the same rules
+	protected void choosePackagesToSend(PackageBatch batch) {
+		choosePackagesToSend(batch.getPackageCount(), batch::getCostOfItems, batch::getWeightOfItems,
+				batch::hasSelectedItems, p -> batch.setSendPackage(p, true));
+	}
+
+	// Choose the packages to send in an off-heap store using the same rules
+	protected void choosePackagesToSend(OffHeapPackageStore store) {
+		choosePackagesToSend(store.getPackageCount(), store::getCostOfItems, store::getWeightOfItems,
+				store::hasSelectedItems, p -> store.setSendPackage(p, true));
+	}
+
+	private static void choosePackagesToSend(int packageCount, IntToDoubleFunction costOfItems,
+			IntToDoubleFunction weightOfItems, IntPredicate hasSelectedItems, IntConsumer sendPackage) {
+		long start = System.nanoTime();
+		int sentPackageCount = 0;
+		/*
+		 * Number each distinct cost and keep the number of packages with the
+		 * cost and the position of the lightest package with the cost. Costs
+		 * of 0 are never compared to each other so they are not indexed.
+		 */
+		LongHashIndex costIndex = new LongHashIndex(packageCount);
+		int[] packagesWithCost = new int[packageCount];
+		int[] lightestPackageWithCost = new int[packageCount];
+		for (int p = 0; p < packageCount; p++) {
+			double packageCost = costOfItems.applyAsDouble(p);
+			if (packageCost == 0) {
+				continue;
+			}
+			int cost = costIndex.getOrAdd(Double.doubleToLongBits(packageCost));
+			packagesWithCost[cost]++;
+			// Keep the first package if more than one package is the lightest
+			if (packagesWithCost[cost] == 1 || Double.compare(weightOfItems.applyAsDouble(p),
+					weightOfItems.applyAsDouble(lightestPackageWithCost[cost])) < 0) {
+				lightestPackageWithCost[cost] = p;
+			}
+		}
+
+		for (int p = 0; p < packageCount; p++) {
+			double packageCost = costOfItems.applyAsDouble(p);
+			int cost = packageCost == 0 ? -1 : costIndex.get(Double.doubleToLongBits(packageCost));
+			if (cost != -1 && packagesWithCost[cost] > 1) {
+				// Only send the lightest of the packages with the same cost
+				if (lightestPackageWithCost[cost] == p) {
+					sendPackage.accept(p);
+					sentPackageCount++;
+				}
+			} else if (hasSelectedItems.test(p)) {
+				// Only select the package if 1 or more items exist in the
+				// package's selected items
+				sendPackage.accept(p);
+				sentPackageCount++;
+			}
+		}
+		METRICS.add(Counter.SENT_PACKAGES, sentPackageCount);
+		METRICS.record(Stage.CHOOSE_PACKAGES, start);
+	}
+
+}
@@ -0,0 +1,318 @@
+package com.mobiquityinc.algorithm;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.mobiquityinc.metrics.PackerMetrics.Counter;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Strategy which chooses the algorithm for each package from the number of
+ * items, the capacity and the precision of the item weights and costs:
+ *
+ * - If an approximation strategy is set, packages with more items than the
+ * maximum number of exact items are solved by it in bounded time, for example
+ * by the FptasAlgorithmStrategy. No package is approximated by default.
+ *
+ * - Packages with weights or costs that are not whole hundredths are solved by
+ * the fallback strategy, the binary linear programming strategy by default,
+ * as the other algorithms compare weights and costs in hundredths.
+ *
+ * - Packages with only a few items are solved by checking every selection
+ * (BitmaskEnumerationAlgorithmStrategy).
+ *
+ * - Packages for which the dynamic programming table is small enough are
+ * solved by dynamic programming (DynamicProgrammingAlgorithmStrategy).
+ *
+ * - All other packages are solved by branch and bound
+ * (BranchAndBoundAlgorithmStrategy).
+ *
+ * The number of items up to which every selection is checked and the size up
+ * to which the dynamic programming table is used can be set, or calibrated by
+ * timing the algorithms on generated packages (see calibrate). The number of
+ * packages solved by each algorithm is counted.
+ */
+public class AdaptiveAlgorithmStrategy extends AbstractAlgorithmStrategy {
+
+	// The algorithms a package can be solved by
+	public enum Choice {
+		BITMASK_ENUMERATION, DYNAMIC_PROGRAMMING, BRANCH_AND_BOUND, FALLBACK, APPROXIMATION
+	}
+
+	// The thresholds used if the strategy is not calibrated
+	public static final int DEFAULT_MAXIMUM_ENUMERATED_ITEMS = 10;
+	public static final long DEFAULT_MAXIMUM_TABLE_SIZE = 1000000;
+
+	// The time the dynamic programming table may take to fill for a package
+	private static final long TABLE_TIME_BUDGET_NANOS = 1000000;
+	// Seed of the packages generated for the calibration
+	private static final long CALIBRATION_SEED = 20170417L;
+
+	private final BitmaskEnumerationAlgorithmStrategy bitmaskStrategy = new BitmaskEnumerationAlgorithmStrategy();
+	private final DynamicProgrammingAlgorithmStrategy dynamicProgrammingStrategy = new DynamicProgrammingAlgorithmStrategy();
+	private final BranchAndBoundAlgorithmStrategy branchAndBoundStrategy = new BranchAndBoundAlgorithmStrategy();
+	private final AbstractAlgorithmStrategy fallbackStrategy;
+
+	private volatile int maximumEnumeratedItems = DEFAULT_MAXIMUM_ENUMERATED_ITEMS;
+	private volatile long maximumTableSize = DEFAULT_MAXIMUM_TABLE_SIZE;
+	// Packages with more items are approximated, if the strategy is set
+	private volatile int maximumExactItems = Integer.MAX_VALUE;
+	private volatile AbstractAlgorithmStrategy approximationStrategy = null;
+
+	private final AtomicLongArray selectionCounts = new AtomicLongArray(Choice.values().length);
+
+	// Use the binary linear programming strategy as the fallback strategy
+	public AdaptiveAlgorithmStrategy() {
+		this(new BinaryLPAlgorithmStrategy());
+	}
+
+	public AdaptiveAlgorithmStrategy(AbstractAlgorithmStrategy fallbackStrategy) {
+		this.fallbackStrategy = fallbackStrategy;
+	}
+
+	public AbstractAlgorithmStrategy getFallbackStrategy() {
+		return fallbackStrategy;
+	}
+
+	public int getMaximumEnumeratedItems() {
+		return maximumEnumeratedItems;
+	}
+
+	// Packages with up to this many items are solved by checking every
+	// selection
+	public void setMaximumEnumeratedItems(int maximumEnumeratedItems) {
+		if (maximumEnumeratedItems < 0
+				|| maximumEnumeratedItems > BitmaskEnumerationAlgorithmStrategy.MAXIMUM_ENUMERATED_ITEMS) {
+			throw new IllegalArgumentException("The maximum number of enumerated items must be between 0 and "
+					+ BitmaskEnumerationAlgorithmStrategy.MAXIMUM_ENUMERATED_ITEMS);
+		}
+		this.maximumEnumeratedItems = maximumEnumeratedItems;
+	}
+
+	public long getMaximumTableSize() {
+		return maximumTableSize;
+	}
+
+	// Packages with a dynamic programming table of up to this many entries
+	// (the number of items times the capacity in hundredths) are solved by
+	// dynamic programming
+	public void setMaximumTableSize(long maximumTableSize) {
+		if (maximumTableSize < 0) {
+			throw new IllegalArgumentException("The maximum table size must be 0 or more");
+		}
+		this.maximumTableSize = maximumTableSize;
+	}
+
+	public int getMaximumExactItems() {
+		return maximumExactItems;
+	}
+
+	public AbstractAlgorithmStrategy getApproximationStrategy() {
+		return approximationStrategy;
+	}
+
+	/*
+	 * Packages with more than maximumExactItems items are solved by the
+	 * approximation strategy. Set the strategy to null to solve every package
+	 * exactly.
+	 */
+	public void setApproximation(AbstractAlgorithmStrategy approximationStrategy, int maximumExactItems) {
+		if (maximumExactItems < 0) {
+			throw new IllegalArgumentException("The maximum number of exact items must be 0 or more");
+		}
+		this.maximumExactItems = maximumExactItems;
+		this.approximationStrategy = approximationStrategy;
+	}
+
+	// The number of packages solved by an algorithm
+	public long getSelectionCount(Choice choice) {
+		return selectionCounts.get(choice.ordinal());
+	}
+
+	@Override
+	protected void selectItems(double packageCapacity, double[] itemWeights, double[] itemCosts, int firstItem,
+			boolean[] selectedItems) {
+		selectItemsWithGuarantee(packageCapacity, itemWeights, itemCosts, firstItem, selectedItems);
+	}
+
+	// The chosen algorithm reports the guarantee of its selection
+	@Override
+	protected double selectItemsWithGuarantee(double packageCapacity, double[] itemWeights, double[] itemCosts,
+			int firstItem, boolean[] selectedItems) {
+		Choice choice = chooseAlgorithm(packageCapacity, itemWeights, itemCosts, firstItem, selectedItems.length);
+		selectionCounts.incrementAndGet(choice.ordinal());
+		// The linear programs of the fallback strategy are counted by the
+		// strategy itself
+		switch (choice) {
+		case BITMASK_ENUMERATION:
+			METRICS.increment(Counter.BITMASK_ENUMERATIONS);
+			break;
+		case DYNAMIC_PROGRAMMING:
+			METRICS.increment(Counter.DYNAMIC_PROGRAMS);
+			break;
+		case BRANCH_AND_BOUND:
+			METRICS.increment(Counter.BRANCH_AND_BOUND_SEARCHES);
+			break;
+		case APPROXIMATION:
+			METRICS.increment(Counter.APPROXIMATIONS);
+			break;
+		default:
+			break;
+		}
+		return getAlgorithm(choice).selectItemsWithGuarantee(packageCapacity, itemWeights, itemCosts, firstItem,
+				selectedItems);
+	}
+
+	// Chooses the algorithm used to solve a package
+	public Choice chooseAlgorithm(double packageCapacity, double[] itemWeights, double[] itemCosts, int firstItem,
+			int itemCount) {
+		if (approximationStrategy != null && itemCount > maximumExactItems) {
+			return Choice.APPROXIMATION;
+		}
+		for (int i = firstItem; i < firstItem + itemCount; i++) {
+			if (!isFixedPoint(itemWeights[i]) || !isFixedPoint(itemCosts[i])) {
+				return Choice.FALLBACK;
+			}
+		}
+		if (itemCount <= maximumEnumeratedItems) {
+			return Choice.BITMASK_ENUMERATION;
+		}
+		if (getTableSize(packageCapacity, itemCount) <= maximumTableSize) {
+			return Choice.DYNAMIC_PROGRAMMING;
+		}
+		return Choice.BRANCH_AND_BOUND;
+	}
+
+	private AbstractAlgorithmStrategy getAlgorithm(Choice choice) {
+		switch (choice) {
+		case BITMASK_ENUMERATION:
+			return bitmaskStrategy;
+		case DYNAMIC_PROGRAMMING:
+			return dynamicProgrammingStrategy;
+		case BRANCH_AND_BOUND:
+			return branchAndBoundStrategy;
+		case APPROXIMATION:
+			return approximationStrategy;
+		default:
+			return fallbackStrategy;
+		}
+	}
+
+	// The number of entries in the dynamic programming table of a package
+	private static long getTableSize(double packageCapacity, int itemCount) {
+		return itemCount * (toFixedPointCapacity(packageCapacity) + 1);
+	}
+
+	/*
+	 * Sets the thresholds from the time the algorithms take on this machine.
+	 * The time to check one selection and to fill one entry of the dynamic
+	 * programming table are measured on generated packages. Every selection is
+	 * checked for the numbers of items where that takes no longer than filling
+	 * a table with the full capacity, and the table is used while it can be
+	 * filled within a millisecond.
+	 */
+	public Calibration calibrate() {
+		Calibration calibration = Calibration.measure();
+		apply(calibration);
+		return calibration;
+	}
+
+	// Sets the thresholds of an earlier calibration
+	public void apply(Calibration calibration) {
+		setMaximumEnumeratedItems(calibration.getMaximumEnumeratedItems());
+		setMaximumTableSize(calibration.getMaximumTableSize());
+	}
+
+	// Returns the calibration of the first call, which is measured only once
+	public static Calibration getDefaultCalibration() {
+		return DefaultCalibration.CALIBRATION;
+	}
+
+	// Measured on first use of the default calibration
+	private static final class DefaultCalibration {
+		private static final Calibration CALIBRATION = Calibration.measure();
+	}
+
+	/*
+	 * The time measured for each algorithm and the thresholds derived from
+	 * it.
+	 */
+	public static final class Calibration {
+
+		private final double nanosPerSelection;
+		private final double nanosPerTableEntry;
+		private final int maximumEnumeratedItems;
+		private final long maximumTableSize;
+
+		Calibration(double nanosPerSelection, double nanosPerTableEntry) {
+			this.nanosPerSelection = nanosPerSelection;
+			this.nanosPerTableEntry = nanosPerTableEntry;
+			long fullTableSize = toFixedPointCapacity(MAXIMUM_PACKAGE_WEIGHT) + 1;
+			int items = 0;
+			while (items < BitmaskEnumerationAlgorithmStrategy.MAXIMUM_ENUMERATED_ITEMS
+					&& (1L << (items + 1)) * nanosPerSelection <= (items + 1) * fullTableSize * nanosPerTableEntry) {
+				items++;
+			}
+			this.maximumEnumeratedItems = items;
+			this.maximumTableSize = (long) (TABLE_TIME_BUDGET_NANOS / nanosPerTableEntry);
+		}
+
+		public double getNanosPerSelection() {
+			return nanosPerSelection;
+		}
+
+		public double getNanosPerTableEntry() {
+			return nanosPerTableEntry;
+		}
+
+		public int getMaximumEnumeratedItems() {
+			return maximumEnumeratedItems;
+		}
+
+		public long getMaximumTableSize() {
+			return maximumTableSize;
+		}
+
+		/*
+		 * Times both algorithms on the same generated packages with a full
+		 * capacity. Each algorithm is run once before it is timed so that the
+		 * code is compiled.
+		 */
+		static Calibration measure() {
+			int packageCount = 50;
+			int itemCount = 14;
+			double[][] itemWeights = new double[packageCount][itemCount];
+			double[][] itemCosts = new double[packageCount][itemCount];
+			Random random = new Random(CALIBRATION_SEED);
+			for (int p = 0; p < packageCount; p++) {
+				for (int i = 0; i < itemCount; i++) {
+					itemWeights[p][i] = (1 + random.nextInt(5000)) / 100.0;
+					itemCosts[p][i] = 1 + random.nextInt(100);
+				}
+			}
+			BitmaskEnumerationAlgorithmStrategy bitmask = new BitmaskEnumerationAlgorithmStrategy();
+			DynamicProgrammingAlgorithmStrategy dynamicProgramming = new DynamicProgrammingAlgorithmStrategy();
+			time(bitmask, itemWeights, itemCosts);
+			long bitmaskNanos = time(bitmask, itemWeights, itemCosts);
+			time(dynamicProgramming, itemWeights, itemCosts);
+			long dynamicProgrammingNanos = time(dynamicProgramming, itemWeights, itemCosts);
+			long selections = packageCount * (1L << itemCount);
+			long tableSize = packageCount * getTableSize(MAXIMUM_PACKAGE_WEIGHT, itemCount);
+			return new Calibration(Math.max(bitmaskNanos, 1) / (double) selections,
+					Math.max(dynamicProgrammingNanos, 1) / (double) tableSize);
+		}
+
+		private static long time(AbstractAlgorithmStrategy strategy, double[][] itemWeights, double[][] itemCosts) {
+			long start = System.nanoTime();
+			for (int p = 0; p < itemWeights.length; p++) {
+				strategy.selectItems(MAXIMUM_PACKAGE_WEIGHT, itemWeights[p], itemCosts[p], 0,
+						new boolean[itemWeights[p].length]);
+			}
+			return System.nanoTime() - start;
+		}
+	}
+
+}
@@ -3,6 +3,7 @@ package com.mobiquityinc.algorithm;
 import java.util.List;
 
 import com.mobiquityinc.model.Package;
+import com.mobiquityinc.model.PackageBatch;
 
 /**
  * @author Dewald Pieters
@@ -17,6 +18,10 @@ public class AlgorithmContext {
 
 	private AlgorithmStrategy algorithmStrategy;
 
+	public AlgorithmStrategy getAlgorithmStrategy() {
+		return algorithmStrategy;
+	}
+
 	public void setAlgorithmStrategy(AlgorithmStrategy algorithmStrategy) {
 		this.algorithmStrategy = algorithmStrategy;
 	}
@@ -25,4 +30,8 @@ public class AlgorithmContext {
 		algorithmStrategy.solveProblem(packages);
 	}
 
+	public void solveProblem(PackageBatch batch) {
+		algorithmStrategy.solveProblem(batch);
+	}
+
 }
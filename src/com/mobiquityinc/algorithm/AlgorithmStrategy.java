@@ -1,25 +1,38 @@
 package com.mobiquityinc.algorithm;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.mobiquityinc.model.Package;
+import com.mobiquityinc.model.PackageBatch;
 
 /**
  * @author Dewald Pieters
  *
  */
 /*
- * Interface that can be implemented by different types of algorithms. Currently
- * only the 0-1 binary algorithm implements this interface. Should it be decided
- * later down the line, that a dynamic programming approach with recursion
- * should be used to solve the problem. the algorithms can also implement this
- * interface. This interface abstracts the solving of problems using algorithms
- * from the algorithm implementations. It also ensures the Open/Close principle
- * is enforced as the implementation of news ways to solve the problem will not
- * affect the BinaryLPAlgorithmStrategy class code.
+ * Interface that can be implemented by different types of algorithms. The 0-1
+ * binary linear programming algorithm and the dynamic programming algorithm
+ * implement this interface. This interface abstracts the solving of problems
+ * using algorithms from the algorithm implementations. It also ensures the
+ * Open/Close principle is enforced as the implementation of news ways to solve
+ * the problem will not affect the existing algorithm classes' code.
  */
 public interface AlgorithmStrategy {
 
 	void solveProblem(List<Package> packages);
 
+	/*
+	 * Solves the packages in a batch. Algorithms which can not read the batch
+	 * directly solve the packages as Package objects and the results are
+	 * copied back to the batch.
+	 */
+	default void solveProblem(PackageBatch batch) {
+		List<Package> packages = new ArrayList<>(batch.asPackages());
+		solveProblem(packages);
+		for (int p = 0; p < packages.size(); p++) {
+			batch.updatePackage(p, packages.get(p));
+		}
+	}
+
 }
@@ -0,0 +1,90 @@
+package com.mobiquityinc.algorithm;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * This class represents a strategy which solves the packing problem by
+ * checking every possible selection of items. Only packages with at most 20
+ * items which fit and add to the cost (MAXIMUM_ENUMERATED_ITEMS) are
+ * enumerated, so there are never more than 1048576 selections to check.
+ * Larger packages are handed to the branch and bound strategy instead.
+ *
+ * A selection is represented by the bits of an int. The selections are visited
+ * in Gray code order, which means that each selection differs from the
+ * previous one by exactly one item. The total weight and cost are therefore
+ * updated by adding or removing a single item instead of being added up again
+ * for every selection, and no objects are created while the selections are
+ * checked. Weights and costs are kept as fixed-point numbers so that the
+ * running totals do not drift and selections with the same cost are
+ * recognised, in which case the lightest selection is kept.
+ *
+ * The strategy is mainly intended for small packages and as a reference to
+ * check the other strategies against.
+ */
+public class BitmaskEnumerationAlgorithmStrategy extends AbstractAlgorithmStrategy {
+
+	// The maximum number of items for which every selection is checked
+	protected static final int MAXIMUM_ENUMERATED_ITEMS = 20;
+
+	private final BranchAndBoundAlgorithmStrategy largePackageStrategy = new BranchAndBoundAlgorithmStrategy();
+
+	@Override
+	protected void selectItems(double packageCapacity, double[] itemWeights, double[] itemCosts, int firstItem,
+			boolean[] selectedItems) {
+
+		// Only items which may be packed and add to the cost are enumerated
+		int[] itemOrder = new int[selectedItems.length];
+		long[] weights = new long[selectedItems.length];
+		long[] costs = new long[selectedItems.length];
+		int itemCount = 0;
+		for (int i = 0; i < selectedItems.length; i++) {
+			double itemWeight = itemWeights[firstItem + i];
+			double itemCost = itemCosts[firstItem + i];
+			if (isItemAllowed(packageCapacity, itemWeight, itemCost) && toFixedPointCost(itemCost) > 0) {
+				itemOrder[itemCount] = i;
+				weights[itemCount] = toFixedPointWeight(itemWeight);
+				costs[itemCount] = toFixedPointCost(itemCost);
+				itemCount++;
+			}
+		}
+		if (itemCount > MAXIMUM_ENUMERATED_ITEMS) {
+			largePackageStrategy.selectItems(packageCapacity, itemWeights, itemCosts, firstItem, selectedItems);
+			return;
+		}
+
+		long capacity = toFixedPointCapacity(packageCapacity);
+		int selection = 0;
+		long weight = 0;
+		long cost = 0;
+		int bestSelection = 0;
+		long bestWeight = 0;
+		long bestCost = 0;
+		int selectionCount = 1 << itemCount;
+		for (int step = 1; step < selectionCount; step++) {
+			// The Gray code of step differs from the previous one in the bit
+			// at the position of the lowest set bit of step
+			int item = Integer.numberOfTrailingZeros(step);
+			selection ^= 1 << item;
+			if ((selection & (1 << item)) != 0) {
+				weight += weights[item];
+				cost += costs[item];
+			} else {
+				weight -= weights[item];
+				cost -= costs[item];
+			}
+			if (weight <= capacity && (cost > bestCost || (cost == bestCost && weight < bestWeight))) {
+				bestSelection = selection;
+				bestWeight = weight;
+				bestCost = cost;
+			}
+		}
+
+		// Mark the items in the best selection in their original order
+		for (int i = 0; i < itemCount; i++) {
+			selectedItems[itemOrder[i]] = (bestSelection & (1 << i)) != 0;
+		}
+	}
+
+}
@@ -0,0 +1,244 @@
+package com.mobiquityinc.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * This class represents a branch and bound strategy to solve the packing
+ * problem exactly without a linear programming library.
+ *
+ * The items which may be packed are sorted from the highest to the lowest cost
+ * per unit of weight. The search then decides for every item in that order
+ * whether to pack it or not, trying to pack it first. Before a branch is
+ * explored, the fractional knapsack relaxation of the remaining items (fill
+ * the package greedily and take a fraction of the first item that does not
+ * fit) gives an upper bound for the cost the branch can reach. Branches which
+ * can not beat the best selection found so far are skipped. Because the best
+ * items are tried first, a good selection is found almost immediately and
+ * most branches are pruned.
+ *
+ * All the arrays used by the search are created when the package is set up,
+ * so the search itself does not allocate any objects. Weights and costs are
+ * compared as fixed-point numbers so that selections with the same cost are
+ * recognised and the lightest one is kept.
+ *
+ * The search can also be given a deadline, after which it stops with the best
+ * selection found so far (see TimeBudgetAlgorithmStrategy).
+ */
+public class BranchAndBoundAlgorithmStrategy extends AbstractAlgorithmStrategy {
+
+	// Tolerance used when the fractional bound is compared to a whole cost
+	private static final double BOUND_TOLERANCE = 1e-9;
+	// The clock is read when the search reaches every 1024th branch
+	private static final int DEADLINE_CHECK_MASK = 1023;
+
+	@Override
+	protected void selectItems(double packageCapacity, double[] itemWeights, double[] itemCosts, int firstItem,
+			boolean[] selectedItems) {
+		Search search = new Search(packageCapacity, itemWeights, itemCosts, firstItem, selectedItems.length);
+		search.branch(0, 0, 0);
+		search.copySelection(selectedItems);
+	}
+
+	/*
+	 * Holds the state of the search for a single package. A new search is set
+	 * up for each package so that the strategy can be used by more than one
+	 * thread at the same time.
+	 */
+	static final class Search {
+
+		private final long capacity;
+		// Position of the item in the package for each sorted item
+		private final int[] itemOrder;
+		private final long[] weights;
+		private final long[] costs;
+		private final int itemCount;
+		// The items packed on the branch currently being explored
+		private final boolean[] packed;
+		// The best selection found so far
+		private final boolean[] bestPacked;
+		private long bestCost = 0;
+		private long bestWeight = 0;
+		// The search stops once System.nanoTime() passes the deadline
+		private boolean hasDeadline = false;
+		private long deadline;
+		private int branchCount = 0;
+		private boolean stopped = false;
+
+		Search(double packageCapacity, double[] itemWeights, double[] itemCosts, int firstItem, int packageItems) {
+			capacity = toFixedPointCapacity(packageCapacity);
+			itemOrder = new int[packageItems];
+			weights = new long[packageItems];
+			costs = new long[packageItems];
+			/*
+			 * Only items which may be packed and add to the cost are searched.
+			 * An item that costs nothing only makes the package heavier.
+			 */
+			int count = 0;
+			for (int i = 0; i < packageItems; i++) {
+				double itemWeight = itemWeights[firstItem + i];
+				double itemCost = itemCosts[firstItem + i];
+				if (isItemAllowed(packageCapacity, itemWeight, itemCost) && toFixedPointCost(itemCost) > 0) {
+					itemOrder[count] = i;
+					weights[count] = toFixedPointWeight(itemWeight);
+					costs[count] = toFixedPointCost(itemCost);
+					count++;
+				}
+			}
+			itemCount = count;
+			sortByCostPerWeight();
+			packed = new boolean[itemCount];
+			bestPacked = new boolean[itemCount];
+		}
+
+		/*
+		 * Insertion sort from the highest to the lowest cost per unit of
+		 * weight. Packages only have a few items and the sort is stable, which
+		 * keeps the search deterministic when items have the same ratio.
+		 */
+		private void sortByCostPerWeight() {
+			for (int i = 1; i < itemCount; i++) {
+				int order = itemOrder[i];
+				long weight = weights[i];
+				long cost = costs[i];
+				int j = i - 1;
+				while (j >= 0 && hasHigherRatio(cost, weight, costs[j], weights[j])) {
+					itemOrder[j + 1] = itemOrder[j];
+					weights[j + 1] = weights[j];
+					costs[j + 1] = costs[j];
+					j--;
+				}
+				itemOrder[j + 1] = order;
+				weights[j + 1] = weight;
+				costs[j + 1] = cost;
+			}
+		}
+
+		// Compares cost / weight ratios without dividing by a zero weight
+		private static boolean hasHigherRatio(long cost, long weight, long otherCost, long otherWeight) {
+			return cost * otherWeight > otherCost * weight;
+		}
+
+		// Stops the search once System.nanoTime() passes the deadline
+		void setDeadline(long deadlineNanos) {
+			hasDeadline = true;
+			deadline = deadlineNanos;
+		}
+
+		// True if the search stopped at the deadline before it was complete
+		boolean isStopped() {
+			return stopped;
+		}
+
+		/*
+		 * Starts from the greedy selection: the items are packed in order of
+		 * cost per unit of weight while they fit. If the most expensive item
+		 * on its own costs more, it is taken instead, so the starting
+		 * selection costs at least half of the optimal cost.
+		 */
+		void selectGreedily() {
+			long weight = 0;
+			long cost = 0;
+			int mostExpensiveItem = -1;
+			for (int i = 0; i < itemCount; i++) {
+				if (weight + weights[i] <= capacity) {
+					weight += weights[i];
+					cost += costs[i];
+					bestPacked[i] = true;
+				}
+				if (weights[i] <= capacity && (mostExpensiveItem < 0 || costs[i] > costs[mostExpensiveItem])) {
+					mostExpensiveItem = i;
+				}
+			}
+			if (mostExpensiveItem >= 0 && costs[mostExpensiveItem] > cost) {
+				Arrays.fill(bestPacked, false);
+				bestPacked[mostExpensiveItem] = true;
+				weight = weights[mostExpensiveItem];
+				cost = costs[mostExpensiveItem];
+			}
+			bestCost = cost;
+			bestWeight = weight;
+		}
+
+		/*
+		 * Explores the branches for the items from depth onwards given the
+		 * weight and cost of the items already packed.
+		 */
+		void branch(int depth, long weight, long cost) {
+			if (stopped) {
+				return;
+			}
+			if (cost > bestCost || (cost == bestCost && weight < bestWeight)) {
+				bestCost = cost;
+				bestWeight = weight;
+				System.arraycopy(packed, 0, bestPacked, 0, itemCount);
+			}
+			if (depth == itemCount || !canImprove(depth, weight, cost)) {
+				return;
+			}
+			if (hasDeadline && (branchCount++ & DEADLINE_CHECK_MASK) == 0 && System.nanoTime() - deadline >= 0) {
+				stopped = true;
+				return;
+			}
+			// Try to pack the item first
+			if (weight + weights[depth] <= capacity) {
+				packed[depth] = true;
+				branch(depth + 1, weight + weights[depth], cost + costs[depth]);
+				packed[depth] = false;
+			}
+			// Then try to leave the item out
+			branch(depth + 1, weight, cost);
+		}
+
+		/*
+		 * Returns true if the fractional knapsack bound of the remaining items
+		 * shows that the branch could still find a higher cost, or the same
+		 * cost with a lower weight.
+		 */
+		private boolean canImprove(int depth, long weight, long cost) {
+			long wholeBound = getBound(depth, weight, cost);
+			return wholeBound > bestCost || (wholeBound == bestCost && weight < bestWeight);
+		}
+
+		/*
+		 * The fractional knapsack bound of the items from depth onwards given
+		 * the weight and cost of the items already packed, rounded down to a
+		 * whole cost.
+		 */
+		private long getBound(int depth, long weight, long cost) {
+			long remainingCapacity = capacity - weight;
+			double bound = cost;
+			for (int i = depth; i < itemCount; i++) {
+				if (weights[i] <= remainingCapacity) {
+					remainingCapacity -= weights[i];
+					bound += costs[i];
+				} else {
+					bound += (double) costs[i] * remainingCapacity / weights[i];
+					break;
+				}
+			}
+			return (long) Math.floor(bound + BOUND_TOLERANCE);
+		}
+
+		// The highest cost any selection can reach, in hundredths
+		long getUpperBound() {
+			return getBound(0, 0, 0);
+		}
+
+		// The cost of the best selection found so far, in hundredths
+		long getBestCost() {
+			return bestCost;
+		}
+
+		// Marks the best selection on the items in their original order
+		void copySelection(boolean[] selectedItems) {
+			for (int i = 0; i < itemCount; i++) {
+				selectedItems[itemOrder[i]] = bestPacked[i];
+			}
+		}
+	}
+
+}
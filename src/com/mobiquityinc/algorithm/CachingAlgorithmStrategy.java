@@ -0,0 +1,204 @@
+package com.mobiquityinc.algorithm;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.mobiquityinc.metrics.PackerMetrics.Counter;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Strategy which remembers the items selected for a package and selects the
+ * same items when a package with the same capacity and items is solved again,
+ * instead of letting the strategy behind it solve the package again.
+ *
+ * A package is looked up by its capacity and its items sorted by weight and
+ * cost, so a package with the same items in a different order is found as
+ * well. The selection is kept in the sorted order of the items and mapped back
+ * to the order of the items in each package it is used for. Items with the
+ * same weight and cost keep their order in the package, so a package with its
+ * items in the same order gets exactly the selection the strategy made for it.
+ * With the items in a different order the selection has the same cost and
+ * weight, but equal items may be chosen in place of each other.
+ *
+ * Only optimal selections are remembered: an approximate selection of the
+ * strategy behind the cache is used once, so a package solved again may get a
+ * better selection.
+ *
+ * Only the most recently used packages are kept, up to the maximum size of
+ * the cache. The cache can be used by more than one thread at the same time.
+ * Two threads that miss the same package at the same time both solve it.
+ */
+public class CachingAlgorithmStrategy extends AbstractAlgorithmStrategy {
+
+	private final AbstractAlgorithmStrategy strategy;
+	private final int maximumSize;
+	private final Map<SolutionKey, boolean[]> solutions;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	public CachingAlgorithmStrategy(AbstractAlgorithmStrategy strategy, int maximumSize) {
+		if (maximumSize < 1) {
+			throw new IllegalArgumentException("The maximum size of the cache must be 1 or more");
+		}
+		this.strategy = strategy;
+		this.maximumSize = maximumSize;
+		// A linked hash map in access order evicts the least recently used
+		// package first
+		this.solutions = new LinkedHashMap<SolutionKey, boolean[]>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<SolutionKey, boolean[]> eldest) {
+				if (size() > CachingAlgorithmStrategy.this.maximumSize) {
+					evictionCount.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public AbstractAlgorithmStrategy getStrategy() {
+		return strategy;
+	}
+
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	// The number of packages which were found in the cache
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	// The number of packages which had to be solved by the strategy
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	// The number of packages removed to keep the cache at its maximum size
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	public int getSize() {
+		synchronized (solutions) {
+			return solutions.size();
+		}
+	}
+
+	public void clear() {
+		synchronized (solutions) {
+			solutions.clear();
+		}
+	}
+
+	@Override
+	protected void selectItems(double packageCapacity, double[] itemWeights, double[] itemCosts, int firstItem,
+			boolean[] selectedItems) {
+		selectItemsWithGuarantee(packageCapacity, itemWeights, itemCosts, firstItem, selectedItems);
+	}
+
+	@Override
+	protected double selectItemsWithGuarantee(double packageCapacity, double[] itemWeights, double[] itemCosts,
+			int firstItem, boolean[] selectedItems) {
+		int[] itemOrder = sortItems(itemWeights, itemCosts, firstItem, selectedItems.length);
+		SolutionKey key = new SolutionKey(packageCapacity, itemWeights, itemCosts, firstItem, itemOrder);
+
+		boolean[] solution;
+		synchronized (solutions) {
+			solution = solutions.get(key);
+		}
+		if (solution != null) {
+			hitCount.incrementAndGet();
+			METRICS.increment(Counter.CACHE_HITS);
+		} else {
+			missCount.incrementAndGet();
+			METRICS.increment(Counter.CACHE_MISSES);
+			double guaranteedRatio = strategy.selectItemsWithGuarantee(packageCapacity, itemWeights, itemCosts,
+					firstItem, selectedItems);
+			if (guaranteedRatio < 1) {
+				return guaranteedRatio;
+			}
+			// Keep the selection in the sorted order of the items
+			solution = new boolean[selectedItems.length];
+			for (int i = 0; i < itemOrder.length; i++) {
+				solution[i] = selectedItems[itemOrder[i]];
+			}
+			synchronized (solutions) {
+				solutions.put(key, solution);
+			}
+		}
+
+		// Map the selection back to the order of the items in the package
+		for (int i = 0; i < itemOrder.length; i++) {
+			selectedItems[itemOrder[i]] = solution[i];
+		}
+		return 1;
+	}
+
+	/*
+	 * Sorts the package's items by weight and then cost in O(n log n). Returns
+	 * the position of the item in the package for each sorted item. The sort
+	 * is stable so items with the same weight and cost keep their order.
+	 */
+	private static int[] sortItems(double[] itemWeights, double[] itemCosts, int firstItem, int itemCount) {
+		Integer[] order = new Integer[itemCount];
+		for (int i = 0; i < itemCount; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> compareItems(itemWeights, itemCosts, firstItem + a, firstItem + b));
+		int[] itemOrder = new int[itemCount];
+		for (int i = 0; i < itemCount; i++) {
+			itemOrder[i] = order[i];
+		}
+		return itemOrder;
+	}
+
+	private static int compareItems(double[] itemWeights, double[] itemCosts, int item, int otherItem) {
+		int weightOrder = Double.compare(itemWeights[item], itemWeights[otherItem]);
+		return weightOrder != 0 ? weightOrder : Double.compare(itemCosts[item], itemCosts[otherItem]);
+	}
+
+	/*
+	 * The canonical form of a package: the capacity followed by the weight and
+	 * cost of each item in sorted order. The exact bits of the doubles are
+	 * compared, so only packages the strategy can not tell apart are equal.
+	 */
+	private static final class SolutionKey {
+
+		private final long[] values;
+		private final int hash;
+
+		SolutionKey(double packageCapacity, double[] itemWeights, double[] itemCosts, int firstItem,
+				int[] itemOrder) {
+			values = new long[1 + 2 * itemOrder.length];
+			values[0] = Double.doubleToLongBits(packageCapacity);
+			for (int i = 0; i < itemOrder.length; i++) {
+				values[1 + 2 * i] = Double.doubleToLongBits(itemWeights[firstItem + itemOrder[i]]);
+				values[2 + 2 * i] = Double.doubleToLongBits(itemCosts[firstItem + itemOrder[i]]);
+			}
+			hash = Arrays.hashCode(values);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof SolutionKey && hash == ((SolutionKey) other).hash
+					&& Arrays.equals(values, ((SolutionKey) other).values);
+		}
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.mobiquityinc.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * This class represents a 0-1 knapsack dynamic programming strategy to solve
+ * the packing problem without a linear programming library.
+ *
+ * Weights and costs are converted to fixed-point numbers in hundredths, which
+ * is the precision of the data in the file. A package can carry at most 100,
+ * so the table never has more than 100 x 100 capacity cells. The best cost
+ * for every exact total weight is kept in a single rolling long array which is
+ * updated item by item from the heaviest weight down. A second table records
+ * which item improved a weight so the selection can be traced back at the
+ * end. Because the table is indexed by the exact total weight, the lightest
+ * selection with the highest cost is found in the same pass.
+ */
+public class DynamicProgrammingAlgorithmStrategy extends AbstractAlgorithmStrategy {
+
+	// Marks a total weight that can not be reached by any selection of items
+	private static final long UNREACHABLE = -1;
+
+	@Override
+	protected void selectItems(double packageCapacity, double[] itemWeights, double[] itemCosts, int firstItem,
+			boolean[] selectedItems) {
+
+		int itemCount = selectedItems.length;
+		int[] fixedWeights = new int[itemCount];
+		long[] fixedCosts = new long[itemCount];
+		int capacity = (int) toFixedPointCapacity(packageCapacity);
+		// The table only needs to be as wide as the allowed items can fill
+		long totalAllowedWeight = 0;
+		for (int i = 0; i < itemCount; i++) {
+			double itemWeight = itemWeights[firstItem + i];
+			double itemCost = itemCosts[firstItem + i];
+			if (isItemAllowed(packageCapacity, itemWeight, itemCost)) {
+				fixedWeights[i] = (int) toFixedPointWeight(itemWeight);
+				fixedCosts[i] = toFixedPointCost(itemCost);
+				totalAllowedWeight += fixedWeights[i];
+			} else {
+				// Items that may not be packed are never added to the table
+				fixedWeights[i] = -1;
+			}
+		}
+		capacity = (int) Math.min(capacity, totalAllowedWeight);
+		if (capacity < 0) {
+			return;
+		}
+
+		/*
+		 * bestCost[w] holds the highest cost of a selection that weighs
+		 * exactly w. Only the empty selection is reachable before any item was
+		 * considered.
+		 */
+		long[] bestCost = new long[capacity + 1];
+		Arrays.fill(bestCost, UNREACHABLE);
+		bestCost[0] = 0;
+		// itemTaken[i][w] is true if item i improved the cost at weight w
+		boolean[][] itemTaken = new boolean[itemCount][];
+
+		for (int i = 0; i < itemCount; i++) {
+			int weight = fixedWeights[i];
+			if (weight < 0 || weight > capacity) {
+				continue;
+			}
+			long cost = fixedCosts[i];
+			boolean[] taken = new boolean[capacity + 1];
+			itemTaken[i] = taken;
+			// Move from the heaviest weight down so each item is used once
+			for (int w = capacity; w >= weight; w--) {
+				long previous = bestCost[w - weight];
+				if (previous != UNREACHABLE && previous + cost > bestCost[w]) {
+					bestCost[w] = previous + cost;
+					taken[w] = true;
+				}
+			}
+		}
+
+		// The first weight with the highest cost is the lightest selection
+		int bestWeight = 0;
+		for (int w = 1; w <= capacity; w++) {
+			if (bestCost[w] > bestCost[bestWeight]) {
+				bestWeight = w;
+			}
+		}
+
+		// Trace the selection back from the last item to the first
+		for (int i = itemCount - 1; i >= 0; i--) {
+			if (itemTaken[i] != null && itemTaken[i][bestWeight]) {
+				selectedItems[i] = true;
+				bestWeight -= fixedWeights[i];
+			}
+		}
+	}
+
+}
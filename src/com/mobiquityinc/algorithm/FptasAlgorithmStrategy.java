@@ -0,0 +1,197 @@
+package com.mobiquityinc.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * This class represents a fully polynomial time approximation scheme (FPTAS)
+ * for packages with very many items, for which the exact algorithms take too
+ * long. The selection costs at least (1 - epsilon) times the highest cost the
+ * package can carry, and the time taken grows with the number of items and
+ * 1 / epsilon instead of with the costs, so a smaller epsilon trades speed for
+ * accuracy.
+ *
+ * The greedy selection (items by cost per unit of weight while they fit, or
+ * the most expensive item if that costs more) costs at least half of the
+ * optimal cost, and the fractional knapsack bound costs at least as much as
+ * the optimal cost. The costs are divided by a scale of epsilon times the
+ * greedy cost over the most items that fit in the package and rounded down,
+ * which loses less than one scale for each packed item. The selection with the
+ * lowest weight for every scaled cost up to the scaled fractional bound is
+ * then found by dynamic programming, so the table has at most 2 / epsilon
+ * times the most items that fit columns. If the scale is one hundredth or less
+ * the costs are not rounded and the selection is optimal.
+ *
+ * The guaranteed ratio reported for each package is the selection's cost
+ * divided by the highest cost the optimal selection can have: the fractional
+ * bound or the selection's cost plus the rounding loss, whichever is lower.
+ * It is never less than 1 - epsilon. Weights and costs are compared in
+ * hundredths, weights rounded up and the capacity rounded down, so a package
+ * is never overweight; a package with weights or costs which are not whole
+ * hundredths gets no guarantee.
+ */
+public class FptasAlgorithmStrategy extends AbstractAlgorithmStrategy {
+
+	public static final double DEFAULT_EPSILON = 0.1;
+
+	// Tolerance used when the fractional bound is rounded to a whole cost
+	private static final double BOUND_TOLERANCE = 1e-9;
+
+	private final double epsilon;
+
+	public FptasAlgorithmStrategy() {
+		this(DEFAULT_EPSILON);
+	}
+
+	public FptasAlgorithmStrategy(double epsilon) {
+		if (!(epsilon > 0 && epsilon < 1)) {
+			throw new IllegalArgumentException("The epsilon must be more than 0 and less than 1");
+		}
+		this.epsilon = epsilon;
+	}
+
+	public double getEpsilon() {
+		return epsilon;
+	}
+
+	@Override
+	protected void selectItems(double packageCapacity, double[] itemWeights, double[] itemCosts, int firstItem,
+			boolean[] selectedItems) {
+		selectItemsWithGuarantee(packageCapacity, itemWeights, itemCosts, firstItem, selectedItems);
+	}
+
+	@Override
+	protected double selectItemsWithGuarantee(double packageCapacity, double[] itemWeights, double[] itemCosts,
+			int firstItem, boolean[] selectedItems) {
+		long capacity = toFixedPointCapacity(packageCapacity);
+		int[] itemPositions = new int[selectedItems.length];
+		long[] weights = new long[selectedItems.length];
+		long[] costs = new long[selectedItems.length];
+		boolean fixedPoint = true;
+		/*
+		 * Only items which may be packed and add to the cost are selected. An
+		 * item that costs nothing only makes the package heavier.
+		 */
+		int itemCount = 0;
+		for (int i = 0; i < selectedItems.length; i++) {
+			double itemWeight = itemWeights[firstItem + i];
+			double itemCost = itemCosts[firstItem + i];
+			fixedPoint &= isFixedPoint(itemWeight) && isFixedPoint(itemCost);
+			if (isItemAllowed(packageCapacity, itemWeight, itemCost) && toFixedPointCost(itemCost) > 0) {
+				itemPositions[itemCount] = i;
+				weights[itemCount] = toFixedPointWeight(itemWeight);
+				costs[itemCount] = toFixedPointCost(itemCost);
+				itemCount++;
+			}
+		}
+		if (itemCount == 0) {
+			return fixedPoint ? 1 : 0;
+		}
+
+		long[] bounds = getGreedyCostAndBound(capacity, weights, costs, itemCount);
+		long greedyCost = bounds[0];
+		long upperBound = bounds[1];
+		// Less than one scale is lost for each packed item
+		double scale = Math.max(1, epsilon * greedyCost / getMostItemsThatFit(capacity, weights, itemCount));
+		int[] scaledCosts = new int[itemCount];
+		for (int i = 0; i < itemCount; i++) {
+			scaledCosts[i] = (int) (costs[i] / scale);
+		}
+		int maximumScaledCost = (int) (upperBound / scale);
+
+		/*
+		 * The lowest weight reached for every scaled cost, updated item by
+		 * item from the highest scaled cost down. Costs which can not be
+		 * reached within the capacity keep a weight above the capacity. The
+		 * items which improved a scaled cost are recorded so the selection
+		 * can be traced back.
+		 */
+		long[] lowestWeights = new long[maximumScaledCost + 1];
+		Arrays.fill(lowestWeights, 1, lowestWeights.length, capacity + 1);
+		int words = (maximumScaledCost + 64) / 64;
+		long[] improvedBy = new long[itemCount * words];
+		for (int i = 0; i < itemCount; i++) {
+			int scaledCost = scaledCosts[i];
+			if (scaledCost == 0) {
+				// Packing the item can not raise the scaled cost
+				continue;
+			}
+			for (int c = maximumScaledCost; c >= scaledCost; c--) {
+				long weight = lowestWeights[c - scaledCost] + weights[i];
+				if (weight < lowestWeights[c]) {
+					lowestWeights[c] = weight;
+					improvedBy[i * words + (c >>> 6)] |= 1L << c;
+				}
+			}
+		}
+
+		int bestScaledCost = maximumScaledCost;
+		while (lowestWeights[bestScaledCost] > capacity) {
+			bestScaledCost--;
+		}
+		long cost = 0;
+		for (int i = itemCount - 1, c = bestScaledCost; i >= 0 && c > 0; i--) {
+			if ((improvedBy[i * words + (c >>> 6)] & (1L << c)) != 0) {
+				selectedItems[itemPositions[i]] = true;
+				cost += costs[i];
+				c -= scaledCosts[i];
+			}
+		}
+
+		if (!fixedPoint) {
+			return 0;
+		}
+		if (scale == 1) {
+			return 1;
+		}
+		double highestCost = Math.min(upperBound, cost + epsilon * greedyCost);
+		return Math.min(1, cost / highestCost);
+	}
+
+	/*
+	 * Returns the cost of the greedy selection and the fractional knapsack
+	 * bound, with the items in order of cost per unit of weight.
+	 */
+	private static long[] getGreedyCostAndBound(long capacity, long[] weights, long[] costs, int itemCount) {
+		Integer[] order = new Integer[itemCount];
+		for (int i = 0; i < itemCount; i++) {
+			order[i] = i;
+		}
+		// Compare cost / weight ratios without dividing by a zero weight
+		Arrays.sort(order,
+				(item, other) -> Long.compare(costs[other] * weights[item], costs[item] * weights[other]));
+		long weight = 0;
+		long greedyCost = 0;
+		long mostExpensiveItem = 0;
+		double bound = -1;
+		for (int item : order) {
+			mostExpensiveItem = Math.max(mostExpensiveItem, costs[item]);
+			if (weight + weights[item] <= capacity) {
+				weight += weights[item];
+				greedyCost += costs[item];
+			} else if (bound < 0) {
+				// The bound takes a fraction of the first item that does not fit
+				bound = greedyCost + (double) costs[item] * (capacity - weight) / weights[item];
+			}
+		}
+		long upperBound = bound < 0 ? greedyCost : (long) Math.floor(bound + BOUND_TOLERANCE);
+		return new long[] { Math.max(greedyCost, mostExpensiveItem), upperBound };
+	}
+
+	// The number of the lightest items which fit in the package together
+	private static int getMostItemsThatFit(long capacity, long[] weights, int itemCount) {
+		long[] sortedWeights = Arrays.copyOf(weights, itemCount);
+		Arrays.sort(sortedWeights);
+		int count = 0;
+		long weight = 0;
+		while (count < itemCount && weight + sortedWeights[count] <= capacity) {
+			weight += sortedWeights[count];
+			count++;
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.mobiquityinc.algorithm;
+
+import java.util.Arrays;
+
+import com.mobiquityinc.util.LongHashIndex;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Chooses the packages to send one package at a time, using the same rules as
+ * AbstractAlgorithmStrategy.choosePackagesToSend, for files which are solved
+ * line by line and are too large to keep the solved packages in memory.
+ *
+ * Whether a package is sent can depend on the last package of the file: if a
+ * later package has the same cost and weighs less, only the later package is
+ * sent. The packages are therefore chosen in two passes. In the first pass
+ * each solved package is added with its cost and weight, and only the number
+ * of packages and the number and weight of the lightest package for each cost
+ * are kept, in primitive arrays numbered by a LongHashIndex. Once all the
+ * packages were added, the second pass asks for each package in turn whether
+ * it is sent, giving its cost and whether items were selected again. The
+ * memory used grows with the number of distinct costs and not with the number
+ * of packages; the caller keeps the results of the packages until they are
+ * handed out (see PackageResultIterator).
+ */
+public class IncrementalPackageChooser {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	// Numbers each distinct cost other than 0
+	private final LongHashIndex costIndex = new LongHashIndex(INITIAL_CAPACITY);
+	private int[] packagesWithCost = new int[INITIAL_CAPACITY];
+	private long[] lightestPackageWithCost = new long[INITIAL_CAPACITY];
+	private double[] lightestWeightWithCost = new double[INITIAL_CAPACITY];
+	private long packageCount = 0;
+	private boolean finished = false;
+
+	/*
+	 * Adds the next solved package from the file and returns its number,
+	 * starting at 0.
+	 */
+	public long add(double costOfItems, double weightOfItems) {
+		if (finished) {
+			throw new IllegalStateException("No packages can be added once all the packages were added");
+		}
+		long packageNumber = packageCount++;
+		// A package without any cost is never compared to other packages
+		if (costOfItems == 0) {
+			return packageNumber;
+		}
+		int cost = costIndex.getOrAdd(Double.doubleToLongBits(costOfItems));
+		if (cost == packagesWithCost.length) {
+			int capacity = cost * 2;
+			packagesWithCost = Arrays.copyOf(packagesWithCost, capacity);
+			lightestPackageWithCost = Arrays.copyOf(lightestPackageWithCost, capacity);
+			lightestWeightWithCost = Arrays.copyOf(lightestWeightWithCost, capacity);
+		}
+		packagesWithCost[cost]++;
+		// Keep the first package if more than one package is the lightest
+		if (packagesWithCost[cost] == 1 || Double.compare(weightOfItems, lightestWeightWithCost[cost]) < 0) {
+			lightestPackageWithCost[cost] = packageNumber;
+			lightestWeightWithCost[cost] = weightOfItems;
+		}
+		return packageNumber;
+	}
+
+	// Marks the end of the file, after which packages can be chosen
+	public void finish() {
+		finished = true;
+	}
+
+	/*
+	 * Returns true if the package with the number is sent: the lightest
+	 * package for its cost if another package had the same cost, otherwise
+	 * only if items were selected.
+	 */
+	public boolean isSendPackage(long packageNumber, double costOfItems, boolean hasSelectedItems) {
+		if (!finished) {
+			throw new IllegalStateException("Packages can only be chosen once all the packages were added");
+		}
+		if (packageNumber < 0 || packageNumber >= packageCount) {
+			throw new IndexOutOfBoundsException("No package " + packageNumber + " was added");
+		}
+		int cost = costOfItems == 0 ? -1 : costIndex.get(Double.doubleToLongBits(costOfItems));
+		if (cost != -1 && packagesWithCost[cost] > 1) {
+			return lightestPackageWithCost[cost] == packageNumber;
+		}
+		return hasSelectedItems;
+	}
+
+	// The number of packages added
+	public long getPackageCount() {
+		return packageCount;
+	}
+
+	// The number of distinct costs other than 0 of the packages added
+	public int getCostCount() {
+		return costIndex.size();
+	}
+
+}
@@ -0,0 +1,279 @@
+package com.mobiquityinc.algorithm;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Reduces the items of a package before a strategy selects the items to pack,
+ * so that every strategy is given a smaller problem.
+ *
+ * Items are removed when they can never be part of the best selection:
+ *
+ * - Items which are not allowed, because they weigh or cost more than 100 or
+ * weigh more than the package capacity.
+ *
+ * - Items which add nothing to the cost in hundredths. They only make the
+ * package heavier.
+ *
+ * - Dominated items. An item is dominated by another item which weighs the
+ * same or less and costs the same or more (an exact duplicate is dominated by
+ * the copy before it). Swapping a dominated item for an item which dominates
+ * it never makes a selection worse, so there is always a best selection in
+ * which an item is only packed together with every item which dominates it.
+ * If those items do not fit in the package together, the item is removed.
+ * The items are sorted by weight, and then by cost from the highest, so the
+ * items which dominate an item are the items before it which cost the same or
+ * more. Their weights are summed in a tree indexed by cost, so a package of n
+ * items is reduced in O(n log n) time.
+ *
+ * If all the remaining items fit in the package together, the package is
+ * solved by packing all of them, which also covers packages without items or
+ * with a single item. The strategy is only asked to select items if the
+ * package is not solved.
+ *
+ * The presolver can be used by more than one thread at the same time. It keeps
+ * totals of the packages and items it reduced and can report the reduction of
+ * every package to a listener.
+ */
+public class ItemPresolver {
+
+	private final AtomicLong packageCount = new AtomicLong();
+	private final AtomicLong solvedPackageCount = new AtomicLong();
+	private final AtomicLong itemCount = new AtomicLong();
+	private final AtomicLong removedItemCount = new AtomicLong();
+
+	private volatile Consumer<Reduction> reductionListener;
+
+	/*
+	 * Reduces the items of a package. The package's items are the itemCount
+	 * items from position firstItem in the item weights and costs arrays.
+	 */
+	public Reduction presolve(double packageCapacity, double[] itemWeights, double[] itemCosts, int firstItem,
+			int itemCount) {
+		long capacity = AbstractAlgorithmStrategy.toFixedPointCapacity(packageCapacity);
+
+		// Keep the items which may be packed and add to the cost
+		int[] candidates = new int[itemCount];
+		int candidateCount = 0;
+		for (int i = 0; i < itemCount; i++) {
+			double itemWeight = itemWeights[firstItem + i];
+			double itemCost = itemCosts[firstItem + i];
+			if (AbstractAlgorithmStrategy.isItemAllowed(packageCapacity, itemWeight, itemCost)
+					&& AbstractAlgorithmStrategy.toFixedPointCost(itemCost) > 0) {
+				candidates[candidateCount++] = i;
+			}
+		}
+
+		// Remove the items which do not fit together with the items which
+		// dominate them
+		boolean[] removed = findDominatedItems(packageCapacity, capacity, itemWeights, itemCosts, firstItem,
+				candidates, candidateCount);
+		int[] itemPositions = new int[candidateCount];
+		int remainingCount = 0;
+		double totalWeight = 0;
+		long totalFixedPointWeight = 0;
+		for (int j = 0; j < candidateCount; j++) {
+			if (!removed[j]) {
+				int item = firstItem + candidates[j];
+				itemPositions[remainingCount++] = candidates[j];
+				totalWeight += itemWeights[item];
+				totalFixedPointWeight += AbstractAlgorithmStrategy.toFixedPointWeight(itemWeights[item]);
+			}
+		}
+
+		boolean solved = totalWeight <= packageCapacity && totalFixedPointWeight <= capacity;
+		Reduction reduction = new Reduction(itemCount, itemPositions, remainingCount, solved, itemWeights,
+				itemCosts, firstItem);
+		this.packageCount.incrementAndGet();
+		this.itemCount.addAndGet(itemCount);
+		this.removedItemCount.addAndGet(itemCount - remainingCount);
+		if (solved) {
+			solvedPackageCount.incrementAndGet();
+		}
+		Consumer<Reduction> listener = reductionListener;
+		if (listener != null) {
+			listener.accept(reduction);
+		}
+		return reduction;
+	}
+
+	/*
+	 * Marks the candidates which do not fit in the package together with the
+	 * items which dominate them. An item dominates another item if it weighs
+	 * the same or less and costs the same or more, and of two items with the
+	 * same weight and cost the first one dominates the other. In the order of
+	 * weight, then of cost from the highest, then of position, those are the
+	 * items before an item which cost the same or more.
+	 */
+	private static boolean[] findDominatedItems(double packageCapacity, long capacity, double[] itemWeights,
+			double[] itemCosts, int firstItem, int[] candidates, int candidateCount) {
+		Integer[] order = new Integer[candidateCount];
+		double[] sortedCosts = new double[candidateCount];
+		for (int j = 0; j < candidateCount; j++) {
+			order[j] = j;
+			sortedCosts[j] = itemCosts[firstItem + candidates[j]];
+		}
+		// The sort is stable, so items of the same weight and cost keep their
+		// order
+		Arrays.sort(order, (a, b) -> {
+			int byWeight = Double.compare(itemWeights[firstItem + candidates[a]],
+					itemWeights[firstItem + candidates[b]]);
+			return byWeight != 0 ? byWeight
+					: Double.compare(itemCosts[firstItem + candidates[b]], itemCosts[firstItem + candidates[a]]);
+		});
+		Arrays.sort(sortedCosts);
+
+		// The weights of the items seen so far, indexed by the number of
+		// candidates which cost more than the item
+		double[] weightTree = new double[candidateCount + 1];
+		long[] fixedPointWeightTree = new long[candidateCount + 1];
+		boolean[] removed = new boolean[candidateCount];
+		for (int j : order) {
+			int item = firstItem + candidates[j];
+			int costsAtLeast = candidateCount - firstIndexOf(sortedCosts, itemCosts[item], false);
+			double weight = itemWeights[item];
+			long fixedPointWeight = AbstractAlgorithmStrategy.toFixedPointWeight(weight);
+			double dominatingWeight = 0;
+			long dominatingFixedPointWeight = 0;
+			for (int i = costsAtLeast; i > 0; i -= i & -i) {
+				dominatingWeight += weightTree[i];
+				dominatingFixedPointWeight += fixedPointWeightTree[i];
+			}
+			// The items must not fit by either the exact or the fixed-point
+			// weights, so the item is removed for every strategy
+			removed[j] = weight + dominatingWeight > packageCapacity
+					&& fixedPointWeight + dominatingFixedPointWeight > capacity;
+			int costsMore = candidateCount - firstIndexOf(sortedCosts, itemCosts[item], true);
+			for (int i = costsMore + 1; i <= candidateCount; i += i & -i) {
+				weightTree[i] += weight;
+				fixedPointWeightTree[i] += fixedPointWeight;
+			}
+		}
+		return removed;
+	}
+
+	/*
+	 * The index of the first of the sorted values which is greater than the
+	 * value, or which is not less than the value if greater is false.
+	 */
+	private static int firstIndexOf(double[] sortedValues, double value, boolean greater) {
+		int low = 0;
+		int high = sortedValues.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (greater ? sortedValues[middle] <= value : sortedValues[middle] < value) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	// Listener which is given the reduction of every package, or null
+	public void setReductionListener(Consumer<Reduction> reductionListener) {
+		this.reductionListener = reductionListener;
+	}
+
+	// The number of packages reduced
+	public long getPackageCount() {
+		return packageCount.get();
+	}
+
+	// The number of packages solved without a strategy
+	public long getSolvedPackageCount() {
+		return solvedPackageCount.get();
+	}
+
+	// The number of items in the packages before they were reduced
+	public long getItemCount() {
+		return itemCount.get();
+	}
+
+	// The number of items removed from the packages
+	public long getRemovedItemCount() {
+		return removedItemCount.get();
+	}
+
+	/*
+	 * The items left in a package once it was reduced. The remaining items are
+	 * in the same order as in the package.
+	 */
+	public static final class Reduction {
+
+		private final int originalItemCount;
+		private final int[] itemPositions;
+		private final int remainingItemCount;
+		private final boolean solved;
+		private final double[] itemWeights;
+		private final double[] itemCosts;
+		private final int firstItem;
+
+		Reduction(int originalItemCount, int[] itemPositions, int remainingItemCount, boolean solved,
+				double[] itemWeights, double[] itemCosts, int firstItem) {
+			this.originalItemCount = originalItemCount;
+			this.itemPositions = itemPositions;
+			this.remainingItemCount = remainingItemCount;
+			this.solved = solved;
+			this.itemWeights = itemWeights;
+			this.itemCosts = itemCosts;
+			this.firstItem = firstItem;
+		}
+
+		public int getOriginalItemCount() {
+			return originalItemCount;
+		}
+
+		public int getRemainingItemCount() {
+			return remainingItemCount;
+		}
+
+		public int getRemovedItemCount() {
+			return originalItemCount - remainingItemCount;
+		}
+
+		// True if the best selection is to pack all the remaining items
+		public boolean isSolved() {
+			return solved;
+		}
+
+		// The position in the package of a remaining item
+		public int getItemPosition(int remainingItem) {
+			return itemPositions[remainingItem];
+		}
+
+		// The weights of the remaining items
+		public double[] getItemWeights() {
+			double[] weights = new double[remainingItemCount];
+			for (int i = 0; i < remainingItemCount; i++) {
+				weights[i] = itemWeights[firstItem + itemPositions[i]];
+			}
+			return weights;
+		}
+
+		// The costs of the remaining items
+		public double[] getItemCosts() {
+			double[] costs = new double[remainingItemCount];
+			for (int i = 0; i < remainingItemCount; i++) {
+				costs[i] = itemCosts[firstItem + itemPositions[i]];
+			}
+			return costs;
+		}
+
+		/*
+		 * Marks the package's items which are selected, given the selection of
+		 * the remaining items. The removed items are never selected.
+		 */
+		public void mapSelection(boolean[] remainingSelectedItems, boolean[] selectedItems) {
+			for (int i = 0; i < remainingItemCount; i++) {
+				selectedItems[itemPositions[i]] = remainingSelectedItems[i];
+			}
+		}
+	}
+
+}
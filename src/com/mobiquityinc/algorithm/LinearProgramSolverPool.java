@@ -0,0 +1,80 @@
+package com.mobiquityinc.algorithm;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import scpsolver.lpsolver.LinearProgramSolver;
+import scpsolver.lpsolver.SolverFactory;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Pool of linear program solvers. Creating a solver through the SolverFactory
+ * looks up the available solvers and loads their native libraries, which is
+ * expensive to repeat for every package. A solver can solve one linear program
+ * after another, so solvers are handed out from the pool and returned to it
+ * once a package has been solved.
+ *
+ * A solver is only used by one thread at a time, but the same solver can be
+ * used by different threads one after the other. The pool keeps count of how
+ * many solvers were created and how many times an existing solver was reused.
+ */
+public class LinearProgramSolverPool {
+
+	// The pool shared by the strategies that do not provide their own
+	private static final LinearProgramSolverPool DEFAULT_POOL = new LinearProgramSolverPool(SolverFactory::newDefault);
+
+	private final Supplier<LinearProgramSolver> solverFactory;
+	private final Queue<LinearProgramSolver> idleSolvers = new ConcurrentLinkedQueue<>();
+	private final AtomicLong createdCount = new AtomicLong();
+	private final AtomicLong reusedCount = new AtomicLong();
+
+	public LinearProgramSolverPool(Supplier<LinearProgramSolver> solverFactory) {
+		this.solverFactory = solverFactory;
+	}
+
+	public static LinearProgramSolverPool getDefaultPool() {
+		return DEFAULT_POOL;
+	}
+
+	/*
+	 * Returns an idle solver from the pool or creates a new solver if all the
+	 * solvers are in use
+	 */
+	public LinearProgramSolver acquire() {
+		LinearProgramSolver solver = idleSolvers.poll();
+		if (solver != null) {
+			reusedCount.incrementAndGet();
+			return solver;
+		}
+		createdCount.incrementAndGet();
+		return solverFactory.get();
+	}
+
+	// Returns a solver to the pool so that it can be reused
+	public void release(LinearProgramSolver solver) {
+		if (solver != null) {
+			idleSolvers.offer(solver);
+		}
+	}
+
+	// The number of solvers created by the pool
+	public long getCreatedCount() {
+		return createdCount.get();
+	}
+
+	// The number of times an existing solver was handed out again
+	public long getReusedCount() {
+		return reusedCount.get();
+	}
+
+	// The number of solvers waiting in the pool to be used
+	public int getIdleCount() {
+		return idleSolvers.size();
+	}
+
+}
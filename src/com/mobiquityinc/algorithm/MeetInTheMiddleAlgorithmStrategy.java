@@ -0,0 +1,188 @@
+package com.mobiquityinc.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * This class represents a meet-in-the-middle strategy to solve the packing
+ * problem exactly for packages with more items than can be enumerated one
+ * selection at a time.
+ *
+ * The items which may be packed are split into two halves. Every selection of
+ * the second half that fits in the package is enumerated and sorted by weight.
+ * Selections which are heavier than another selection without costing more
+ * can never be part of the best answer, so they are removed. What remains is a
+ * frontier where the cost rises with the weight. Every selection of the first
+ * half is then enumerated, and the best selection of the second half that
+ * fits in the remaining capacity is found with a binary search on the
+ * frontier. For 40 items this checks about 2 x 2^20 selections instead of
+ * 2^40.
+ *
+ * A selection of the second half is sorted as a single long key which holds
+ * its weight, cost and items, so no objects are created for the selections.
+ * Packages with more items than fit in the key are solved with the branch and
+ * bound strategy.
+ */
+public class MeetInTheMiddleAlgorithmStrategy extends AbstractAlgorithmStrategy {
+
+	// The maximum number of items in one half of the package
+	protected static final int MAXIMUM_HALF_ITEMS = 22;
+	// Bits used in the sort key for the items of the second half
+	private static final int ITEMS_BITS = MAXIMUM_HALF_ITEMS;
+	// Bits used in the sort key for the cost of the second half (22 items
+	// costing at most 100.00 each)
+	private static final int COST_BITS = 18;
+	private static final long COST_MASK = (1L << COST_BITS) - 1;
+	private static final long ITEMS_MASK = (1L << ITEMS_BITS) - 1;
+
+	private final BranchAndBoundAlgorithmStrategy largePackageStrategy = new BranchAndBoundAlgorithmStrategy();
+
+	@Override
+	protected void selectItems(double packageCapacity, double[] itemWeights, double[] itemCosts, int firstItem,
+			boolean[] selectedItems) {
+
+		// Only items which may be packed and add to the cost are searched
+		int[] itemOrder = new int[selectedItems.length];
+		long[] weights = new long[selectedItems.length];
+		long[] costs = new long[selectedItems.length];
+		int itemCount = 0;
+		for (int i = 0; i < selectedItems.length; i++) {
+			double itemWeight = itemWeights[firstItem + i];
+			double itemCost = itemCosts[firstItem + i];
+			if (isItemAllowed(packageCapacity, itemWeight, itemCost) && toFixedPointCost(itemCost) > 0) {
+				itemOrder[itemCount] = i;
+				weights[itemCount] = toFixedPointWeight(itemWeight);
+				costs[itemCount] = toFixedPointCost(itemCost);
+				itemCount++;
+			}
+		}
+		if (itemCount > 2 * MAXIMUM_HALF_ITEMS) {
+			largePackageStrategy.selectItems(packageCapacity, itemWeights, itemCosts, firstItem, selectedItems);
+			return;
+		}
+
+		long capacity = toFixedPointCapacity(packageCapacity);
+		int firstHalfCount = itemCount / 2;
+		int secondHalfCount = itemCount - firstHalfCount;
+
+		/*
+		 * Enumerate the selections of the second half in Gray code order and
+		 * keep those that fit as sort keys of weight, inverted cost and items.
+		 * Sorting the keys orders the selections by weight and then from the
+		 * highest to the lowest cost.
+		 */
+		long[] keys = new long[1 << secondHalfCount];
+		int keyCount = 0;
+		int selection = 0;
+		long weight = 0;
+		long cost = 0;
+		keys[keyCount++] = toKey(0, 0, 0);
+		for (int step = 1; step < 1 << secondHalfCount; step++) {
+			int item = Integer.numberOfTrailingZeros(step);
+			selection ^= 1 << item;
+			if ((selection & (1 << item)) != 0) {
+				weight += weights[firstHalfCount + item];
+				cost += costs[firstHalfCount + item];
+			} else {
+				weight -= weights[firstHalfCount + item];
+				cost -= costs[firstHalfCount + item];
+			}
+			if (weight <= capacity) {
+				keys[keyCount++] = toKey(weight, cost, selection);
+			}
+		}
+		Arrays.sort(keys, 0, keyCount);
+
+		/*
+		 * Only keep a selection if it costs more than every lighter selection.
+		 * The frontier then holds the lightest selection for each cost and the
+		 * cost rises with the weight.
+		 */
+		long[] frontierWeights = new long[keyCount];
+		long[] frontierCosts = new long[keyCount];
+		int[] frontierItems = new int[keyCount];
+		int frontierCount = 0;
+		for (int i = 0; i < keyCount; i++) {
+			long keyCost = COST_MASK - ((keys[i] >>> ITEMS_BITS) & COST_MASK);
+			if (frontierCount == 0 || keyCost > frontierCosts[frontierCount - 1]) {
+				frontierWeights[frontierCount] = keys[i] >>> (ITEMS_BITS + COST_BITS);
+				frontierCosts[frontierCount] = keyCost;
+				frontierItems[frontierCount] = (int) (keys[i] & ITEMS_MASK);
+				frontierCount++;
+			}
+		}
+
+		/*
+		 * Enumerate the selections of the first half and combine each one with
+		 * the best selection of the second half that fits in the capacity
+		 * left over.
+		 */
+		int match = findHeaviestFitting(frontierWeights, frontierCount, capacity);
+		int bestFirstHalf = 0;
+		int bestSecondHalf = frontierItems[match];
+		long bestCost = frontierCosts[match];
+		long bestWeight = frontierWeights[match];
+		selection = 0;
+		weight = 0;
+		cost = 0;
+		for (int step = 1; step < 1 << firstHalfCount; step++) {
+			int item = Integer.numberOfTrailingZeros(step);
+			selection ^= 1 << item;
+			if ((selection & (1 << item)) != 0) {
+				weight += weights[item];
+				cost += costs[item];
+			} else {
+				weight -= weights[item];
+				cost -= costs[item];
+			}
+			if (weight > capacity) {
+				continue;
+			}
+			match = findHeaviestFitting(frontierWeights, frontierCount, capacity - weight);
+			long totalCost = cost + frontierCosts[match];
+			long totalWeight = weight + frontierWeights[match];
+			if (totalCost > bestCost || (totalCost == bestCost && totalWeight < bestWeight)) {
+				bestFirstHalf = selection;
+				bestSecondHalf = frontierItems[match];
+				bestCost = totalCost;
+				bestWeight = totalWeight;
+			}
+		}
+
+		// Mark the items in the best selection in their original order
+		for (int i = 0; i < firstHalfCount; i++) {
+			selectedItems[itemOrder[i]] = (bestFirstHalf & (1 << i)) != 0;
+		}
+		for (int i = 0; i < secondHalfCount; i++) {
+			selectedItems[itemOrder[firstHalfCount + i]] = (bestSecondHalf & (1 << i)) != 0;
+		}
+	}
+
+	// Packs the weight, inverted cost and items of a selection in a sort key
+	private static long toKey(long weight, long cost, int items) {
+		return (weight << (ITEMS_BITS + COST_BITS)) | ((COST_MASK - cost) << ITEMS_BITS) | items;
+	}
+
+	/*
+	 * Binary search for the last frontier selection that weighs no more than
+	 * the capacity. The empty selection is always first on the frontier, so a
+	 * selection is always found.
+	 */
+	private static int findHeaviestFitting(long[] frontierWeights, int frontierCount, long capacity) {
+		int low = 0;
+		int high = frontierCount - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (frontierWeights[middle] <= capacity) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+}
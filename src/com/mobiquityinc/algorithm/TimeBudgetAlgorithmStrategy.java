@@ -0,0 +1,115 @@
+package com.mobiquityinc.algorithm;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Strategy which bounds the time taken to select the items of a package, for
+ * callers which need an answer within a latency target more than they need
+ * the optimal answer for every package.
+ *
+ * The search starts from the greedy selection, which packs the items in order
+ * of cost per unit of weight while they fit (or the most expensive item on its
+ * own if that costs more), so a selection is available at once. The branch and
+ * bound search then improves the selection while the time budget lasts. If the
+ * search completes the selection is optimal, otherwise the search stops at the
+ * deadline with the best selection found and the package is marked as
+ * approximate (see Package.isApproximate and PackageBatch.isApproximate). The
+ * ratio guaranteed by an approximate selection is its cost divided by the
+ * fractional knapsack bound of the package, which is at least 1/2 as the
+ * search starts from the greedy selection. The budget starts when the
+ * package is handed to the strategy, so it includes the time the presolver
+ * takes to reduce the items.
+ *
+ * Weights and costs are compared in hundredths, weights rounded up and the
+ * capacity rounded down, so a package is never overweight. A package with
+ * weights or costs which are not whole hundredths is solved in hundredths as
+ * well and marked as approximate without a guarantee, as the linear
+ * programming solver used for those packages can not be stopped at a
+ * deadline.
+ */
+public class TimeBudgetAlgorithmStrategy extends AbstractAlgorithmStrategy {
+
+	// The time budget used if none is given: one millisecond per package
+	public static final long DEFAULT_TIME_BUDGET_NANOS = 1000000;
+
+	private final long timeBudgetNanos;
+
+	private final AtomicLong optimalCount = new AtomicLong();
+	private final AtomicLong approximateCount = new AtomicLong();
+
+	public TimeBudgetAlgorithmStrategy() {
+		this(DEFAULT_TIME_BUDGET_NANOS);
+	}
+
+	// A budget of 0 returns the greedy selection unless it is proven optimal
+	public TimeBudgetAlgorithmStrategy(long timeBudgetNanos) {
+		if (timeBudgetNanos < 0) {
+			throw new IllegalArgumentException("The time budget must be 0 or more");
+		}
+		this.timeBudgetNanos = timeBudgetNanos;
+	}
+
+	public long getTimeBudgetNanos() {
+		return timeBudgetNanos;
+	}
+
+	// The number of packages for which the optimal selection was found
+	public long getOptimalCount() {
+		return optimalCount.get();
+	}
+
+	// The number of packages for which the search ran out of time
+	public long getApproximateCount() {
+		return approximateCount.get();
+	}
+
+	@Override
+	protected void selectItems(double packageCapacity, double[] itemWeights, double[] itemCosts, int firstItem,
+			boolean[] selectedItems) {
+		selectItemsWithGuarantee(packageCapacity, itemWeights, itemCosts, firstItem, selectedItems);
+	}
+
+	@Override
+	protected double selectItemsWithGuarantee(double packageCapacity, double[] itemWeights, double[] itemCosts,
+			int firstItem, boolean[] selectedItems) {
+		// The budget starts when the package is handed to the strategy, so it
+		// includes the time taken to presolve
+		long deadline = getPackageStartNanos() + timeBudgetNanos;
+		BranchAndBoundAlgorithmStrategy.Search search = new BranchAndBoundAlgorithmStrategy.Search(packageCapacity,
+				itemWeights, itemCosts, firstItem, selectedItems.length);
+		search.selectGreedily();
+		search.setDeadline(deadline);
+		search.branch(0, 0, 0);
+		search.copySelection(selectedItems);
+
+		double guaranteedRatio;
+		if (!isFixedPoint(itemWeights, itemCosts, firstItem, selectedItems.length)) {
+			guaranteedRatio = 0;
+		} else if (search.isStopped()) {
+			guaranteedRatio = (double) search.getBestCost() / search.getUpperBound();
+		} else {
+			guaranteedRatio = 1;
+		}
+		if (guaranteedRatio < 1) {
+			approximateCount.incrementAndGet();
+		} else {
+			optimalCount.incrementAndGet();
+		}
+		return guaranteedRatio;
+	}
+
+	// True if all the weights and costs of the package are whole hundredths
+	private static boolean isFixedPoint(double[] itemWeights, double[] itemCosts, int firstItem, int itemCount) {
+		for (int i = firstItem; i < firstItem + itemCount; i++) {
+			if (!isFixedPoint(itemWeights[i]) || !isFixedPoint(itemCosts[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
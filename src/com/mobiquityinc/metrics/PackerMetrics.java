@@ -0,0 +1,190 @@
+package com.mobiquityinc.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Registry of the times taken by each stage of the packer and of counters of
+ * the packages, items and selections, so it can be seen where the time of a
+ * slow run went.
+ *
+ * The stages are timed by a StageTimer each and the counters are kept in an
+ * AtomicLongArray, so recording a time or a count on the hot path is done by
+ * more than one thread at the same time without creating an object. The
+ * packer and the strategies record into the default registry, which is
+ * published on the platform MBean server as com.mobiquityinc:type=PackerMetrics
+ * with a StageTimer MBean for every stage, for example
+ * com.mobiquityinc:type=PackerMetrics,stage=parse.
+ */
+public class PackerMetrics implements PackerMetricsMXBean {
+
+	// The name the default registry is published under
+	public static final String OBJECT_NAME = "com.mobiquityinc:type=PackerMetrics";
+
+	// The stages of the packer which are timed
+	public enum Stage {
+		READ_FILE("readFile"), PARSE("parse"), PRESOLVE("presolve"), SELECT_ITEMS("selectItems"),
+		BUILD_MODEL("buildModel"), SOLVE_MODEL("solveModel"), CHOOSE_PACKAGES("choosePackagesToSend"),
+		FORMAT_OUTPUT("formatOutput");
+
+		private final String name;
+
+		Stage(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+
+	// The counters of the packer and its algorithms
+	public enum Counter {
+		PACKAGES("packages"), ITEMS("items"), SELECTED_ITEMS("selectedItems"), SENT_PACKAGES("sentPackages"),
+		PRESOLVED_PACKAGES("presolvedPackages"), PRESOLVE_REMOVED_ITEMS("presolveRemovedItems"),
+		BITMASK_ENUMERATIONS("bitmaskEnumerations"), DYNAMIC_PROGRAMS("dynamicPrograms"),
+		BRANCH_AND_BOUND_SEARCHES("branchAndBoundSearches"), APPROXIMATIONS("approximations"),
+		LINEAR_PROGRAMS("linearPrograms"),
+		LINEAR_PROGRAM_VARIABLES("linearProgramVariables"), CACHE_HITS("cacheHits"), CACHE_MISSES("cacheMisses"),
+		APPROXIMATE_PACKAGES("approximatePackages");
+
+		private final String name;
+
+		Counter(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+
+	private static final Stage[] STAGES = Stage.values();
+	private static final Counter[] COUNTERS = Counter.values();
+
+	private final StageTimer[] timers = new StageTimer[STAGES.length];
+	private final AtomicLongArray counters = new AtomicLongArray(COUNTERS.length);
+
+	public PackerMetrics() {
+		for (Stage stage : STAGES) {
+			timers[stage.ordinal()] = new StageTimer(stage.getName());
+		}
+	}
+
+	// The registry the packer records into
+	public static PackerMetrics getDefault() {
+		return DefaultMetricsHolder.METRICS;
+	}
+
+	public StageTimer getTimer(Stage stage) {
+		return timers[stage.ordinal()];
+	}
+
+	// Records the time of a stage from the start time, as given by
+	// System.nanoTime, to now
+	public void record(Stage stage, long startNanos) {
+		timers[stage.ordinal()].recordSince(startNanos);
+	}
+
+	public void increment(Counter counter) {
+		counters.incrementAndGet(counter.ordinal());
+	}
+
+	public void add(Counter counter, long amount) {
+		counters.addAndGet(counter.ordinal(), amount);
+	}
+
+	public long getCount(Counter counter) {
+		return counters.get(counter.ordinal());
+	}
+
+	@Override
+	public Map<String, Long> getCounters() {
+		Map<String, Long> values = new LinkedHashMap<>();
+		for (Counter counter : COUNTERS) {
+			values.put(counter.getName(), getCount(counter));
+		}
+		return values;
+	}
+
+	@Override
+	public String getSummary() {
+		StringBuilder summary = new StringBuilder();
+		summary.append(String.format("%-21s %12s %12s %10s %10s %10s %10s %10s%n", "stage", "count", "total ms",
+				"mean us", "p50 us", "p90 us", "p99 us", "max us"));
+		for (StageTimer timer : timers) {
+			summary.append(String.format("%-21s %12d %12.3f %10.1f %10.1f %10.1f %10.1f %10.1f%n", timer.getName(),
+					timer.getCount(), timer.getTotalNanos() / 1e6, timer.getMeanNanos() / 1e3,
+					timer.getMedianNanos() / 1e3, timer.getPercentile90Nanos() / 1e3,
+					timer.getPercentile99Nanos() / 1e3, timer.getMaxNanos() / 1e3));
+		}
+		summary.append(String.format("%-21s %12s%n", "counter", "count"));
+		for (Counter counter : COUNTERS) {
+			summary.append(String.format("%-21s %12d%n", counter.getName(), getCount(counter)));
+		}
+		return summary.toString();
+	}
+
+	// Counts recorded while the registry is reset may be partly kept
+	@Override
+	public void reset() {
+		for (StageTimer timer : timers) {
+			timer.reset();
+		}
+		for (int c = 0; c < counters.length(); c++) {
+			counters.set(c, 0);
+		}
+	}
+
+	/*
+	 * Publishes the registry on an MBean server under the name and each timer
+	 * under the name with the stage added as key
+	 */
+	public void register(MBeanServer server, String name) throws JMException {
+		server.registerMBean(this, new ObjectName(name));
+		for (StageTimer timer : timers) {
+			server.registerMBean(timer, getTimerName(name, timer));
+		}
+	}
+
+	public void unregister(MBeanServer server, String name) throws JMException {
+		for (StageTimer timer : timers) {
+			server.unregisterMBean(getTimerName(name, timer));
+		}
+		server.unregisterMBean(new ObjectName(name));
+	}
+
+	private static ObjectName getTimerName(String name, StageTimer timer) throws JMException {
+		return new ObjectName(name + ",stage=" + timer.getName());
+	}
+
+	/*
+	 * The default registry is only created and published when it is first
+	 * used. The metrics are still recorded if it can not be published.
+	 */
+	private static final class DefaultMetricsHolder {
+
+		private static final PackerMetrics METRICS = createDefault();
+
+		private static PackerMetrics createDefault() {
+			PackerMetrics metrics = new PackerMetrics();
+			try {
+				metrics.register(ManagementFactory.getPlatformMBeanServer(), OBJECT_NAME);
+			} catch (JMException | SecurityException e) {
+				// The metrics can only be read through the registry
+			}
+			return metrics;
+		}
+	}
+
+}
@@ -0,0 +1,23 @@
+package com.mobiquityinc.metrics;
+
+import java.util.Map;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Management interface of the PackerMetrics. The timers of the stages are
+ * published as StageTimerMXBeans of their own.
+ */
+public interface PackerMetricsMXBean {
+
+	// The value of every counter by its name
+	Map<String, Long> getCounters();
+
+	// A table with the times of the stages and the counters
+	String getSummary();
+
+	void reset();
+
+}
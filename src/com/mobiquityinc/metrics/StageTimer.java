@@ -0,0 +1,154 @@
+package com.mobiquityinc.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Measures how long a stage of the packer takes. Every time recorded is added
+ * to the count, total and maximum of the stage and to a histogram from which
+ * the percentiles are estimated.
+ *
+ * The histogram has four buckets for every power of two nanoseconds, so a
+ * percentile is at most a quarter more than the real time. All the values are
+ * kept in one AtomicLongArray, so recording a time can be done by more than
+ * one thread at the same time and never creates an object.
+ */
+public class StageTimer implements StageTimerMXBean {
+
+	// The number of buckets for each power of two as a power of two
+	private static final int SUB_BUCKET_BITS = 2;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	// Enough buckets for every positive long
+	private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	// The positions of the values in front of the buckets
+	private static final int COUNT = 0;
+	private static final int TOTAL = 1;
+	private static final int MAX = 2;
+	private static final int FIRST_BUCKET = 3;
+
+	private final String name;
+	private final AtomicLongArray values = new AtomicLongArray(FIRST_BUCKET + BUCKET_COUNT);
+
+	public StageTimer(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	// Records the time from the start time, as given by System.nanoTime, to now
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	// Records a time in nanoseconds
+	public void record(long nanos) {
+		long time = Math.max(nanos, 0);
+		values.incrementAndGet(COUNT);
+		values.addAndGet(TOTAL, time);
+		values.incrementAndGet(FIRST_BUCKET + getBucket(time));
+		long max = values.get(MAX);
+		while (time > max && !values.compareAndSet(MAX, max, time)) {
+			max = values.get(MAX);
+		}
+	}
+
+	/*
+	 * Times below the number of sub buckets have a bucket each. Larger times
+	 * are put in the bucket of their highest bit and the bits after it.
+	 */
+	static int getBucket(long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return (int) nanos;
+		}
+		int highestBit = 63 - Long.numberOfLeadingZeros(nanos);
+		int subBucket = (int) (nanos >>> (highestBit - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (highestBit - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	// The highest time that is put in a bucket
+	static long getBucketLimit(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+	/*
+	 * Estimates the time which the percentage of the recorded times are
+	 * within. The estimate is the highest time of the bucket the percentile
+	 * falls in, but never more than the maximum time.
+	 */
+	public long getPercentileNanos(double percentage) {
+		long count = 0;
+		long[] bucketCounts = new long[BUCKET_COUNT];
+		for (int b = 0; b < BUCKET_COUNT; b++) {
+			bucketCounts[b] = values.get(FIRST_BUCKET + b);
+			count += bucketCounts[b];
+		}
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentage / 100 * count));
+		long seen = 0;
+		for (int b = 0; b < BUCKET_COUNT; b++) {
+			seen += bucketCounts[b];
+			if (seen >= rank) {
+				return Math.min(getBucketLimit(b), getMaxNanos());
+			}
+		}
+		return getMaxNanos();
+	}
+
+	@Override
+	public long getCount() {
+		return values.get(COUNT);
+	}
+
+	@Override
+	public long getTotalNanos() {
+		return values.get(TOTAL);
+	}
+
+	@Override
+	public long getMeanNanos() {
+		long count = getCount();
+		return count == 0 ? 0 : getTotalNanos() / count;
+	}
+
+	@Override
+	public long getMaxNanos() {
+		return values.get(MAX);
+	}
+
+	@Override
+	public long getMedianNanos() {
+		return getPercentileNanos(50);
+	}
+
+	@Override
+	public long getPercentile90Nanos() {
+		return getPercentileNanos(90);
+	}
+
+	@Override
+	public long getPercentile99Nanos() {
+		return getPercentileNanos(99);
+	}
+
+	// Times recorded while the timer is reset may be partly kept
+	@Override
+	public void reset() {
+		for (int i = 0; i < values.length(); i++) {
+			values.set(i, 0);
+		}
+	}
+
+}
@@ -0,0 +1,29 @@
+package com.mobiquityinc.metrics;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Management interface of a StageTimer. All the times are in nanoseconds and
+ * the percentiles are estimated from the timer's histogram.
+ */
+public interface StageTimerMXBean {
+
+	long getCount();
+
+	long getTotalNanos();
+
+	long getMeanNanos();
+
+	long getMaxNanos();
+
+	long getMedianNanos();
+
+	long getPercentile90Nanos();
+
+	long getPercentile99Nanos();
+
+	void reset();
+
+}
@@ -0,0 +1,418 @@
+package com.mobiquityinc.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * OffHeapPackageStore class which holds the data of the packages outside the
+ * Java heap, for runs with so many packages that even the primitive arrays of
+ * a PackageBatch make the heap large and the garbage collector slow.
+ *
+ * Each package and each item is a record of a fixed size in a chunk of
+ * memory: a package holds its maximum weight, the position of its first item,
+ * its number of items, whether it is sent, the cost and weight of its selected
+ * items and the ratio of the optimal cost its selection is guaranteed to
+ * reach, and an item holds its index number, whether it is selected, its
+ * weight and its cost. Chunks are allocated as direct byte buffers until the
+ * memory limit is reached, and after that are mapped from a temporary file, so
+ * the store can hold more data than fits in memory and the operating system
+ * pages the data in and out as it is read. The temporary file is deleted when
+ * the store is closed.
+ *
+ * Direct byte buffers count against -XX:MaxDirectMemorySize, which is the
+ * maximum heap size unless it is set. The memory limit is lowered to that
+ * size, and if direct memory still runs out because other buffers use it,
+ * the chunks are mapped from the file from then on. To keep more packages in
+ * memory than the heap size, raise -XX:MaxDirectMemorySize as well.
+ *
+ * Chunks hold up to 16 MB of records. If the number of packages and items is
+ * known before they are added (see setExpectedSize), the chunks are sized to
+ * them, so a small file does not reserve full chunks.
+ *
+ * Packages and items are added by one thread. Once they are added, different
+ * threads can read them and write the results of different packages at the
+ * same time, as every value is read and written at its own position.
+ */
+public class OffHeapPackageStore implements Closeable {
+
+	// The memory used before the chunks are mapped from a file: 1 GB
+	public static final long DEFAULT_MEMORY_LIMIT = 1L << 30;
+	// The size of a chunk of records: 16 MB
+	private static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+	// The fewest records of a chunk sized to the expected records
+	private static final int MINIMUM_CHUNK_RECORDS = 64;
+
+	// The layout of a package record
+	private static final int PACKAGE_BYTES = 48;
+	private static final int MAXIMUM_WEIGHT = 0;
+	private static final int FIRST_ITEM = 8;
+	private static final int ITEM_COUNT = 16;
+	private static final int SEND_PACKAGE = 20;
+	private static final int COST_OF_ITEMS = 24;
+	private static final int WEIGHT_OF_ITEMS = 32;
+	private static final int GUARANTEED_RATIO = 40;
+
+	// The layout of an item record
+	private static final int ITEM_BYTES = 24;
+	private static final int INDEX_NUMBER = 0;
+	private static final int SELECTED = 4;
+	private static final int WEIGHT = 8;
+	private static final int COST = 16;
+
+	private final long memoryLimit;
+	private final Path spillDirectory;
+	private final Records packages;
+	private final Records items;
+
+	private int packageCount = 0;
+	private long itemCount = 0;
+	private long memoryUsed = 0;
+	// Set once direct memory ran out before the memory limit was reached
+	private boolean directMemoryExhausted = false;
+	private FileChannel spillFile;
+	private long spilledBytes = 0;
+
+	// Keeps up to 1 GB in memory and maps the rest from the temporary directory
+	public OffHeapPackageStore() {
+		this(DEFAULT_MEMORY_LIMIT, Paths.get(System.getProperty("java.io.tmpdir")));
+	}
+
+	public OffHeapPackageStore(long memoryLimit, Path spillDirectory) {
+		this(memoryLimit, spillDirectory, DEFAULT_CHUNK_SIZE);
+	}
+
+	OffHeapPackageStore(long memoryLimit, Path spillDirectory, int chunkSize) {
+		if (memoryLimit < 0) {
+			throw new IllegalArgumentException("The memory limit must be 0 or more");
+		}
+		if (chunkSize < PACKAGE_BYTES) {
+			throw new IllegalArgumentException("A chunk must hold at least " + PACKAGE_BYTES + " bytes");
+		}
+		this.memoryLimit = Math.min(memoryLimit, getMaximumDirectMemory());
+		this.spillDirectory = spillDirectory;
+		this.packages = new Records(PACKAGE_BYTES, chunkSize / PACKAGE_BYTES);
+		this.items = new Records(ITEM_BYTES, chunkSize / ITEM_BYTES);
+	}
+
+	/*
+	 * Adds a package without items to the end of the store and returns its
+	 * number. Items added afterwards belong to this package.
+	 */
+	public int addPackage(double maximumWeight) {
+		if (packageCount == Integer.MAX_VALUE) {
+			throw new IllegalStateException("The store can not hold more than " + Integer.MAX_VALUE + " packages");
+		}
+		ByteBuffer chunk = packages.add(packageCount);
+		int offset = packages.offset(packageCount);
+		chunk.putDouble(offset + MAXIMUM_WEIGHT, maximumWeight);
+		chunk.putLong(offset + FIRST_ITEM, itemCount);
+		chunk.putInt(offset + ITEM_COUNT, 0);
+		chunk.putInt(offset + SEND_PACKAGE, 0);
+		chunk.putDouble(offset + COST_OF_ITEMS, 0);
+		chunk.putDouble(offset + WEIGHT_OF_ITEMS, 0);
+		chunk.putDouble(offset + GUARANTEED_RATIO, 1);
+		return packageCount++;
+	}
+
+	// Adds an item to the last package and returns its position in the store
+	public long addItem(int indexNumber, double weight, double cost) {
+		if (packageCount == 0) {
+			throw new IllegalStateException("A package must be added before its items");
+		}
+		ByteBuffer chunk = items.add(itemCount);
+		int offset = items.offset(itemCount);
+		chunk.putInt(offset + INDEX_NUMBER, indexNumber);
+		chunk.putInt(offset + SELECTED, 0);
+		chunk.putDouble(offset + WEIGHT, weight);
+		chunk.putDouble(offset + COST, cost);
+		int lastPackage = packageCount - 1;
+		putPackageInt(lastPackage, ITEM_COUNT, getItemCount(lastPackage) + 1);
+		return itemCount++;
+	}
+
+	// Adds the packages and items of a batch to the end of the store
+	public void append(PackageBatch batch) {
+		for (int p = 0; p < batch.getPackageCount(); p++) {
+			addPackage(batch.getMaximumWeight(p));
+			for (int i = batch.getFirstItem(p); i < batch.getFirstItem(p + 1); i++) {
+				addItem(batch.getIndexNumber(i), batch.getItemWeight(i), batch.getItemCost(i));
+			}
+		}
+	}
+
+	/*
+	 * Sizes the chunks to the number of packages and items expected, which
+	 * need not be exact: more records are held in more chunks of the same
+	 * size. Chunks never hold more than the chunk size of the store. Can only
+	 * be called before the first package is added.
+	 */
+	public void setExpectedSize(long expectedPackages, long expectedItems) {
+		if (packageCount > 0) {
+			throw new IllegalStateException("The chunks can only be sized before a package is added");
+		}
+		packages.setExpectedRecords(expectedPackages);
+		items.setExpectedRecords(expectedItems);
+	}
+
+	public int getPackageCount() {
+		return packageCount;
+	}
+
+	public long getItemCount() {
+		return itemCount;
+	}
+
+	// The bytes kept in memory before the chunks are mapped from the file, at
+	// most the maximum direct memory of the JVM
+	public long getMemoryLimit() {
+		return memoryLimit;
+	}
+
+	// The bytes allocated outside the heap, not counting the mapped file
+	public long getMemoryUsed() {
+		return memoryUsed;
+	}
+
+	// The bytes mapped from the temporary file once the memory limit was
+	// reached
+	public long getSpilledBytes() {
+		return spilledBytes;
+	}
+
+	public double getMaximumWeight(int packageNumber) {
+		return getPackageDouble(packageNumber, MAXIMUM_WEIGHT);
+	}
+
+	// The position of the package's first item in the store
+	public long getFirstItem(int packageNumber) {
+		return packages.chunk(packageNumber).getLong(packages.offset(packageNumber) + FIRST_ITEM);
+	}
+
+	public int getItemCount(int packageNumber) {
+		return packages.chunk(packageNumber).getInt(packages.offset(packageNumber) + ITEM_COUNT);
+	}
+
+	public int getIndexNumber(long position) {
+		return items.chunk(position).getInt(items.offset(position) + INDEX_NUMBER);
+	}
+
+	public double getItemWeight(long position) {
+		return items.chunk(position).getDouble(items.offset(position) + WEIGHT);
+	}
+
+	public double getItemCost(long position) {
+		return items.chunk(position).getDouble(items.offset(position) + COST);
+	}
+
+	/*
+	 * Copies the weights and costs of the package's items to the start of the
+	 * arrays, which must hold at least the package's number of items.
+	 */
+	public void copyItems(int packageNumber, double[] itemWeights, double[] itemCosts) {
+		long first = getFirstItem(packageNumber);
+		int count = getItemCount(packageNumber);
+		for (int i = 0; i < count; i++) {
+			itemWeights[i] = getItemWeight(first + i);
+			itemCosts[i] = getItemCost(first + i);
+		}
+	}
+
+	public boolean isItemSelected(long position) {
+		return items.chunk(position).getInt(items.offset(position) + SELECTED) != 0;
+	}
+
+	public void setItemSelected(long position, boolean selected) {
+		items.chunk(position).putInt(items.offset(position) + SELECTED, selected ? 1 : 0);
+	}
+
+	/*
+	 * Sets the selected items of a package, where selected[i] is the package's
+	 * item at position getFirstItem(packageNumber) + i.
+	 */
+	public void setSelectedItems(int packageNumber, boolean[] selected) {
+		long first = getFirstItem(packageNumber);
+		for (int i = 0; i < selected.length; i++) {
+			setItemSelected(first + i, selected[i]);
+		}
+	}
+
+	// Returns true if one or more of the package's items are selected
+	public boolean hasSelectedItems(int packageNumber) {
+		long first = getFirstItem(packageNumber);
+		for (long i = first; i < first + getItemCount(packageNumber); i++) {
+			if (isItemSelected(i)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public double getCostOfItems(int packageNumber) {
+		return getPackageDouble(packageNumber, COST_OF_ITEMS);
+	}
+
+	public void setCostOfItems(int packageNumber, double costOfItems) {
+		putPackageDouble(packageNumber, COST_OF_ITEMS, costOfItems);
+	}
+
+	public double getWeightOfItems(int packageNumber) {
+		return getPackageDouble(packageNumber, WEIGHT_OF_ITEMS);
+	}
+
+	public void setWeightOfItems(int packageNumber, double weightOfItems) {
+		putPackageDouble(packageNumber, WEIGHT_OF_ITEMS, weightOfItems);
+	}
+
+	public boolean isSendPackage(int packageNumber) {
+		return packages.chunk(packageNumber).getInt(packages.offset(packageNumber) + SEND_PACKAGE) != 0;
+	}
+
+	public void setSendPackage(int packageNumber, boolean sendPackage) {
+		putPackageInt(packageNumber, SEND_PACKAGE, sendPackage ? 1 : 0);
+	}
+
+	// See PackageBatch.getGuaranteedRatio
+	public double getGuaranteedRatio(int packageNumber) {
+		return getPackageDouble(packageNumber, GUARANTEED_RATIO);
+	}
+
+	public void setGuaranteedRatio(int packageNumber, double guaranteedRatio) {
+		putPackageDouble(packageNumber, GUARANTEED_RATIO, guaranteedRatio);
+	}
+
+	public boolean isApproximate(int packageNumber) {
+		return getGuaranteedRatio(packageNumber) < 1;
+	}
+
+	private double getPackageDouble(int packageNumber, int field) {
+		return packages.chunk(packageNumber).getDouble(packages.offset(packageNumber) + field);
+	}
+
+	private void putPackageDouble(int packageNumber, int field, double value) {
+		packages.chunk(packageNumber).putDouble(packages.offset(packageNumber) + field, value);
+	}
+
+	private void putPackageInt(int packageNumber, int field, int value) {
+		packages.chunk(packageNumber).putInt(packages.offset(packageNumber) + field, value);
+	}
+
+	/*
+	 * Allocates a chunk in memory while the memory limit and the direct memory
+	 * allow it, and maps the chunk from the end of the temporary file
+	 * otherwise.
+	 */
+	private ByteBuffer allocateChunk(int size) {
+		ByteBuffer chunk = null;
+		if (memoryUsed + size <= memoryLimit && !directMemoryExhausted) {
+			try {
+				chunk = ByteBuffer.allocateDirect(size);
+				memoryUsed += size;
+			} catch (OutOfMemoryError e) {
+				// Thrown before any memory is allocated once the direct memory
+				// of the JVM is used up, so the rest of the chunks are mapped
+				directMemoryExhausted = true;
+			}
+		}
+		if (chunk == null) {
+			try {
+				if (spillFile == null) {
+					Path spillPath = Files.createTempFile(spillDirectory, "packages", ".spill");
+					spillFile = FileChannel.open(spillPath, StandardOpenOption.READ, StandardOpenOption.WRITE,
+							StandardOpenOption.DELETE_ON_CLOSE);
+				}
+				chunk = spillFile.map(FileChannel.MapMode.READ_WRITE, spilledBytes, size);
+				spilledBytes += size;
+			} catch (IOException e) {
+				throw new UncheckedIOException("Unable to map the packages from a temporary file", e);
+			}
+		}
+		return chunk.order(ByteOrder.nativeOrder());
+	}
+
+	/*
+	 * The most memory direct byte buffers can use: the value of
+	 * -XX:MaxDirectMemorySize, or the maximum heap size if it is not set or
+	 * the JVM does not report it.
+	 */
+	private static long getMaximumDirectMemory() {
+		try {
+			HotSpotDiagnosticMXBean diagnostics = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+			if (diagnostics != null) {
+				long maximum = Long.parseLong(diagnostics.getVMOption("MaxDirectMemorySize").getValue());
+				if (maximum > 0) {
+					return maximum;
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			// The option is not known to this JVM
+		}
+		return Runtime.getRuntime().maxMemory();
+	}
+
+	/*
+	 * Closes and deletes the temporary file. The memory of the chunks is
+	 * released once the store is no longer referenced.
+	 */
+	@Override
+	public void close() throws IOException {
+		packages.chunks.clear();
+		items.chunks.clear();
+		if (spillFile != null) {
+			spillFile.close();
+		}
+	}
+
+	// Records of the same size in chunks which never split a record
+	private final class Records {
+
+		private final int recordBytes;
+		private final int maximumRecordsPerChunk;
+		private int recordsPerChunk;
+		private final List<ByteBuffer> chunks = new ArrayList<>();
+
+		Records(int recordBytes, int recordsPerChunk) {
+			this.recordBytes = recordBytes;
+			this.maximumRecordsPerChunk = recordsPerChunk;
+			this.recordsPerChunk = recordsPerChunk;
+		}
+
+		void setExpectedRecords(long expectedRecords) {
+			long records = Math.max(expectedRecords, MINIMUM_CHUNK_RECORDS);
+			recordsPerChunk = (int) Math.min(records, maximumRecordsPerChunk);
+		}
+
+		// Returns the chunk of a new record, allocating it if it is full
+		ByteBuffer add(long record) {
+			if (record == (long) chunks.size() * recordsPerChunk) {
+				chunks.add(allocateChunk(recordBytes * recordsPerChunk));
+			}
+			return chunk(record);
+		}
+
+		ByteBuffer chunk(long record) {
+			return chunks.get((int) (record / recordsPerChunk));
+		}
+
+		int offset(long record) {
+			return (int) (record % recordsPerChunk) * recordBytes;
+		}
+	}
+
+}
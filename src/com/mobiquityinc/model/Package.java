@@ -17,6 +17,7 @@ public class Package {
 	private double costOfItems;
 	private double weightOfItems;
 	private boolean sendPackage = false;
+	private double guaranteedRatio = 1;
 	private List<Item> selectedItems;
 	private List<Item> availableItems;
 
@@ -84,4 +85,22 @@ public class Package {
 		this.sendPackage = sendPackage;
 	}
 
+	/*
+	 * The cost of the selected items is at least this ratio of the highest
+	 * cost the package can carry: 1 if the selection is optimal, less than 1
+	 * if it is approximate and 0 if nothing is guaranteed.
+	 */
+	public double getGuaranteedRatio() {
+		return guaranteedRatio;
+	}
+
+	public void setGuaranteedRatio(double guaranteedRatio) {
+		this.guaranteedRatio = guaranteedRatio;
+	}
+
+	// True if the selected items may not be the optimal selection
+	public boolean isApproximate() {
+		return guaranteedRatio < 1;
+	}
+
 }
@@ -0,0 +1,459 @@
+package com.mobiquityinc.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * PackageBatch class which holds the data of many packages in flat primitive
+ * arrays instead of a Package object with a list of Item objects for each
+ * package.
+ *
+ * The items of all the packages are stored one after the other, and each
+ * package knows the position of its first item. Items are referred to by their
+ * position in the batch, and packages by their number in the batch. The
+ * selected items of a package are kept in a bitset of its own, which starts at
+ * a new long so that packages can be solved by different threads at the same
+ * time. The packages to send are kept in a bitset for the whole batch. The
+ * ratio of the optimal cost guaranteed by a package's selection is set while
+ * the packages are solved, so it is kept in a double for each package which
+ * threads can set at the same time.
+ *
+ * The Package and Item classes remain available as a view on top of the batch
+ * (see asPackages), for code which works with the objects.
+ */
+public class PackageBatch {
+
+	private static final int BITS_PER_WORD = 64;
+
+	private int packageCount = 0;
+	private int itemCount = 0;
+	private int selectionWordCount = 0;
+
+	// Values for each package
+	private double[] maximumWeights;
+	private double[] costsOfItems;
+	private double[] weightsOfItems;
+	private int[] firstItems;
+	private int[] firstSelectionWords;
+	private long[] sendPackages;
+	private double[] guaranteedRatios;
+
+	// Values for each item
+	private int[] indexNumbers;
+	private double[] itemWeights;
+	private double[] itemCosts;
+	private long[] selectedItems;
+
+	public PackageBatch() {
+		this(16, 64);
+	}
+
+	public PackageBatch(int expectedPackages, int expectedItems) {
+		int packages = Math.max(1, expectedPackages);
+		int items = Math.max(1, expectedItems);
+		maximumWeights = new double[packages];
+		costsOfItems = new double[packages];
+		weightsOfItems = new double[packages];
+		firstItems = new int[packages + 1];
+		firstSelectionWords = new int[packages + 1];
+		sendPackages = new long[wordsFor(packages)];
+		guaranteedRatios = new double[packages];
+		indexNumbers = new int[items];
+		itemWeights = new double[items];
+		itemCosts = new double[items];
+		selectedItems = new long[packages];
+	}
+
+	// Creates a batch with the same data as the list of packages
+	public static PackageBatch fromPackages(List<Package> packages) {
+		int items = 0;
+		for (Package pack : packages) {
+			items += pack.getAvailableItems().size();
+		}
+		PackageBatch batch = new PackageBatch(packages.size(), items);
+		for (Package pack : packages) {
+			int packageNumber = batch.addPackage(pack.getMaximumWeight());
+			for (Item item : pack.getAvailableItems()) {
+				int position = batch.addItem(item.getIndexNumber(), item.getWeight(), item.getCost());
+				batch.setItemSelected(position, pack.getSelectedItems().contains(item));
+			}
+			batch.setCostOfItems(packageNumber, pack.getCostOfItems());
+			batch.setWeightOfItems(packageNumber, pack.getWeightOfItems());
+			batch.setSendPackage(packageNumber, pack.isSendPackage());
+			batch.setGuaranteedRatio(packageNumber, pack.getGuaranteedRatio());
+		}
+		return batch;
+	}
+
+	/*
+	 * Adds a package without items to the end of the batch and returns its
+	 * number. Items added afterwards belong to this package.
+	 */
+	public int addPackage(double maximumWeight) {
+		if (packageCount == maximumWeights.length) {
+			int capacity = maximumWeights.length * 2;
+			maximumWeights = Arrays.copyOf(maximumWeights, capacity);
+			costsOfItems = Arrays.copyOf(costsOfItems, capacity);
+			weightsOfItems = Arrays.copyOf(weightsOfItems, capacity);
+			firstItems = Arrays.copyOf(firstItems, capacity + 1);
+			firstSelectionWords = Arrays.copyOf(firstSelectionWords, capacity + 1);
+			sendPackages = Arrays.copyOf(sendPackages, wordsFor(capacity));
+			guaranteedRatios = Arrays.copyOf(guaranteedRatios, capacity);
+		}
+		maximumWeights[packageCount] = maximumWeight;
+		// A cleared batch still holds the results of its earlier packages
+		costsOfItems[packageCount] = 0;
+		weightsOfItems[packageCount] = 0;
+		guaranteedRatios[packageCount] = 1;
+		firstItems[packageCount] = itemCount;
+		firstItems[packageCount + 1] = itemCount;
+		firstSelectionWords[packageCount] = selectionWordCount;
+		firstSelectionWords[packageCount + 1] = selectionWordCount;
+		return packageCount++;
+	}
+
+	// Adds an item to the last package and returns its position in the batch
+	public int addItem(int indexNumber, double weight, double cost) {
+		if (packageCount == 0) {
+			throw new IllegalStateException("A package must be added before its items");
+		}
+		if (itemCount == itemWeights.length) {
+			int capacity = itemWeights.length * 2;
+			indexNumbers = Arrays.copyOf(indexNumbers, capacity);
+			itemWeights = Arrays.copyOf(itemWeights, capacity);
+			itemCosts = Arrays.copyOf(itemCosts, capacity);
+		}
+		indexNumbers[itemCount] = indexNumber;
+		itemWeights[itemCount] = weight;
+		itemCosts[itemCount] = cost;
+		itemCount++;
+		firstItems[packageCount] = itemCount;
+		// Start a new word in the selection bitset when the package needs one
+		int packageItems = itemCount - firstItems[packageCount - 1];
+		if (packageItems % BITS_PER_WORD == 1) {
+			if (selectionWordCount == selectedItems.length) {
+				selectedItems = Arrays.copyOf(selectedItems, selectedItems.length * 2);
+			}
+			selectionWordCount++;
+			firstSelectionWords[packageCount] = selectionWordCount;
+		}
+		return itemCount - 1;
+	}
+
+	// Removes all the packages so the batch can be filled again
+	public void clear() {
+		Arrays.fill(selectedItems, 0, selectionWordCount, 0);
+		Arrays.fill(sendPackages, 0, wordsFor(packageCount), 0);
+		packageCount = 0;
+		itemCount = 0;
+		selectionWordCount = 0;
+		firstItems[0] = 0;
+		firstSelectionWords[0] = 0;
+	}
+
+	// Adds all the packages of another batch to the end of this batch
+	public void append(PackageBatch other) {
+		for (int p = 0; p < other.packageCount; p++) {
+			int packageNumber = addPackage(other.maximumWeights[p]);
+			for (int i = other.getFirstItem(p); i < other.getFirstItem(p + 1); i++) {
+				int position = addItem(other.indexNumbers[i], other.itemWeights[i], other.itemCosts[i]);
+				if (other.isItemSelected(p, i)) {
+					int bit = selectionBit(packageNumber, position);
+					selectedItems[bit / BITS_PER_WORD] |= 1L << bit;
+				}
+			}
+			costsOfItems[packageNumber] = other.costsOfItems[p];
+			weightsOfItems[packageNumber] = other.weightsOfItems[p];
+			setSendPackage(packageNumber, other.isSendPackage(p));
+			guaranteedRatios[packageNumber] = other.guaranteedRatios[p];
+		}
+	}
+
+	public int getPackageCount() {
+		return packageCount;
+	}
+
+	public int getItemCount() {
+		return itemCount;
+	}
+
+	public double getMaximumWeight(int packageNumber) {
+		return maximumWeights[packageNumber];
+	}
+
+	// The position of the package's first item, or of the next package's
+	// first item if packageNumber is the number of packages
+	public int getFirstItem(int packageNumber) {
+		return firstItems[packageNumber];
+	}
+
+	public int getItemCount(int packageNumber) {
+		return firstItems[packageNumber + 1] - firstItems[packageNumber];
+	}
+
+	public int getIndexNumber(int position) {
+		return indexNumbers[position];
+	}
+
+	public double getItemWeight(int position) {
+		return itemWeights[position];
+	}
+
+	public double getItemCost(int position) {
+		return itemCosts[position];
+	}
+
+	/*
+	 * The weights of all the items in the batch, which the algorithms read
+	 * directly. The array can be longer than the number of items.
+	 */
+	public double[] getItemWeights() {
+		return itemWeights;
+	}
+
+	// The costs of all the items in the batch, which the algorithms read
+	// directly. The array can be longer than the number of items.
+	public double[] getItemCosts() {
+		return itemCosts;
+	}
+
+	public boolean isItemSelected(int position) {
+		return isItemSelected(findPackage(position), position);
+	}
+
+	// Same as isItemSelected(position) for an item of a package, without
+	// looking up the package of the item
+	public boolean isItemSelected(int packageNumber, int position) {
+		int bit = selectionBit(packageNumber, position);
+		return (selectedItems[bit / BITS_PER_WORD] & (1L << bit)) != 0;
+	}
+
+	/*
+	 * Returns the position of the package's first selected item at or after
+	 * the position, or -1 if no later item of the package is selected. Only
+	 * the package's own bitset is read, a word of 64 items at a time, so the
+	 * selected items of every package are listed in time linear in the
+	 * number of items.
+	 */
+	public int nextSelectedItem(int packageNumber, int position) {
+		int offset = position - firstItems[packageNumber];
+		int firstWord = firstSelectionWords[packageNumber];
+		int endWord = firstSelectionWords[packageNumber + 1];
+		int word = firstWord + offset / BITS_PER_WORD;
+		if (word >= endWord) {
+			return -1;
+		}
+		// Ignore the items of the first word before the position
+		long bits = selectedItems[word] & (-1L << offset);
+		while (bits == 0) {
+			if (++word == endWord) {
+				return -1;
+			}
+			bits = selectedItems[word];
+		}
+		return firstItems[packageNumber] + (word - firstWord) * BITS_PER_WORD + Long.numberOfTrailingZeros(bits);
+	}
+
+	public void setItemSelected(int position, boolean selected) {
+		int bit = selectionBit(position);
+		if (selected) {
+			selectedItems[bit / BITS_PER_WORD] |= 1L << bit;
+		} else {
+			selectedItems[bit / BITS_PER_WORD] &= ~(1L << bit);
+		}
+	}
+
+	/*
+	 * Sets the selected items of a package, where selected[i] is the package's
+	 * item at position getFirstItem(packageNumber) + i. Only the package's own
+	 * bitset is written, so packages can be set by different threads.
+	 */
+	public void setSelectedItems(int packageNumber, boolean[] selected) {
+		int firstWord = firstSelectionWords[packageNumber];
+		for (int word = firstWord; word < firstSelectionWords[packageNumber + 1]; word++) {
+			long bits = 0;
+			int first = (word - firstWord) * BITS_PER_WORD;
+			int last = Math.min(selected.length, first + BITS_PER_WORD);
+			for (int i = first; i < last; i++) {
+				if (selected[i]) {
+					bits |= 1L << i;
+				}
+			}
+			selectedItems[word] = bits;
+		}
+	}
+
+	public double getCostOfItems(int packageNumber) {
+		return costsOfItems[packageNumber];
+	}
+
+	public void setCostOfItems(int packageNumber, double costOfItems) {
+		costsOfItems[packageNumber] = costOfItems;
+	}
+
+	public double getWeightOfItems(int packageNumber) {
+		return weightsOfItems[packageNumber];
+	}
+
+	public void setWeightOfItems(int packageNumber, double weightOfItems) {
+		weightsOfItems[packageNumber] = weightOfItems;
+	}
+
+	// Returns true if one or more of the package's items are selected
+	public boolean hasSelectedItems(int packageNumber) {
+		for (int word = firstSelectionWords[packageNumber]; word < firstSelectionWords[packageNumber + 1]; word++) {
+			if (selectedItems[word] != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public boolean isSendPackage(int packageNumber) {
+		return (sendPackages[packageNumber / BITS_PER_WORD] & (1L << packageNumber)) != 0;
+	}
+
+	public void setSendPackage(int packageNumber, boolean sendPackage) {
+		if (sendPackage) {
+			sendPackages[packageNumber / BITS_PER_WORD] |= 1L << packageNumber;
+		} else {
+			sendPackages[packageNumber / BITS_PER_WORD] &= ~(1L << packageNumber);
+		}
+	}
+
+	/*
+	 * The cost of the package's selected items is at least this ratio of the
+	 * highest cost the package can carry: 1 if the selection is optimal, less
+	 * than 1 if it is approximate and 0 if nothing is guaranteed.
+	 */
+	public double getGuaranteedRatio(int packageNumber) {
+		return guaranteedRatios[packageNumber];
+	}
+
+	public void setGuaranteedRatio(int packageNumber, double guaranteedRatio) {
+		guaranteedRatios[packageNumber] = guaranteedRatio;
+	}
+
+	// True if the package's selection may not be the optimal selection
+	public boolean isApproximate(int packageNumber) {
+		return guaranteedRatios[packageNumber] < 1;
+	}
+
+	// The number of packages whose selection is approximate
+	public int getApproximatePackageCount() {
+		int count = 0;
+		for (int p = 0; p < packageCount; p++) {
+			if (guaranteedRatios[p] < 1) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/*
+	 * Returns the packages in the batch as Package objects. A Package object
+	 * with its items is created each time a package is read from the list and
+	 * holds a copy of the package's data, so changes to the object are not
+	 * written back to the batch.
+	 */
+	public List<Package> asPackages() {
+		return new PackageView();
+	}
+
+	// Creates a Package object with the data of a package in the batch
+	public Package getPackage(int packageNumber) {
+		int first = getFirstItem(packageNumber);
+		int count = getItemCount(packageNumber);
+		List<Item> availableItems = new ArrayList<>(count);
+		List<Item> selected = new ArrayList<>();
+		for (int i = first; i < first + count; i++) {
+			Item item = new Item(indexNumbers[i], itemWeights[i], itemCosts[i]);
+			availableItems.add(item);
+			if (isItemSelected(packageNumber, i)) {
+				selected.add(item);
+			}
+		}
+		Package pack = new Package(maximumWeights[packageNumber], availableItems, selected);
+		pack.setCostOfItems(costsOfItems[packageNumber]);
+		pack.setWeightOfItems(weightsOfItems[packageNumber]);
+		pack.setSendPackage(isSendPackage(packageNumber));
+		pack.setGuaranteedRatio(guaranteedRatios[packageNumber]);
+		return pack;
+	}
+
+	/*
+	 * Copies the selected items, totals and whether the package is sent from a
+	 * Package object with the same items as the package in the batch, such as
+	 * a Package object returned by getPackage.
+	 */
+	public void updatePackage(int packageNumber, Package pack) {
+		int first = getFirstItem(packageNumber);
+		boolean[] selected = new boolean[getItemCount(packageNumber)];
+		for (Item item : pack.getSelectedItems()) {
+			int i = pack.getAvailableItems().indexOf(item);
+			if (i < 0 || i >= selected.length) {
+				throw new IllegalArgumentException("The selected item " + item.getIndexNumber()
+						+ " is not one of the package's items at position " + first);
+			}
+			selected[i] = true;
+		}
+		setSelectedItems(packageNumber, selected);
+		costsOfItems[packageNumber] = pack.getCostOfItems();
+		weightsOfItems[packageNumber] = pack.getWeightOfItems();
+		setSendPackage(packageNumber, pack.isSendPackage());
+		guaranteedRatios[packageNumber] = pack.getGuaranteedRatio();
+	}
+
+	// Finds the package of an item position with a binary search
+	private int findPackage(int position) {
+		int low = 0;
+		int high = packageCount - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (firstItems[middle] <= position) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	// The bit in the selection bitsets which belongs to an item position
+	private int selectionBit(int position) {
+		return selectionBit(findPackage(position), position);
+	}
+
+	private int selectionBit(int packageNumber, int position) {
+		return firstSelectionWords[packageNumber] * BITS_PER_WORD + position - firstItems[packageNumber];
+	}
+
+	private static int wordsFor(int bits) {
+		return (bits + BITS_PER_WORD - 1) / BITS_PER_WORD;
+	}
+
+	// Read only list of the packages in the batch as Package objects
+	private final class PackageView extends AbstractList<Package> implements RandomAccess {
+
+		@Override
+		public Package get(int index) {
+			if (index < 0 || index >= packageCount) {
+				throw new IndexOutOfBoundsException("index " + index + ", size " + packageCount);
+			}
+			return getPackage(index);
+		}
+
+		@Override
+		public int size() {
+			return packageCount;
+		}
+	}
+
+}
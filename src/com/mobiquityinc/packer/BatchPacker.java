@@ -0,0 +1,389 @@
+package com.mobiquityinc.packer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.mobiquityinc.algorithm.AbstractAlgorithmStrategy;
+import com.mobiquityinc.exception.APIException;
+import com.mobiquityinc.model.PackageBatch;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Packs many files at the same time on one pool of worker threads, so a
+ * scheduler does not need to start a JVM for every file. The files to pack
+ * are given as:
+ *
+ * - a directory: every file in the directory, in the order of their names
+ *
+ * - a glob, for example data/*.txt or data/**.txt: every file the glob
+ * matches, in the order of their paths
+ *
+ * - @file: every path listed in the file, one per line
+ *
+ * - any other path: the file itself
+ *
+ * Solutions (.out) and unfinished temporary files (.tmp) are left out of
+ * directories and globs, so a directory can be packed again.
+ *
+ * The solution of each file is written to its own file, named after the input
+ * file with .out added, in the output directory or else next to the input
+ * file. The solution is written to a temporary file first and moved to its
+ * destination once the file is packed, so a file which can not be packed
+ * leaves no output behind and only fails itself: the other files are still
+ * packed. Files whose solutions would be written to the same file, for
+ * example files with the same name in different directories packed to one
+ * output directory, or to a file which is itself packed, fail before any file
+ * is packed instead of overwriting each other. All the files share one
+ * strategy, so a package cache set by the packer.cacheSize system property is
+ * shared as well.
+ *
+ * The batch returns a Report with the result of every file and the packages
+ * and bytes packed per second by the whole batch. It can be run as a java
+ * application (or through Packer.main with --batch as first argument) with
+ * the options --threads=<number> and --output=<directory> followed by the
+ * files to pack.
+ */
+public class BatchPacker {
+
+	// The extension added to the name of an input file for its solution
+	public static final String OUTPUT_EXTENSION = ".out";
+	// The extension of a solution which is still being written
+	public static final String TEMPORARY_EXTENSION = ".tmp";
+
+	private final int threads;
+	private final Path outputDirectory;
+
+	// Packs on a thread for each processor and writes the solutions next to
+	// the input files
+	public BatchPacker() {
+		this(Runtime.getRuntime().availableProcessors(), null);
+	}
+
+	// Set the output directory to null to write the solutions next to the
+	// input files
+	public BatchPacker(int threads, Path outputDirectory) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("The number of threads must be 1 or more");
+		}
+		this.threads = threads;
+		this.outputDirectory = outputDirectory;
+	}
+
+	/*
+	 * Main method to run as java program. Prints the report of the batch and
+	 * throws an APIException if any file could not be packed.
+	 */
+	public static void main(String[] args) throws APIException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		Path outputDirectory = null;
+		List<String> inputs = new ArrayList<>();
+		for (String arg : args) {
+			if (arg.startsWith("--threads=")) {
+				try {
+					threads = Integer.parseInt(arg.substring("--threads=".length()));
+				} catch (NumberFormatException e) {
+					throw new APIException("Invalid number of threads " + arg, e);
+				}
+			} else if (arg.startsWith("--output=")) {
+				outputDirectory = Paths.get(arg.substring("--output=".length()));
+			} else {
+				inputs.add(arg);
+			}
+		}
+		if (inputs.isEmpty()) {
+			throw new APIException("Usage: BatchPacker [--threads=<number>] [--output=<directory>] "
+					+ "<directory|glob|@list|file>...");
+		}
+		Report report = new BatchPacker(threads, outputDirectory).pack(resolveInputs(inputs));
+		System.out.println(report);
+		if (report.getFailedFileCount() > 0) {
+			throw new APIException(report.getFailedFileCount() + " of " + report.getFileCount()
+					+ " files could not be packed");
+		}
+	}
+
+	// Finds the files given as directories, globs, lists or paths
+	public static List<Path> resolveInputs(List<String> inputs) throws APIException {
+		List<Path> files = new ArrayList<>();
+		for (String input : inputs) {
+			try {
+				if (input.startsWith("@")) {
+					for (String line : Files.readAllLines(Paths.get(input.substring(1)), StandardCharsets.UTF_8)) {
+						if (!line.trim().isEmpty()) {
+							files.add(Paths.get(line.trim()));
+						}
+					}
+				} else if (isGlob(input)) {
+					files.addAll(findMatchingFiles(input));
+				} else if (Files.isDirectory(Paths.get(input))) {
+					try (Stream<Path> directory = Files.list(Paths.get(input))) {
+						files.addAll(directory.filter(BatchPacker::isPackable).sorted().collect(Collectors.toList()));
+					}
+				} else {
+					files.add(Paths.get(input));
+				}
+			} catch (IOException | RuntimeException e) {
+				throw new APIException("Unable to find the files of " + input, e);
+			}
+		}
+		return files;
+	}
+
+	private static boolean isGlob(String input) {
+		for (char c : "*?[{".toCharArray()) {
+			if (input.indexOf(c) >= 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Regular files other than solutions and temporary files
+	private static boolean isPackable(Path path) {
+		String name = path.getFileName().toString();
+		return Files.isRegularFile(path) && !name.endsWith(OUTPUT_EXTENSION) && !name.endsWith(TEMPORARY_EXTENSION);
+	}
+
+	// Walks the directory before the first glob character for matching files
+	private static List<Path> findMatchingFiles(String glob) throws IOException {
+		int firstGlobCharacter = glob.length();
+		for (char c : "*?[{".toCharArray()) {
+			int position = glob.indexOf(c);
+			if (position >= 0) {
+				firstGlobCharacter = Math.min(firstGlobCharacter, position);
+			}
+		}
+		int separator = Math.max(glob.lastIndexOf('/', firstGlobCharacter),
+				glob.lastIndexOf(FileSystems.getDefault().getSeparator(), firstGlobCharacter));
+		Path directory = Paths.get(separator < 0 ? "." : glob.substring(0, separator + 1));
+		PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+		try (Stream<Path> paths = Files.walk(directory)) {
+			// Paths in the current directory are matched without ./ in front
+			return paths.filter(BatchPacker::isPackable)
+					.filter(path -> matcher.matches(separator < 0 ? directory.relativize(path) : path)).sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	/*
+	 * Packs the files at the same time on the worker threads. Waits until
+	 * every file is packed and returns the results in the order of the files.
+	 * Files whose solutions would overwrite another solution or a file of the
+	 * batch fail without being packed.
+	 */
+	public Report pack(List<Path> files) {
+		AbstractAlgorithmStrategy strategy = Packer.createAlgorithmStrategy();
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		long start = System.nanoTime();
+		try {
+			Map<Path, Long> outputCounts = files.stream()
+					.collect(Collectors.groupingBy(this::getAbsoluteOutputFile, Collectors.counting()));
+			Set<Path> inputs = files.stream().map(file -> file.toAbsolutePath().normalize())
+					.collect(Collectors.toSet());
+			List<Future<FileResult>> results = new ArrayList<>();
+			for (Path file : files) {
+				Path output = getAbsoluteOutputFile(file);
+				if (outputCounts.get(output) > 1) {
+					results.add(CompletableFuture.completedFuture(new FileResult(file, null, 0, 0, 0,
+							"The solution " + output + " would overwrite the solution of another file")));
+				} else if (inputs.contains(output)) {
+					results.add(CompletableFuture.completedFuture(new FileResult(file, null, 0, 0, 0,
+							"The solution " + output + " would overwrite a file which is packed")));
+				} else {
+					results.add(workers.submit(() -> packFile(file, strategy)));
+				}
+			}
+			List<FileResult> fileResults = new ArrayList<>();
+			for (int f = 0; f < results.size(); f++) {
+				fileResults.add(getResult(files.get(f), results.get(f)));
+			}
+			return new Report(fileResults, System.nanoTime() - start);
+		} finally {
+			workers.shutdownNow();
+		}
+	}
+
+	private FileResult getResult(Path file, Future<FileResult> result) {
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return new FileResult(file, null, 0, 0, 0, "Interrupted while packing the file");
+		} catch (ExecutionException e) {
+			return new FileResult(file, null, 0, 0, 0, String.valueOf(e.getCause()));
+		}
+	}
+
+	// Packs a file into a temporary file and moves it to its destination
+	private FileResult packFile(Path file, AbstractAlgorithmStrategy strategy) {
+		long start = System.nanoTime();
+		Path output = getOutputFile(file);
+		Path temporaryOutput = null;
+		try {
+			long size = Files.size(file);
+			PackageBatch packages = Packer.solveFile(file, strategy);
+			Path directory = output.toAbsolutePath().getParent();
+			Files.createDirectories(directory);
+			temporaryOutput = Files.createTempFile(directory, output.getFileName().toString(), TEMPORARY_EXTENSION);
+			try (OutputStream stream = Files.newOutputStream(temporaryOutput)) {
+				Packer.writeSolution(packages, stream);
+			}
+			Files.move(temporaryOutput, output, StandardCopyOption.REPLACE_EXISTING);
+			temporaryOutput = null;
+			return new FileResult(file, output, packages.getPackageCount(), size, System.nanoTime() - start, null);
+		} catch (APIException | IOException | RuntimeException e) {
+			String cause = e.getCause() == null || e.getCause().getMessage() == null ? ""
+					: " (" + e.getCause().getMessage() + ")";
+			return new FileResult(file, null, 0, 0, System.nanoTime() - start, e.getMessage() + cause);
+		} finally {
+			if (temporaryOutput != null) {
+				try {
+					Files.deleteIfExists(temporaryOutput);
+				} catch (IOException e) {
+					// The temporary file is left behind
+				}
+			}
+		}
+	}
+
+	// The file the solution of an input file is written to
+	public Path getOutputFile(Path file) {
+		String name = file.getFileName() + OUTPUT_EXTENSION;
+		return outputDirectory == null ? file.resolveSibling(name) : outputDirectory.resolve(name);
+	}
+
+	private Path getAbsoluteOutputFile(Path file) {
+		return getOutputFile(file).toAbsolutePath().normalize();
+	}
+
+	// The result of packing one file
+	public static final class FileResult {
+
+		private final Path file;
+		private final Path output;
+		private final int packageCount;
+		private final long byteCount;
+		private final long elapsedNanos;
+		private final String error;
+
+		FileResult(Path file, Path output, int packageCount, long byteCount, long elapsedNanos, String error) {
+			this.file = file;
+			this.output = output;
+			this.packageCount = packageCount;
+			this.byteCount = byteCount;
+			this.elapsedNanos = elapsedNanos;
+			this.error = error;
+		}
+
+		public Path getFile() {
+			return file;
+		}
+
+		// The file the solution was written to, or null if the file failed
+		public Path getOutput() {
+			return output;
+		}
+
+		public int getPackageCount() {
+			return packageCount;
+		}
+
+		public long getByteCount() {
+			return byteCount;
+		}
+
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		public boolean isFailed() {
+			return error != null;
+		}
+
+		// The reason the file could not be packed, or null
+		public String getError() {
+			return error;
+		}
+	}
+
+	// The results of all the files and the throughput of the batch
+	public static final class Report {
+
+		private final List<FileResult> fileResults;
+		private final long elapsedNanos;
+
+		Report(List<FileResult> fileResults, long elapsedNanos) {
+			this.fileResults = Collections.unmodifiableList(fileResults);
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		public List<FileResult> getFileResults() {
+			return fileResults;
+		}
+
+		public int getFileCount() {
+			return fileResults.size();
+		}
+
+		public int getFailedFileCount() {
+			return (int) fileResults.stream().filter(FileResult::isFailed).count();
+		}
+
+		public long getPackageCount() {
+			return fileResults.stream().mapToLong(FileResult::getPackageCount).sum();
+		}
+
+		public long getByteCount() {
+			return fileResults.stream().mapToLong(FileResult::getByteCount).sum();
+		}
+
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		public double getPackagesPerSecond() {
+			return getPackageCount() * 1e9 / Math.max(elapsedNanos, 1);
+		}
+
+		public double getBytesPerSecond() {
+			return getByteCount() * 1e9 / Math.max(elapsedNanos, 1);
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder report = new StringBuilder(String.format(
+					"files: %d (%d failed)%npackages: %d%nelapsed: %.3f s%npackages/sec: %.0f%nMB/sec: %.2f",
+					getFileCount(), getFailedFileCount(), getPackageCount(), elapsedNanos / 1e9,
+					getPackagesPerSecond(), getBytesPerSecond() / (1024 * 1024)));
+			for (FileResult result : fileResults) {
+				if (result.isFailed()) {
+					report.append(String.format("%nfailed: %s: %s", result.getFile(), result.getError()));
+				}
+			}
+			return report.toString();
+		}
+	}
+
+}
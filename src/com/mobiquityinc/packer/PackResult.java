@@ -0,0 +1,78 @@
+package com.mobiquityinc.packer;
+
+import com.mobiquityinc.exception.APIException;
+import com.mobiquityinc.model.PackageBatch;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * The solution of a packed file as returned by the PackerService. The
+ * solution is the same text as returned by Packer.pack, with the selected
+ * items or "-" on a line for each package. Next to the solution the ratio of
+ * the optimal cost guaranteed by the selection of each package is kept, which
+ * is less than 1 for the packages whose selection is approximate.
+ */
+public final class PackResult {
+
+	private final String solution;
+	private final int packageCount;
+	private final int sentPackageCount;
+	private final double[] guaranteedRatios;
+
+	PackResult(PackageBatch packages) throws APIException {
+		this.solution = Packer.convertSolutionToString(packages);
+		this.packageCount = packages.getPackageCount();
+		int sent = 0;
+		for (int p = 0; p < packageCount; p++) {
+			if (packages.isSendPackage(p)) {
+				sent++;
+			}
+		}
+		this.sentPackageCount = sent;
+		this.guaranteedRatios = new double[packageCount];
+		for (int p = 0; p < packageCount; p++) {
+			guaranteedRatios[p] = packages.getGuaranteedRatio(p);
+		}
+	}
+
+	public String getSolution() {
+		return solution;
+	}
+
+	public int getPackageCount() {
+		return packageCount;
+	}
+
+	public int getSentPackageCount() {
+		return sentPackageCount;
+	}
+
+	// The ratio of the optimal cost guaranteed for the package, numbered
+	// from 0 in the order of the file (see Package.getGuaranteedRatio)
+	public double getGuaranteedRatio(int packageNumber) {
+		return guaranteedRatios[packageNumber];
+	}
+
+	// True if the selection of the package may not be optimal
+	public boolean isApproximate(int packageNumber) {
+		return guaranteedRatios[packageNumber] < 1;
+	}
+
+	public int getApproximatePackageCount() {
+		int count = 0;
+		for (double guaranteedRatio : guaranteedRatios) {
+			if (guaranteedRatio < 1) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public String toString() {
+		return solution;
+	}
+
+}
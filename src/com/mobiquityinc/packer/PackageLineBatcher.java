@@ -0,0 +1,127 @@
+package com.mobiquityinc.packer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.IntStream;
+
+import com.mobiquityinc.algorithm.AbstractAlgorithmStrategy;
+import com.mobiquityinc.exception.APIException;
+import com.mobiquityinc.model.PackageBatch;
+import com.mobiquityinc.parser.PackageLineParser;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Solves single package lines submitted by many callers in batches. The lines
+ * are queued and a single thread takes every line which is waiting, parses
+ * them into one PackageBatch and solves the packages of the batch in
+ * parallel. A batch is started as soon as the previous batch is done, without
+ * waiting for more lines, so a line is never delayed while the solver is idle
+ * and lines arriving while a batch is solved are solved together in the next
+ * batch.
+ *
+ * Each line is packed on its own: the result of a line is its selected items,
+ * or "-" if no items are selected, no matter which other lines are in the
+ * batch.
+ */
+class PackageLineBatcher implements AutoCloseable {
+
+	private final AbstractAlgorithmStrategy strategy;
+	private final int maximumBatchSize;
+	private final BlockingQueue<Request> requests = new LinkedBlockingQueue<>();
+	private final Thread worker;
+	private volatile boolean closed = false;
+
+	PackageLineBatcher(AbstractAlgorithmStrategy strategy, int maximumBatchSize) {
+		if (maximumBatchSize < 1) {
+			throw new IllegalArgumentException("The maximum batch size must be 1 or more");
+		}
+		this.strategy = strategy;
+		this.maximumBatchSize = maximumBatchSize;
+		this.worker = new Thread(this::solveBatches, "packer-line-batcher");
+		this.worker.setDaemon(true);
+		this.worker.start();
+	}
+
+	// Queues a line to be solved in the next batch
+	CompletableFuture<String> submit(String line) {
+		Request request = new Request(line);
+		requests.add(request);
+		// The worker fails the waiting lines once it is closed, unless it
+		// was closed before the line was queued
+		if (closed && requests.remove(request)) {
+			request.result.completeExceptionally(new APIException("The server is closed"));
+		}
+		return request.result;
+	}
+
+	private void solveBatches() {
+		PackageLineParser parser = new PackageLineParser();
+		PackageBatch batch = new PackageBatch();
+		List<Request> waitingRequests = new ArrayList<>(maximumBatchSize);
+		List<Request> parsedRequests = new ArrayList<>(maximumBatchSize);
+		while (!closed) {
+			try {
+				waitingRequests.add(requests.take());
+			} catch (InterruptedException e) {
+				break;
+			}
+			requests.drainTo(waitingRequests, maximumBatchSize - 1);
+			batch.clear();
+			parsedRequests.clear();
+			for (Request request : waitingRequests) {
+				try {
+					parser.parse(request.line, 1, batch);
+					parsedRequests.add(request);
+				} catch (APIException e) {
+					request.result.completeExceptionally(e);
+				}
+			}
+			waitingRequests.clear();
+			solve(batch, parsedRequests);
+		}
+		// Fail the lines which were not solved before the batcher was closed
+		for (Request request = requests.poll(); request != null; request = requests.poll()) {
+			request.result.completeExceptionally(new APIException("The server is closed"));
+		}
+	}
+
+	private void solve(PackageBatch batch, List<Request> parsedRequests) {
+		try {
+			IntStream packageNumbers = IntStream.range(0, batch.getPackageCount());
+			(batch.getPackageCount() > 1 ? packageNumbers.parallel() : packageNumbers)
+					.forEach(p -> strategy.solvePackage(batch, p));
+			for (int p = 0; p < parsedRequests.size(); p++) {
+				parsedRequests.get(p).result
+						.complete(batch.hasSelectedItems(p) ? Packer.formatSelectedItems(batch, p) : "-");
+			}
+		} catch (RuntimeException e) {
+			for (Request request : parsedRequests) {
+				request.result.completeExceptionally(new APIException(e.getMessage(), e));
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		worker.interrupt();
+	}
+
+	// A line and the future its result is given to
+	private static final class Request {
+
+		private final String line;
+		private final CompletableFuture<String> result = new CompletableFuture<>();
+
+		Request(String line) {
+			this.line = line;
+		}
+	}
+
+}
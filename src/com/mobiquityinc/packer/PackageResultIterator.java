@@ -0,0 +1,201 @@
+package com.mobiquityinc.packer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.mobiquityinc.algorithm.AbstractAlgorithmStrategy;
+import com.mobiquityinc.algorithm.IncrementalPackageChooser;
+import com.mobiquityinc.exception.APIException;
+import com.mobiquityinc.metrics.PackerMetrics;
+import com.mobiquityinc.metrics.PackerMetrics.Counter;
+import com.mobiquityinc.metrics.PackerMetrics.Stage;
+import com.mobiquityinc.model.PackageBatch;
+import com.mobiquityinc.parser.PackageLineParser;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Iterator which reads the lines of a file one at a time, solves the package
+ * on each line and returns the result for each line in the order of the file.
+ * Each line is parsed into the same batch, which is cleared before the next
+ * line.
+ *
+ * Whether a package is sent can depend on the last line of the file, so every
+ * line is solved before the first result is returned (see
+ * IncrementalPackageChooser). Only the cost and the formatted selected items
+ * of each package are kept until then, in a buffer in memory which is written
+ * to a temporary file whenever it holds more than the memory limit, so the
+ * memory used does not grow with the number of lines. The temporary file is
+ * deleted once the last result is returned or the iterator is closed.
+ *
+ * The time taken to read each line, parse it, format its result and add it to
+ * the packages to choose from is recorded in the default PackerMetrics.
+ */
+class PackageResultIterator implements Iterator<String> {
+
+	// The bytes of results kept in memory before they are written to a file
+	static final int DEFAULT_MEMORY_LIMIT = 1024 * 1024;
+
+	private final Iterator<String> lines;
+	private final AbstractAlgorithmStrategy strategy;
+	private final int memoryLimit;
+	private final IncrementalPackageChooser chooser = new IncrementalPackageChooser();
+	private final PackageLineParser parser = new PackageLineParser();
+	private final PackageBatch batch = new PackageBatch();
+	private final PackerMetrics metrics = PackerMetrics.getDefault();
+
+	// The results of the lines solved so far and the file they are spilled to
+	private final ByteArrayOutputStream bufferedResults = new ByteArrayOutputStream();
+	private final DataOutputStream resultWriter = new DataOutputStream(bufferedResults);
+	private Path spillFile;
+	private OutputStream spillOutput;
+	private DataInputStream resultReader;
+	private long nextPackage = 0;
+
+	PackageResultIterator(Iterator<String> lines, AbstractAlgorithmStrategy strategy) {
+		this(lines, strategy, DEFAULT_MEMORY_LIMIT);
+	}
+
+	PackageResultIterator(Iterator<String> lines, AbstractAlgorithmStrategy strategy, int memoryLimit) {
+		this.lines = lines;
+		this.strategy = strategy;
+		this.memoryLimit = memoryLimit;
+	}
+
+	@Override
+	public boolean hasNext() {
+		try {
+			if (resultReader == null) {
+				solveAllLines();
+			}
+			if (nextPackage < chooser.getPackageCount()) {
+				return true;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		close();
+		return false;
+	}
+
+	@Override
+	public String next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		try {
+			double costOfItems = resultReader.readDouble();
+			byte[] selectedItems = new byte[resultReader.readInt()];
+			resultReader.readFully(selectedItems);
+			long start = System.nanoTime();
+			boolean sendPackage = chooser.isSendPackage(nextPackage++, costOfItems, selectedItems.length > 0);
+			metrics.record(Stage.CHOOSE_PACKAGES, start);
+			if (!sendPackage) {
+				// If the package should not be sent the result is "-"
+				return "-";
+			}
+			metrics.increment(Counter.SENT_PACKAGES);
+			return new String(selectedItems, StandardCharsets.US_ASCII);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Deletes the temporary file with the results if there is one
+	void close() {
+		try {
+			try {
+				if (spillOutput != null) {
+					spillOutput.close();
+				}
+				if (resultReader != null) {
+					resultReader.close();
+				}
+			} finally {
+				if (spillFile != null) {
+					Files.deleteIfExists(spillFile);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Solves every line and keeps the results until they are handed out
+	private void solveAllLines() throws IOException {
+		while (true) {
+			long start = System.nanoTime();
+			if (!lines.hasNext()) {
+				break;
+			}
+			String line = lines.next();
+			metrics.record(Stage.READ_FILE, start);
+			addPackage(line);
+			if (bufferedResults.size() > memoryLimit) {
+				spillResults();
+			}
+		}
+		chooser.finish();
+		InputStream results;
+		if (spillFile == null) {
+			results = new ByteArrayInputStream(bufferedResults.toByteArray());
+		} else {
+			spillResults();
+			spillOutput.close();
+			spillOutput = null;
+			results = new BufferedInputStream(Files.newInputStream(spillFile));
+		}
+		bufferedResults.reset();
+		resultReader = new DataInputStream(results);
+	}
+
+	// Moves the results in memory to the end of the temporary file
+	private void spillResults() throws IOException {
+		if (spillFile == null) {
+			spillFile = Files.createTempFile("packer", ".results");
+			spillOutput = new BufferedOutputStream(Files.newOutputStream(spillFile));
+		}
+		bufferedResults.writeTo(spillOutput);
+		bufferedResults.reset();
+	}
+
+	// Solve the package on the line and keep its result until it is chosen
+	private void addPackage(String line) throws IOException {
+		batch.clear();
+		int packageNumber;
+		long start = System.nanoTime();
+		try {
+			packageNumber = parser.parse(line, chooser.getPackageCount() + 1, batch);
+		} catch (APIException e) {
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+		metrics.record(Stage.PARSE, start);
+		strategy.solvePackage(batch, packageNumber);
+		start = System.nanoTime();
+		String selectedItems = Packer.formatSelectedItems(batch, packageNumber);
+		double costOfItems = batch.getCostOfItems(packageNumber);
+		resultWriter.writeDouble(costOfItems);
+		resultWriter.writeInt(selectedItems.length());
+		resultWriter.writeBytes(selectedItems);
+		metrics.record(Stage.FORMAT_OUTPUT, start);
+		start = System.nanoTime();
+		chooser.add(costOfItems, batch.getWeightOfItems(packageNumber));
+		metrics.record(Stage.CHOOSE_PACKAGES, start);
+	}
+
+}
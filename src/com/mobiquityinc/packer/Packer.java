@@ -1,21 +1,39 @@
 package com.mobiquityinc.packer;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Scanner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import com.mobiquityinc.algorithm.AbstractAlgorithmStrategy;
+import com.mobiquityinc.algorithm.AdaptiveAlgorithmStrategy;
 import com.mobiquityinc.algorithm.AlgorithmContext;
 import com.mobiquityinc.algorithm.BinaryLPAlgorithmStrategy;
+import com.mobiquityinc.algorithm.CachingAlgorithmStrategy;
+import com.mobiquityinc.algorithm.FptasAlgorithmStrategy;
+import com.mobiquityinc.algorithm.TimeBudgetAlgorithmStrategy;
 import com.mobiquityinc.exception.APIException;
-import com.mobiquityinc.model.Item;
+import com.mobiquityinc.metrics.PackerMetrics;
+import com.mobiquityinc.metrics.PackerMetrics.Stage;
+import com.mobiquityinc.model.OffHeapPackageStore;
 import com.mobiquityinc.model.Package;
-import com.mobiquityinc.util.StringUtil;
+import com.mobiquityinc.model.PackageBatch;
+import com.mobiquityinc.parser.BinaryPackageFile;
+import com.mobiquityinc.parser.MappedPackageFileReader;
+import com.mobiquityinc.parser.PackageLineParser;
 
 /**
  * @author Dewald Pieters
@@ -46,6 +64,16 @@ import com.mobiquityinc.util.StringUtil;
  * NOTE: the library user prints some of its calculations and decisions to the
  * console and does not provide the capability to switch this off.
  * 
+ * The linear programming solver is only used for packages with weights or
+ * costs which are not whole hundredths. The algorithm for each package is
+ * chosen by the AdaptiveAlgorithmStrategy from its number of items and
+ * capacity, using fixed thresholds unless they are calibrated on the machine
+ * (see CALIBRATE_PROPERTY). With a time budget for each package (see
+ * TIME_BUDGET_PROPERTY) the items are selected by the
+ * TimeBudgetAlgorithmStrategy instead, and packages with more items than a
+ * set maximum can be approximated by the FptasAlgorithmStrategy (see
+ * MAXIMUM_EXACT_ITEMS_PROPERTY).
+ * 
  * Data Structures:
  * 
  * For each line read from the data file, a Package object is created (in
@@ -59,6 +87,18 @@ import com.mobiquityinc.util.StringUtil;
  * structure can be derived which makes it very generic. Also, from a
  * maintainability point of view it is easy to understand and maintain.
  * 
+ * When a whole file is packed, the packages are held in a PackageBatch
+ * instead, which keeps the data of all the packages in flat primitive arrays
+ * and solves and prints them without creating a Package or Item object. The
+ * Package objects remain available as a view of the batch. For files with so
+ * many packages that the batch would fill the heap, the packages can be held
+ * in an OffHeapPackageStore outside the heap instead (see
+ * OFF_HEAP_MEMORY_PROPERTY).
+ * 
+ * Files which are packed many times can be converted to a binary format once
+ * (see BinaryPackageFileWriter). The packages of a binary file are decoded
+ * from the mapped file without parsing any text (see BinaryPackageFile).
+ * 
  * Design Pattern:
  * 
  * For this problem I implemented the strategy pattern to ensure that the
@@ -66,47 +106,167 @@ import com.mobiquityinc.util.StringUtil;
  * ensures (extendibility, maintainability, single responsibility, interfaces
  * and applies open close principle). This behavioural pattern is best suited
  * for these kind of situations as it gives this application to solve the same
- * issue using different algorithms (even though there is currently only one).
+ * issue using different algorithms (see the AbstractAlgorithmStrategy
+ * subclasses in com.mobiquityinc.algorithm).
+ * 
+ * Metrics:
+ * 
+ * The time taken by each stage (reading the file, parsing, presolving,
+ * selecting the items, building and solving the linear programs, choosing the
+ * packages to send and formatting the output) and counters of the packages,
+ * items and selections are recorded in the default PackerMetrics, which is
+ * published as an MBean (see com.mobiquityinc.metrics).
  */
 
 public class Packer {
+
+	/*
+	 * System property with the number of threads used to read and solve the
+	 * packages, for example -Dpacker.parallelism=4. The packages are read and
+	 * solved by a single thread if the property is not set. When the property
+	 * is set, main packs a text file as a whole instead of line by line.
+	 */
+	public static final String PARALLELISM_PROPERTY = "packer.parallelism";
+
+	/*
+	 * System property with the number of solved packages to remember, for
+	 * example -Dpacker.cacheSize=10000. Packages with the same capacity and
+	 * items as a remembered package are not solved again. Nothing is
+	 * remembered if the property is not set.
+	 */
+	public static final String CACHE_SIZE_PROPERTY = "packer.cacheSize";
+
+	/*
+	 * System property to print a summary of the metrics to the error output
+	 * once main has printed the results, for example -Dpacker.metrics=true.
+	 */
+	public static final String METRICS_PROPERTY = "packer.metrics";
+
+	/*
+	 * System property with the time in microseconds the items of a package
+	 * may take to select, for example -Dpacker.timeBudgetMicros=500. A package
+	 * which is not solved within the budget gets the best selection found
+	 * (see TimeBudgetAlgorithmStrategy). The time is not bounded if the
+	 * property is not set.
+	 */
+	public static final String TIME_BUDGET_PROPERTY = "packer.timeBudgetMicros";
+
+	/*
+	 * System property with the number of items above which a package is
+	 * approximated instead of solved exactly, for example
+	 * -Dpacker.maximumExactItems=200. The approximation costs at least 1 -
+	 * epsilon times the optimal cost, with epsilon set by EPSILON_PROPERTY
+	 * (see FptasAlgorithmStrategy). Every package is solved exactly if the
+	 * property is not set.
+	 */
+	public static final String MAXIMUM_EXACT_ITEMS_PROPERTY = "packer.maximumExactItems";
+
+	/*
+	 * System property to calibrate the thresholds of the algorithm chosen for
+	 * each package on this machine, for example -Dpacker.calibrate=true. The
+	 * fixed default thresholds of AdaptiveAlgorithmStrategy are used if the
+	 * property is not set, so the same file always gives the same solution.
+	 */
+	public static final String CALIBRATE_PROPERTY = "packer.calibrate";
+
+	// System property with the epsilon of the approximation, for example
+	// -Dpacker.epsilon=0.05
+	public static final String EPSILON_PROPERTY = "packer.epsilon";
+
+	/*
+	 * System property with the megabytes of memory outside the heap used to
+	 * hold the packages of a file packed to an output stream, for example
+	 * -Dpacker.offHeapMemory=512. Packages beyond that are held in a temporary
+	 * file mapped into memory (see OffHeapPackageStore). The memory is also
+	 * limited by -XX:MaxDirectMemorySize, which is the maximum heap size unless
+	 * it is set. The packages are held on the heap if the property is not set.
+	 * When the property is set, main packs a text file as a whole instead of
+	 * line by line.
+	 */
+	public static final String OFF_HEAP_MEMORY_PROPERTY = "packer.offHeapMemory";
+
+	// The first argument of main to pack many files (see BatchPacker)
+	public static final String BATCH_OPTION = "--batch";
+
 	/*
 	 * Main method to run as java program. The program takes in as its first
 	 * argument the absolute file path to a test file and prints the results to
-	 * the console.
+	 * the console. Each line is solved as it is read and its result waits in a
+	 * temporary file until every line is solved, so the size of the file does
+	 * not affect the memory used for the packages (see packStream). A binary
+	 * file, or a text file when PARALLELISM_PROPERTY or
+	 * OFF_HEAP_MEMORY_PROPERTY is set, is packed as a whole instead: it is
+	 * read by the mapped reader and solved on the threads of the parallelism,
+	 * on or off the heap (see pack). As the whole solution used to be printed
+	 * with println, the results end with an empty line. With --batch as first
+	 * argument, the other arguments are passed to BatchPacker to pack many
+	 * files at the same time.
 	 */
 	public static void main(String[] args) throws APIException {
 
+		if (args.length > 0 && BATCH_OPTION.equals(args[0])) {
+			BatchPacker.main(Arrays.copyOfRange(args, 1, args.length));
+			printMetrics();
+			return;
+		}
 		String eneterdAbsoluteFilePath = "";
 		if (args.length == 0) {
 			Scanner scanner = new Scanner(System.in);
 			System.out.println("Enter the absolute path for txt data file: ");
 			eneterdAbsoluteFilePath = scanner.nextLine();
 			scanner.close();
-			System.out.println(pack(eneterdAbsoluteFilePath));
 		} else {
-			System.out.println(pack(args[0]));
+			eneterdAbsoluteFilePath = args[0];
+		}
+		if (isPackedAsWhole(Paths.get(eneterdAbsoluteFilePath))) {
+			pack(eneterdAbsoluteFilePath, System.out);
+			System.out.println();
+			printMetrics();
+			return;
+		}
+		SolutionWriter output = new SolutionWriter(System.out);
+		try (Stream<String> results = packStream(eneterdAbsoluteFilePath)) {
+			for (Iterator<String> iterator = results.iterator(); iterator.hasNext();) {
+				output.writeLine(iterator.next());
+			}
+			output.writeLine("");
+		} catch (IOException e) {
+			throw new APIException("Unable to write the solution", e);
+		} catch (RuntimeException e) {
+			throw new APIException(e.getMessage(), e);
+		} finally {
+			// Print the results of the lines before an error as well
+			flush(output);
 		}
+		printMetrics();
 
 	}
 
+	/*
+	 * Returns true if main packs the file as a whole: a binary file has no
+	 * lines to stream, and the threads and the memory outside the heap are
+	 * only used when the whole file is read at once.
+	 */
+	private static boolean isPackedAsWhole(Path file) throws APIException {
+		return BinaryPackageFile.isBinaryPackageFile(file) || System.getProperty(PARALLELISM_PROPERTY) != null
+				|| System.getProperty(OFF_HEAP_MEMORY_PROPERTY) != null;
+	}
+
+	// Prints the metrics summary if the metrics property is set
+	private static void printMetrics() {
+		if (Boolean.getBoolean(METRICS_PROPERTY)) {
+			System.err.print(PackerMetrics.getDefault().getSummary());
+		}
+	}
+
 	/*
 	 * This method performs the high level orchestration to solve the packing
 	 * problem. It takes in the absolute file path of a file as a String with
 	 * test data.
 	 */
 	public static String pack(String absoluteFilePath) throws APIException {
-		// Read file into stream
-		try (Stream<String> stream = readFile(absoluteFilePath);) {
-			// Convert the stream into a list o Package objects
-			List<Package> packages = extractPackageData(stream);
-			// Instantiate the algorithm strategy context
-			AlgorithmContext algorithm = new AlgorithmContext();
-			// Set the strategy to user as the binary linear programming
-			// strategy
-			algorithm.setAlgorithmStrategy(new BinaryLPAlgorithmStrategy());
-			// Solve the problem using the binary linear programming algorithm
-			algorithm.solveProblem(packages);
+		try {
+			PackageBatch packages = solveFile(Paths.get(absoluteFilePath), createAlgorithmStrategy());
 			// Return the result as a string
 			return convertSolutionToString(packages);
 		} catch (Exception e) {
@@ -114,35 +274,197 @@ public class Packer {
 		}
 	}
 
-	// Produces the solution of the packing problem as a string
+	/*
+	 * Solves the packing problem for a file and writes the solution to the
+	 * output stream in the same format as pack, without holding the solution
+	 * in memory. The output stream is flushed but not closed.
+	 */
+	public static void pack(String absoluteFilePath, OutputStream output) throws APIException {
+		Long offHeapMemory = Long.getLong(OFF_HEAP_MEMORY_PROPERTY);
+		if (offHeapMemory != null) {
+			packOffHeap(Paths.get(absoluteFilePath), offHeapMemory * 1024 * 1024, output);
+			return;
+		}
+		PackageBatch packages;
+		try {
+			packages = solveFile(Paths.get(absoluteFilePath), createAlgorithmStrategy());
+		} catch (Exception e) {
+			throw new APIException(e.getMessage());
+		}
+		writeSolution(packages, output);
+	}
+
+	/*
+	 * Reads the packages in a file into an off-heap store, solves them and
+	 * writes the solution to the output stream. The store is closed once the
+	 * solution is written.
+	 */
+	static void packOffHeap(Path file, long memoryLimit, OutputStream output) throws APIException {
+		try (OffHeapPackageStore packages = new OffHeapPackageStore(memoryLimit,
+				Paths.get(System.getProperty("java.io.tmpdir")))) {
+			new MappedPackageFileReader(getParallelism()).readInto(file, packages);
+			createAlgorithmStrategy().solveProblem(packages);
+			long start = System.nanoTime();
+			SolutionWriter writer = new SolutionWriter(output);
+			writer.writePackages(packages);
+			writer.flush();
+			PackerMetrics.getDefault().record(Stage.FORMAT_OUTPUT, start);
+		} catch (IOException | RuntimeException e) {
+			throw new APIException("Unable to pack the file off the heap", e);
+		}
+	}
+
+	// Reads the packages in a file and solves them using the strategy
+	static PackageBatch solveFile(Path file, AbstractAlgorithmStrategy strategy) throws APIException {
+		// Map the file into memory and parse its chunks in parallel into a
+		// batch of packages
+		PackageBatch packages = new MappedPackageFileReader(getParallelism()).readBatch(file);
+		// Instantiate the algorithm strategy context
+		AlgorithmContext algorithm = new AlgorithmContext();
+		// Set the strategy to choose the algorithm for each package
+		algorithm.setAlgorithmStrategy(strategy);
+		// Solve the problem using the chosen algorithms
+		algorithm.solveProblem(packages);
+		return packages;
+	}
+
+	/*
+	 * Solves the packing problem one line at a time and returns a lazy stream
+	 * with the result for each line in the order of the file. Whether a
+	 * package is sent can depend on the last line, so the first result is only
+	 * produced once every line is solved. Until then only the cost and the
+	 * formatted result of each line are kept, and they are written to a
+	 * temporary file beyond a small buffer, so the whole file is never held in
+	 * memory (see PackageResultIterator). The stream must be closed to close
+	 * the file and delete the temporary file. Errors while reading the file
+	 * are thrown as unchecked exceptions while the stream is consumed.
+	 */
+	public static Stream<String> packStream(String absoluteFilePath) throws APIException {
+		return packStream(absoluteFilePath, createAlgorithmStrategy());
+	}
+
+	// Solves the packing problem one line at a time using the provided strategy
+	public static Stream<String> packStream(String absoluteFilePath, AbstractAlgorithmStrategy strategy)
+			throws APIException {
+		Stream<String> lines = readFile(absoluteFilePath);
+		PackageResultIterator results = new PackageResultIterator(lines.iterator(), strategy);
+		return StreamSupport
+				.stream(Spliterators.spliteratorUnknownSize(results, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(lines::close).onClose(results::close);
+	}
+
+	// Creates the strategy used to solve the packing problem, as set by the
+	// system properties
+	public static AbstractAlgorithmStrategy createAlgorithmStrategy() {
+		AbstractAlgorithmStrategy strategy;
+		Long timeBudget = Long.getLong(TIME_BUDGET_PROPERTY);
+		if (timeBudget != null) {
+			strategy = new TimeBudgetAlgorithmStrategy(TimeUnit.MICROSECONDS.toNanos(timeBudget));
+		} else {
+			AdaptiveAlgorithmStrategy adaptiveStrategy = new AdaptiveAlgorithmStrategy(
+					new BinaryLPAlgorithmStrategy());
+			// Calibrated thresholds differ between machines and runs, and the
+			// algorithms may select different items of the same cost and weight
+			if (Boolean.getBoolean(CALIBRATE_PROPERTY)) {
+				adaptiveStrategy.apply(AdaptiveAlgorithmStrategy.getDefaultCalibration());
+			}
+			Integer maximumExactItems = Integer.getInteger(MAXIMUM_EXACT_ITEMS_PROPERTY);
+			if (maximumExactItems != null) {
+				String epsilon = System.getProperty(EPSILON_PROPERTY);
+				adaptiveStrategy.setApproximation(new FptasAlgorithmStrategy(
+						epsilon == null ? FptasAlgorithmStrategy.DEFAULT_EPSILON : Double.parseDouble(epsilon)),
+						maximumExactItems);
+			}
+			strategy = adaptiveStrategy;
+		}
+		int cacheSize = Integer.getInteger(CACHE_SIZE_PROPERTY, 0);
+		if (cacheSize > 0) {
+			strategy = new CachingAlgorithmStrategy(strategy, cacheSize);
+		}
+		strategy.setParallelism(getParallelism());
+		return strategy;
+	}
+
+	// The number of threads used to read and solve the packages
+	private static int getParallelism() {
+		return Integer.getInteger(PARALLELISM_PROPERTY, 1);
+	}
+
+	/*
+	 * Produces the solution of the packing problem as a string. Each package
+	 * is written by the SolutionWriter: the selected item indexes separated by
+	 * commas if the package should be sent, or else "-", on a line of its own.
+	 */
 	protected static String convertSolutionToString(List<Package> packages) throws APIException {
 
+		long start = System.nanoTime();
+		try {
+			ByteArrayOutputStream solution = new ByteArrayOutputStream();
+			SolutionWriter writer = new SolutionWriter(solution);
+			for (Package pack : packages) {
+				writer.writePackage(pack);
+			}
+			writer.flush();
+			PackerMetrics.getDefault().record(Stage.FORMAT_OUTPUT, start);
+			return new String(solution.toByteArray(), StandardCharsets.ISO_8859_1);
+		} catch (Exception e) {
+			throw new APIException("Unable to convert solution to string");
+		}
+
+	}
+
+	// Produces the solution of the packing problem for a batch as a string
+	protected static String convertSolutionToString(PackageBatch packages) throws APIException {
+		ByteArrayOutputStream solution = new ByteArrayOutputStream();
+		writeSolution(packages, solution);
+		return new String(solution.toByteArray(), StandardCharsets.ISO_8859_1);
+	}
+
+	// Writes the solution of the packing problem for a batch to the output
+	// stream one package at a time
+	protected static void writeSolution(PackageBatch packages, OutputStream output) throws APIException {
+
+		long start = System.nanoTime();
 		try {
-			StringBuilder solution = new StringBuilder();
-			packages.stream().forEach(p -> {
-				if (p.isSendPackage()) {
-					// If the package should be sent, map the selected item
-					// indexes
-					// to a comma separated string and add to the result
-					solution.append(p.getSelectedItems().stream().map(i -> String.valueOf(i.getIndexNumber()))
-							.collect(Collectors.joining(",")));
-				} else {
-					// If the package should not be send append "-" to the
-					// string
-					solution.append("-");
-				}
-				// Add a new line character to string to print each package on a
-				// new
-				// line
-				solution.append(System.getProperty("line.separator"));
-			});
-			return solution.toString();
+			SolutionWriter writer = new SolutionWriter(output);
+			writer.writePackages(packages);
+			writer.flush();
+			PackerMetrics.getDefault().record(Stage.FORMAT_OUTPUT, start);
 		} catch (Exception e) {
 			throw new APIException("Unable to convert solution to string");
 		}
 
 	}
 
+	private static void flush(SolutionWriter output) throws APIException {
+		try {
+			output.flush();
+		} catch (IOException e) {
+			throw new APIException("Unable to write the solution", e);
+		}
+	}
+
+	// Maps the indexes of the selected items of a package in a batch to a
+	// comma separated string
+	protected static String formatSelectedItems(PackageBatch packages, int packageNumber) {
+		StringBuilder selectedItems = new StringBuilder();
+		appendSelectedItems(selectedItems, packages, packageNumber);
+		return selectedItems.toString();
+	}
+
+	private static void appendSelectedItems(StringBuilder text, PackageBatch packages, int packageNumber) {
+		int firstItem = packages.getFirstItem(packageNumber);
+		boolean first = true;
+		for (int i = packages.nextSelectedItem(packageNumber, firstItem); i >= 0; i = packages
+				.nextSelectedItem(packageNumber, i + 1)) {
+			if (!first) {
+				text.append(',');
+			}
+			text.append(packages.getIndexNumber(i));
+			first = false;
+		}
+	}
+
 	// This method retrieves the provided file data and returns the list of
 	// extracted packages required by the calling method to solve a packing
 	// problem
@@ -160,43 +482,22 @@ public class Packer {
 		/*
 		 * For each line string in the stream, map the line to a new Package
 		 * objects and populate the package's maximum allowed weight, as well as
-		 * items/things to choose from. The maximum allowed weight of theF
-		 * package is extracted from the line using a generic method in the
-		 * string utility class, whereas the available items to choose from for
-		 * the given package is extracted and returned by another method.
+		 * items/things to choose from. The line is read by the package line
+		 * parser which reports the line and column of any formatting error.
 		 */
+		PackageLineParser parser = new PackageLineParser();
+		List<Package> packages = new ArrayList<>();
+		long lineNumber = 0;
 		try {
-			return stream.map(line -> {
-				// Instantiate an regular expression instance with a pattern to
-				// get
-				// content between ( and ).
-				Pattern pattern = Pattern.compile("\\((.*?)\\)");
-				// Instantiate new list of items to be returned
-				List<Item> availableItems = new ArrayList<>();
-				// Instantiate matcher to be able to extract data using the
-				// regular
-				// expression
-				Matcher match = pattern.matcher(line);
-				while (match.find()) {
-					/*
-					 * For each matching sequence found create a new Item object
-					 * as it is available for selection. The index number,
-					 * weight and cost are extracted using generic methods in
-					 * the string utility class.
-					 */
-					Item item = new Item(Integer.parseInt(StringUtil.getStringUptoString(match.group(1), ",")),
-							Double.valueOf(Double
-									.parseDouble(StringUtil.getStringBetweenTwoStrings(match.group(1), ",", ","))),
-							Double.valueOf(Double.parseDouble(StringUtil.getStringAfterString(match.group(1), ","))));
-					// Add the item object to list to be returned
-					availableItems.add(item);
-				}
-				return new Package(Double.parseDouble(StringUtil.getStringUptoString(line, ":")), availableItems);
-			}).collect(Collectors.toList());
-
+			for (Iterator<String> lines = stream.iterator(); lines.hasNext();) {
+				packages.add(parser.parse(lines.next(), ++lineNumber));
+			}
+		} catch (APIException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new APIException(
-					"Unable to extract package and package item data due to a formatting error of data in file");
+					"Unable to extract package and package item data due to a formatting error of data in file", e);
 		}
+		return packages;
 	}
 }
@@ -0,0 +1,222 @@
+package com.mobiquityinc.packer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Stream;
+
+import com.mobiquityinc.algorithm.AbstractAlgorithmStrategy;
+import com.mobiquityinc.exception.APIException;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Long running server which packs files and package lines sent over a socket,
+ * so the JVM, the solver libraries and the compiled code stay warm between
+ * files instead of starting a new JVM through Packer.main for every file. The
+ * server only listens on the loopback address.
+ *
+ * A client sends requests as lines of UTF-8 text and receives the results in
+ * the order of its requests. A request is either:
+ *
+ * - FILE <absolute file path>: the results of the packages in the file are
+ * sent back one line at a time once the file is packed (see
+ * Packer.packStream), followed by a line with END.
+ *
+ * - A package line in the format of the file, for example
+ * 81 : (1,53.38,45) (2,88.62,98): the selected items of the package, or
+ * "-", are sent back on one line. The lines of all the clients are solved
+ * together in batches (see PackageLineBatcher).
+ *
+ * A request which can not be packed is answered with a line starting with
+ * ERROR followed by the reason. If a file fails part of the way, the error
+ * follows the results already sent instead of END. Blank lines are ignored.
+ * The connection is closed by the server once the client has closed its
+ * output and every result has been sent.
+ *
+ * The server can be run as a java application with the port as first argument
+ * (7077 by default).
+ */
+public class PackerServer implements AutoCloseable {
+
+	public static final int DEFAULT_PORT = 7077;
+	// The most package lines solved together in one batch
+	public static final int DEFAULT_MAXIMUM_BATCH_SIZE = 1024;
+
+	// The prefix of a request to pack a file
+	static final String FILE_REQUEST = "FILE ";
+	// The line sent after the results of a file
+	static final String END_OF_FILE = "END";
+	// The prefix of the line sent if a request fails
+	static final String ERROR = "ERROR ";
+
+	private final ServerSocket serverSocket;
+	private final ExecutorService connectionExecutor = PackerService.createDefaultExecutor();
+	private final AbstractAlgorithmStrategy strategy = Packer.createAlgorithmStrategy();
+	private final PackageLineBatcher lineBatcher;
+	private final Thread acceptor;
+
+	// Listens on the port of the loopback address, or any free port if 0
+	public PackerServer(int port) throws APIException {
+		this(port, DEFAULT_MAXIMUM_BATCH_SIZE);
+	}
+
+	public PackerServer(int port, int maximumBatchSize) throws APIException {
+		try {
+			serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+		} catch (IOException e) {
+			throw new APIException("Unable to listen on port " + port, e);
+		}
+		lineBatcher = new PackageLineBatcher(strategy, maximumBatchSize);
+		acceptor = new Thread(this::acceptConnections, "packer-server");
+		acceptor.start();
+	}
+
+	/*
+	 * Main method to run as java program. The server runs until the JVM is
+	 * stopped.
+	 */
+	public static void main(String[] args) throws APIException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		PackerServer server = new PackerServer(port);
+		Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+		System.out.println("Packer server listening on port " + server.getPort());
+	}
+
+	// The port the server listens on
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	private void acceptConnections() {
+		while (!serverSocket.isClosed()) {
+			try {
+				Socket socket = serverSocket.accept();
+				connectionExecutor.execute(() -> serve(socket));
+			} catch (IOException e) {
+				// The server socket was closed
+			}
+		}
+	}
+
+	/*
+	 * Reads the requests of a connection and queues their replies, which are
+	 * written in the order of the requests by a second task. Reading does not
+	 * wait for the replies, so the package lines sent by a client one after
+	 * the other can be solved in the same batch.
+	 */
+	private void serve(Socket socket) {
+		BlockingQueue<Reply> replies = new LinkedBlockingQueue<>();
+		CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> writeReplies(socket, replies),
+				connectionExecutor);
+		try {
+			BufferedReader reader = new BufferedReader(
+					new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				String request = line.trim();
+				if (request.isEmpty()) {
+					continue;
+				}
+				if (request.startsWith(FILE_REQUEST)) {
+					String file = request.substring(FILE_REQUEST.length()).trim();
+					replies.add(output -> writeFileResults(file, output));
+				} else {
+					CompletableFuture<String> result = lineBatcher.submit(request);
+					replies.add(output -> writeLineResult(result, output));
+				}
+			}
+		} catch (IOException e) {
+			// The connection was closed by the client
+		} finally {
+			replies.add(END_OF_REPLIES);
+		}
+		writer.join();
+	}
+
+	private static void writeReplies(Socket socket, BlockingQueue<Reply> replies) {
+		try (Socket connection = socket;
+				Writer output = new BufferedWriter(
+						new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8))) {
+			for (Reply reply = replies.take(); reply != END_OF_REPLIES; reply = replies.take()) {
+				reply.writeTo(output);
+				// Send the results which are ready before waiting for the
+				// next reply
+				if (replies.isEmpty()) {
+					output.flush();
+				}
+			}
+		} catch (IOException e) {
+			// The connection was closed by the client
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void writeLineResult(CompletableFuture<String> result, Writer output)
+			throws IOException, InterruptedException {
+		try {
+			writeLine(output, result.get());
+		} catch (ExecutionException e) {
+			writeError(output, e.getCause());
+		}
+	}
+
+	// Writes the results of the file one line at a time
+	private void writeFileResults(String file, Writer output) throws IOException {
+		try (Stream<String> results = Packer.packStream(file, strategy)) {
+			for (Iterator<String> iterator = results.iterator(); iterator.hasNext();) {
+				writeLine(output, iterator.next());
+			}
+			writeLine(output, END_OF_FILE);
+		} catch (APIException | RuntimeException e) {
+			writeError(output, e);
+		}
+	}
+
+	private static void writeError(Writer output, Throwable error) throws IOException {
+		String message = error.getMessage() == null ? error.getClass().getName() : error.getMessage();
+		writeLine(output, ERROR + message.replace('\r', ' ').replace('\n', ' '));
+	}
+
+	private static void writeLine(Writer output, String line) throws IOException {
+		output.write(line);
+		output.write('\n');
+	}
+
+	// Stops listening and closes the connections once their replies are sent
+	@Override
+	public void close() {
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			// The server socket is already closed
+		}
+		lineBatcher.close();
+		connectionExecutor.shutdown();
+	}
+
+	// A reply to a request, written once the replies before it are written
+	private interface Reply {
+		void writeTo(Writer output) throws IOException, InterruptedException;
+	}
+
+	// Marks the end of the replies of a connection
+	private static final Reply END_OF_REPLIES = output -> {
+	};
+
+}
@@ -0,0 +1,189 @@
+package com.mobiquityinc.packer;
+
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import com.mobiquityinc.algorithm.AbstractAlgorithmStrategy;
+import com.mobiquityinc.algorithm.AlgorithmContext;
+import com.mobiquityinc.exception.APIException;
+import com.mobiquityinc.model.PackageBatch;
+import com.mobiquityinc.parser.PackageLineParser;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Service which packs files and single lines without blocking the caller
+ * while the packages are solved. Every request is run as a task on the
+ * service's executor and its result is returned as a CompletableFuture, which
+ * completes exceptionally with an APIException if the file or line can not be
+ * packed.
+ *
+ * By default the tasks are run on virtual threads, so many files can be
+ * packed at the same time without a platform thread for each of them. Virtual
+ * threads are created through reflection as they are only available from Java
+ * 21; on older versions the tasks are run on a pool of daemon threads. Any
+ * other executor can be given instead.
+ *
+ * The number of requests in flight is limited. Once the limit is reached, a
+ * new request waits until an earlier request is finished, so callers which
+ * submit faster than the packages are solved are slowed down instead of
+ * queueing an unbounded amount of work. The permit of a request is returned
+ * before its future completes, so a request made from a completion stage does
+ * not wait for its own permit.
+ *
+ * All the requests share one strategy, created the same way as for
+ * Packer.pack, so a package cache set by the packer.cacheSize system property
+ * is shared by every request.
+ */
+public class PackerService implements AutoCloseable {
+
+	// The number of requests in flight if no limit is given
+	public static final int DEFAULT_MAXIMUM_IN_FLIGHT = 256;
+
+	private final Executor executor;
+	// The executor is only shut down if it was created by the service
+	private final boolean ownsExecutor;
+	private final int maximumInFlight;
+	private final Semaphore inFlightPermits;
+	private final AbstractAlgorithmStrategy strategy;
+
+	// Packs on virtual threads with the default limit of requests in flight
+	public PackerService() {
+		this(DEFAULT_MAXIMUM_IN_FLIGHT);
+	}
+
+	// Packs on virtual threads with the limit of requests in flight
+	public PackerService(int maximumInFlight) {
+		this(createDefaultExecutor(), true, maximumInFlight);
+	}
+
+	// Packs on the executor with the limit of requests in flight
+	public PackerService(Executor executor, int maximumInFlight) {
+		this(executor, false, maximumInFlight);
+	}
+
+	private PackerService(Executor executor, boolean ownsExecutor, int maximumInFlight) {
+		if (executor == null) {
+			throw new IllegalArgumentException("The executor is required");
+		}
+		if (maximumInFlight < 1) {
+			throw new IllegalArgumentException("The maximum number of requests in flight must be 1 or more");
+		}
+		this.executor = executor;
+		this.ownsExecutor = ownsExecutor;
+		this.maximumInFlight = maximumInFlight;
+		this.inFlightPermits = new Semaphore(maximumInFlight);
+		this.strategy = Packer.createAlgorithmStrategy();
+	}
+
+	/*
+	 * Creates an executor which starts a virtual thread for each task if the
+	 * Java version has virtual threads, or else a pool of daemon threads
+	 */
+	static ExecutorService createDefaultExecutor() {
+		try {
+			Method newVirtualThreadPerTaskExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(task -> {
+				Thread thread = new Thread(task, "packer-service");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	public int getMaximumInFlight() {
+		return maximumInFlight;
+	}
+
+	// The number of requests which are waiting to run or running
+	public int getInFlightCount() {
+		return maximumInFlight - inFlightPermits.availablePermits();
+	}
+
+	/*
+	 * Packs all the packages in a file. Waits while the maximum number of
+	 * requests are in flight.
+	 */
+	public CompletableFuture<PackResult> packAsync(Path file) {
+		return submit(() -> new PackResult(Packer.solveFile(file, strategy)));
+	}
+
+	/*
+	 * Packs the package on a single line in the format of the file. The
+	 * result is the selected items of the package or "-" if no items are
+	 * selected. Waits while the maximum number of requests are in flight.
+	 */
+	public CompletableFuture<String> packLineAsync(String line) {
+		return submit(() -> packLine(line));
+	}
+
+	private String packLine(String line) throws APIException {
+		PackageBatch batch = new PackageBatch();
+		int packageNumber = new PackageLineParser().parse(line, 1, batch);
+		AlgorithmContext algorithm = new AlgorithmContext();
+		algorithm.setAlgorithmStrategy(strategy);
+		algorithm.solveProblem(batch);
+		return batch.isSendPackage(packageNumber) ? Packer.formatSelectedItems(batch, packageNumber) : "-";
+	}
+
+	/*
+	 * Takes a permit for the request and runs it on the executor. The permit
+	 * is returned once the request is done, before its future is completed.
+	 */
+	private <T> CompletableFuture<T> submit(Callable<T> request) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		try {
+			inFlightPermits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			future.completeExceptionally(new APIException("Interrupted while waiting to submit the request", e));
+			return future;
+		}
+		try {
+			executor.execute(() -> {
+				T result = null;
+				Throwable error = null;
+				try {
+					result = request.call();
+				} catch (APIException e) {
+					error = e;
+				} catch (Exception e) {
+					error = new APIException(e.getMessage(), e);
+				} catch (Error e) {
+					error = e;
+				} finally {
+					inFlightPermits.release();
+				}
+				if (error == null) {
+					future.complete(result);
+				} else {
+					future.completeExceptionally(error);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			inFlightPermits.release();
+			future.completeExceptionally(new APIException("The request was rejected by the executor", e));
+		}
+		return future;
+	}
+
+	// Shuts down the executor created by the service once its tasks are done
+	@Override
+	public void close() {
+		if (ownsExecutor) {
+			((ExecutorService) executor).shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,226 @@
+package com.mobiquityinc.packer;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import com.mobiquityinc.model.Item;
+import com.mobiquityinc.model.OffHeapPackageStore;
+import com.mobiquityinc.model.Package;
+import com.mobiquityinc.model.PackageBatch;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Writes the solution of the packing problem as bytes, one package at a time,
+ * to an OutputStream or a WritableByteChannel. The result of a package is
+ * written in the same format as Packer.pack: the index numbers of the selected
+ * items separated by commas, or "-" if the package is not sent, followed by
+ * the line separator.
+ *
+ * The results are formatted straight into a byte buffer which is reused for
+ * the whole solution and written out whenever it is full, so no String is
+ * created for a package or an index number and the memory used does not
+ * depend on the size of the solution. The results only contain ASCII
+ * characters, so the bytes are the same in every ASCII based charset.
+ */
+public class SolutionWriter implements Closeable, Flushable {
+
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	// The most digits of an int with its sign
+	private static final int MAXIMUM_DIGITS = 11;
+
+	private final WritableByteChannel channel;
+	// The output stream written to through the channel, flushed with it
+	private final Flushable target;
+	private final ByteBuffer buffer;
+	private final byte[] lineSeparator;
+
+	public SolutionWriter(OutputStream output) {
+		this(Channels.newChannel(output), output, DEFAULT_BUFFER_SIZE);
+	}
+
+	public SolutionWriter(WritableByteChannel channel) {
+		this(channel, null, DEFAULT_BUFFER_SIZE);
+	}
+
+	SolutionWriter(WritableByteChannel channel, Flushable target, int bufferSize) {
+		if (bufferSize < MAXIMUM_DIGITS) {
+			throw new IllegalArgumentException("The buffer must hold at least " + MAXIMUM_DIGITS + " bytes");
+		}
+		this.channel = channel;
+		this.target = target;
+		this.buffer = ByteBuffer.allocate(bufferSize);
+		this.lineSeparator = toAsciiBytes(System.getProperty("line.separator"));
+	}
+
+	// Writes the result of every package in the batch
+	public void writePackages(PackageBatch packages) throws IOException {
+		for (int p = 0; p < packages.getPackageCount(); p++) {
+			writePackage(packages, p);
+		}
+	}
+
+	// Writes the result of a package in a batch
+	public void writePackage(PackageBatch packages, int packageNumber) throws IOException {
+		if (packages.isSendPackage(packageNumber)) {
+			int firstItem = packages.getFirstItem(packageNumber);
+			boolean first = true;
+			for (int i = packages.nextSelectedItem(packageNumber, firstItem); i >= 0; i = packages
+					.nextSelectedItem(packageNumber, i + 1)) {
+				if (!first) {
+					writeByte(',');
+				}
+				writeInt(packages.getIndexNumber(i));
+				first = false;
+			}
+		} else {
+			writeByte('-');
+		}
+		writeBytes(lineSeparator);
+	}
+
+	// Writes the result of every package in an off-heap store
+	public void writePackages(OffHeapPackageStore packages) throws IOException {
+		for (int p = 0; p < packages.getPackageCount(); p++) {
+			writePackage(packages, p);
+		}
+	}
+
+	// Writes the result of a package in an off-heap store
+	public void writePackage(OffHeapPackageStore packages, int packageNumber) throws IOException {
+		if (packages.isSendPackage(packageNumber)) {
+			long firstItem = packages.getFirstItem(packageNumber);
+			long lastItem = firstItem + packages.getItemCount(packageNumber);
+			boolean first = true;
+			for (long i = firstItem; i < lastItem; i++) {
+				if (packages.isItemSelected(i)) {
+					if (!first) {
+						writeByte(',');
+					}
+					writeInt(packages.getIndexNumber(i));
+					first = false;
+				}
+			}
+		} else {
+			writeByte('-');
+		}
+		writeBytes(lineSeparator);
+	}
+
+	// Writes the result of a Package object
+	public void writePackage(Package pack) throws IOException {
+		if (pack.isSendPackage()) {
+			boolean first = true;
+			for (Item item : pack.getSelectedItems()) {
+				if (!first) {
+					writeByte(',');
+				}
+				writeInt(item.getIndexNumber());
+				first = false;
+			}
+		} else {
+			writeByte('-');
+		}
+		writeBytes(lineSeparator);
+	}
+
+	/*
+	 * Writes a result which is already formatted, such as the results of
+	 * Packer.packStream, followed by the line separator. The result may only
+	 * contain ASCII characters.
+	 */
+	public void writeLine(CharSequence result) throws IOException {
+		for (int i = 0; i < result.length(); i++) {
+			char c = result.charAt(i);
+			if (c > 127) {
+				throw new IllegalArgumentException("The result contains the non ASCII character " + c);
+			}
+			writeByte(c);
+		}
+		writeBytes(lineSeparator);
+	}
+
+	// Writes the digits of the number without creating a String
+	private void writeInt(int number) throws IOException {
+		if (buffer.remaining() < MAXIMUM_DIGITS) {
+			drain();
+		}
+		long value = number;
+		if (value < 0) {
+			buffer.put((byte) '-');
+			value = -value;
+		}
+		int start = buffer.position();
+		do {
+			buffer.put((byte) ('0' + value % 10));
+			value /= 10;
+		} while (value > 0);
+		// The digits were written from the last to the first
+		byte[] bytes = buffer.array();
+		int offset = buffer.arrayOffset();
+		for (int i = offset + start, j = offset + buffer.position() - 1; i < j; i++, j--) {
+			byte digit = bytes[i];
+			bytes[i] = bytes[j];
+			bytes[j] = digit;
+		}
+	}
+
+	private void writeByte(int value) throws IOException {
+		if (!buffer.hasRemaining()) {
+			drain();
+		}
+		buffer.put((byte) value);
+	}
+
+	private void writeBytes(byte[] bytes) throws IOException {
+		for (byte value : bytes) {
+			writeByte(value);
+		}
+	}
+
+	// Writes the bytes in the buffer to the channel
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	private static byte[] toAsciiBytes(String text) {
+		byte[] bytes = new byte[text.length()];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) text.charAt(i);
+		}
+		return bytes;
+	}
+
+	// Writes the buffered results to the channel and flushes the output
+	// stream
+	@Override
+	public void flush() throws IOException {
+		drain();
+		if (target != null) {
+			target.flush();
+		}
+	}
+
+	// Flushes the results and closes the channel
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+
+}
@@ -0,0 +1,71 @@
+package com.mobiquityinc.parser;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Character sequence which reads a range of bytes in a buffer as characters
+ * without decoding them. Every byte becomes the character with the same value,
+ * which is correct for the ASCII characters the parser looks for. A currency
+ * symbol outside ASCII, such as the euro sign in UTF-8 or Windows-1252, becomes
+ * one or more characters above 127 which the parser skips like any other
+ * currency symbol.
+ *
+ * The range can be moved to the next line so the same sequence is reused for
+ * every line in the buffer.
+ */
+class AsciiByteSequence implements CharSequence {
+
+	private final ByteBuffer buffer;
+	private int start;
+	private int length;
+
+	AsciiByteSequence(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	AsciiByteSequence(ByteBuffer buffer, int start, int length) {
+		this.buffer = buffer;
+		setRange(start, length);
+	}
+
+	// Moves the sequence to another range of bytes in the buffer
+	void setRange(int start, int length) {
+		this.start = start;
+		this.length = length;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+		}
+		return (char) (buffer.get(start + index) & 0xFF);
+	}
+
+	@Override
+	public CharSequence subSequence(int from, int to) {
+		if (from < 0 || to > length || from > to) {
+			throw new IndexOutOfBoundsException("from " + from + ", to " + to + ", length " + length);
+		}
+		return new AsciiByteSequence(buffer, start + from, to - from);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			text.append(charAt(i));
+		}
+		return text.toString();
+	}
+
+}
@@ -0,0 +1,390 @@
+package com.mobiquityinc.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.mobiquityinc.exception.APIException;
+import com.mobiquityinc.metrics.PackerMetrics;
+import com.mobiquityinc.metrics.PackerMetrics.Stage;
+import com.mobiquityinc.model.Item;
+import com.mobiquityinc.model.OffHeapPackageStore;
+import com.mobiquityinc.model.Package;
+import com.mobiquityinc.model.PackageBatch;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Reads the packages in a file in the binary format written by
+ * BinaryPackageFileWriter, for files which are packed many times and should
+ * not be parsed as text every time.
+ *
+ * The file starts with a header of 32 bytes:
+ *
+ * - a magic number which no text file starts with (0x89 'P' 'K' 'B')
+ * - the version of the format
+ * - the number of packages and the most items of a package (ints)
+ * - the number of items and the position of the index (longs)
+ *
+ * The header is followed by a record for each package: its maximum weight,
+ * its number of items and the index number, weight and cost of every item.
+ * Weights and costs are held as whole hundredths and every value is written
+ * as an unsigned variable length integer of 7 bits per byte, lowest bits
+ * first, so most values take one or two bytes. The index after the records
+ * holds the position of every package record and the end of the records as
+ * longs, so any package can be read without reading the packages before it.
+ *
+ * The file is mapped into memory and the values are decoded straight from
+ * the mapped bytes into the arrays of a PackageBatch or into an
+ * OffHeapPackageStore, without reading the file into the heap first. Records
+ * are mapped in segments of at most 2 GB which start at a package record.
+ * Different threads can read packages at the same time, which is used to
+ * decode ranges of packages in parallel. The time taken to open and map the
+ * file is recorded as the readFile stage of the default PackerMetrics and the
+ * time taken to decode the packages as the parse stage.
+ */
+public class BinaryPackageFile implements Closeable {
+
+	static final int MAGIC = 0x89504B42;
+	static final int VERSION = 1;
+
+	// The layout of the header
+	static final int HEADER_BYTES = 32;
+	static final int MAGIC_POSITION = 0;
+	static final int VERSION_POSITION = 4;
+	static final int PACKAGE_COUNT_POSITION = 8;
+	static final int MAXIMUM_ITEM_COUNT_POSITION = 12;
+	static final int ITEM_COUNT_POSITION = 16;
+	static final int INDEX_POSITION_POSITION = 24;
+
+	// Weights and costs are held in hundredths
+	static final double FIXED_POINT_SCALE = 100.0;
+
+	// The largest part of the records mapped as one buffer
+	private static final long DEFAULT_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+	private final FileChannel channel;
+	private final int packageCount;
+	private final int maximumItemCount;
+	private final long itemCount;
+	// The position of every package record and the end of the records
+	private final LongBuffer index;
+	private final MappedByteBuffer[] segments;
+	// The first package in each segment
+	private final int[] segmentFirstPackages;
+
+	public BinaryPackageFile(Path file) throws APIException {
+		this(file, DEFAULT_SEGMENT_SIZE);
+	}
+
+	BinaryPackageFile(Path file, long segmentSize) throws APIException {
+		long start = System.nanoTime();
+		FileChannel fileChannel = null;
+		try {
+			fileChannel = FileChannel.open(file, StandardOpenOption.READ);
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			while (header.hasRemaining() && fileChannel.read(header, header.position()) >= 0) {
+				// Read until the header is full or the file ends
+			}
+			if (header.hasRemaining() || header.getInt(MAGIC_POSITION) != MAGIC) {
+				throw new APIException("Unable to read file as it is not a binary package file");
+			}
+			if (header.getInt(VERSION_POSITION) != VERSION) {
+				throw new APIException("Unable to read file as its binary format version "
+						+ header.getInt(VERSION_POSITION) + " is not supported");
+			}
+			packageCount = header.getInt(PACKAGE_COUNT_POSITION);
+			maximumItemCount = header.getInt(MAXIMUM_ITEM_COUNT_POSITION);
+			itemCount = header.getLong(ITEM_COUNT_POSITION);
+			long indexPosition = header.getLong(INDEX_POSITION_POSITION);
+			long indexBytes = (packageCount + 1L) * Long.BYTES;
+			if (packageCount < 0 || indexPosition < HEADER_BYTES
+					|| indexPosition + indexBytes != fileChannel.size()) {
+				throw new APIException("Unable to read file as its binary package index is damaged");
+			}
+			if (indexBytes > Integer.MAX_VALUE) {
+				throw new APIException("Unable to read file as it holds more than "
+						+ (Integer.MAX_VALUE / Long.BYTES - 1) + " packages");
+			}
+			index = fileChannel.map(FileChannel.MapMode.READ_ONLY, indexPosition, indexBytes).asLongBuffer();
+
+			List<MappedByteBuffer> mappedSegments = new ArrayList<>();
+			List<Integer> firstPackages = new ArrayList<>();
+			for (int firstPackage = 0; firstPackage < packageCount;) {
+				int endPackage = findSegmentEnd(firstPackage, segmentSize);
+				long segmentStart = index.get(firstPackage);
+				mappedSegments.add(fileChannel.map(FileChannel.MapMode.READ_ONLY, segmentStart,
+						index.get(endPackage) - segmentStart));
+				firstPackages.add(firstPackage);
+				firstPackage = endPackage;
+			}
+			segments = mappedSegments.toArray(new MappedByteBuffer[mappedSegments.size()]);
+			segmentFirstPackages = firstPackages.stream().mapToInt(Integer::intValue).toArray();
+			channel = fileChannel;
+			PackerMetrics.getDefault().record(Stage.READ_FILE, start);
+		} catch (APIException e) {
+			closeQuietly(fileChannel);
+			throw e;
+		} catch (IOException | RuntimeException e) {
+			closeQuietly(fileChannel);
+			throw new APIException("Unable to read file", e);
+		}
+	}
+
+	// True if the file starts with the magic number of the binary format
+	public static boolean isBinaryPackageFile(Path file) throws APIException {
+		try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+			while (magic.hasRemaining() && fileChannel.read(magic, magic.position()) >= 0) {
+				// Read until the magic number is read or the file ends
+			}
+			return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+		} catch (IOException e) {
+			throw new APIException("Unable to read file", e);
+		}
+	}
+
+	/*
+	 * Returns the package after the first package of a segment which ends the
+	 * segment, so that no segment is larger than the segment size unless it
+	 * holds a single package.
+	 */
+	private int findSegmentEnd(int firstPackage, long segmentSize) throws APIException {
+		long segmentStart = index.get(firstPackage);
+		int low = firstPackage + 1;
+		int high = packageCount;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (index.get(middle) - segmentStart <= segmentSize) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		if (index.get(low) - segmentStart > Integer.MAX_VALUE) {
+			throw new APIException("Unable to read file as package " + (firstPackage + 1) + " is larger than "
+					+ Integer.MAX_VALUE + " bytes");
+		}
+		return low;
+	}
+
+	public int getPackageCount() {
+		return packageCount;
+	}
+
+	public long getItemCount() {
+		return itemCount;
+	}
+
+	// The most items of a package in the file
+	public int getMaximumItemCount() {
+		return maximumItemCount;
+	}
+
+	public double getMaximumWeight(int packageNumber) {
+		return decoder(packageNumber).readFixedPoint();
+	}
+
+	public int getItemCount(int packageNumber) {
+		Decoder decoder = decoder(packageNumber);
+		decoder.readVarint();
+		return decoder.readInt();
+	}
+
+	// Reads a package on its own as a Package object
+	public Package getPackage(int packageNumber) {
+		Decoder decoder = decoder(packageNumber);
+		double maximumWeight = decoder.readFixedPoint();
+		int packageItemCount = decoder.readInt();
+		List<Item> availableItems = new ArrayList<>(packageItemCount);
+		for (int i = 0; i < packageItemCount; i++) {
+			availableItems.add(new Item(decoder.readInt(), decoder.readFixedPoint(), decoder.readFixedPoint()));
+		}
+		return new Package(maximumWeight, availableItems);
+	}
+
+	// Adds a package to the end of a batch and returns its number in the batch
+	public int readPackage(int packageNumber, PackageBatch batch) {
+		return decoder(packageNumber).readPackage(batch);
+	}
+
+	// Reads all the packages in the file into a batch in the order of the file
+	public PackageBatch readBatch() throws APIException {
+		return readBatch(1);
+	}
+
+	/*
+	 * Reads all the packages in the file into a batch in the order of the
+	 * file, with the threads decoding a range of packages each.
+	 */
+	public PackageBatch readBatch(int parallelism) throws APIException {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("The parallelism must be 1 or more");
+		}
+		int rangeCount = Math.max(1, Math.min(parallelism, packageCount));
+		if (rangeCount == 1) {
+			return readRange(0, packageCount);
+		}
+		ForkJoinPool pool = new ForkJoinPool(rangeCount);
+		try {
+			List<ForkJoinTask<PackageBatch>> ranges = new ArrayList<>();
+			for (int r = 0; r < rangeCount; r++) {
+				int first = (int) ((long) packageCount * r / rangeCount);
+				int end = (int) ((long) packageCount * (r + 1) / rangeCount);
+				ranges.add(pool.submit(() -> readRange(first, end)));
+			}
+			PackageBatch packages = ranges.get(0).join();
+			for (int r = 1; r < rangeCount; r++) {
+				packages.append(ranges.get(r).join());
+			}
+			return packages;
+		} catch (RuntimeException e) {
+			throw new APIException("Unable to read file", e);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/*
+	 * Adds all the packages in the file to the end of an off-heap store in the
+	 * order of the file, without holding them on the heap.
+	 */
+	public void readInto(OffHeapPackageStore store) throws APIException {
+		long start = System.nanoTime();
+		if (store.getPackageCount() == 0) {
+			store.setExpectedSize(packageCount, itemCount);
+		}
+		try {
+			Decoder decoder = null;
+			for (int p = 0; p < packageCount; p++) {
+				if (decoder == null || isSegmentStart(p)) {
+					decoder = decoder(p);
+				}
+				store.addPackage(decoder.readFixedPoint());
+				for (int i = decoder.readInt(); i > 0; i--) {
+					store.addItem(decoder.readInt(), decoder.readFixedPoint(), decoder.readFixedPoint());
+				}
+			}
+		} catch (RuntimeException e) {
+			throw new APIException("Unable to read file", e);
+		}
+		PackerMetrics.getDefault().record(Stage.PARSE, start);
+	}
+
+	// Decodes the packages from the first up to the end into a new batch
+	private PackageBatch readRange(int first, int end) {
+		long start = System.nanoTime();
+		// The items of a range are estimated from the average of the file
+		long expectedItems = packageCount == 0 ? 0 : itemCount * (end - first) / packageCount;
+		PackageBatch packages = new PackageBatch(end - first, (int) Math.min(expectedItems, Integer.MAX_VALUE - 8));
+		Decoder decoder = null;
+		for (int p = first; p < end; p++) {
+			// The records of a segment follow each other, so only a new
+			// segment needs a new decoder
+			if (decoder == null || isSegmentStart(p)) {
+				decoder = decoder(p);
+			}
+			decoder.readPackage(packages);
+		}
+		PackerMetrics.getDefault().record(Stage.PARSE, start);
+		return packages;
+	}
+
+	private boolean isSegmentStart(int packageNumber) {
+		return Arrays.binarySearch(segmentFirstPackages, packageNumber) >= 0;
+	}
+
+	// Returns a decoder at the start of the record of a package
+	private Decoder decoder(int packageNumber) {
+		if (packageNumber < 0 || packageNumber >= packageCount) {
+			throw new IndexOutOfBoundsException("The file has no package " + packageNumber);
+		}
+		int segment = Arrays.binarySearch(segmentFirstPackages, packageNumber);
+		if (segment < 0) {
+			segment = -segment - 2;
+		}
+		long position = index.get(packageNumber) - index.get(segmentFirstPackages[segment]);
+		return new Decoder(segments[segment], (int) position);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private static void closeQuietly(FileChannel fileChannel) {
+		if (fileChannel != null) {
+			try {
+				fileChannel.close();
+			} catch (IOException e) {
+				// The error that stopped the file from being opened is reported
+			}
+		}
+	}
+
+	/*
+	 * Reads the values of the records one after the other from a position in
+	 * a segment. Values are read with absolute gets, so decoders of different
+	 * threads can share a segment.
+	 */
+	private static final class Decoder {
+
+		private final ByteBuffer buffer;
+		private int position;
+
+		Decoder(ByteBuffer buffer, int position) {
+			this.buffer = buffer;
+			this.position = position;
+		}
+
+		// Adds the package at the position to the end of a batch
+		int readPackage(PackageBatch batch) {
+			int packageNumber = batch.addPackage(readFixedPoint());
+			for (int i = readInt(); i > 0; i--) {
+				batch.addItem(readInt(), readFixedPoint(), readFixedPoint());
+			}
+			return packageNumber;
+		}
+
+		/*
+		 * Reads a value in hundredths. Dividing the hundredths gives exactly
+		 * the same double as parsing the value as text.
+		 */
+		double readFixedPoint() {
+			return readVarint() / FIXED_POINT_SCALE;
+		}
+
+		int readInt() {
+			long value = readVarint();
+			if (value > Integer.MAX_VALUE) {
+				throw new IllegalStateException("The value " + value + " is too large for a count or index number");
+			}
+			return (int) value;
+		}
+
+		long readVarint() {
+			long value = 0;
+			for (int shift = 0; shift < Long.SIZE; shift += 7) {
+				byte next = buffer.get(position++);
+				value |= (long) (next & 0x7F) << shift;
+				if (next >= 0) {
+					return value;
+				}
+			}
+			throw new IllegalStateException("A value in the file has more than " + Long.SIZE + " bits");
+		}
+	}
+
+}
@@ -0,0 +1,267 @@
+package com.mobiquityinc.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import com.mobiquityinc.exception.APIException;
+import com.mobiquityinc.model.Item;
+import com.mobiquityinc.model.Package;
+import com.mobiquityinc.model.PackageBatch;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Writes packages to a file in the binary format read by BinaryPackageFile
+ * (see there for the layout of the file), and converts text files to that
+ * format. The converter can be run as a java application with the text file
+ * and the binary file to write as arguments.
+ *
+ * The records are encoded into a byte buffer which is reused for the whole
+ * file and written out whenever it is full. The index is written to a
+ * temporary file next to the binary file while the records are written, so
+ * the memory used does not depend on the number of packages, and is copied
+ * to the end of the file when the writer is closed. The header is written
+ * last, so a file which was not written completely is never read as a binary
+ * package file.
+ *
+ * The format holds weights and costs in whole hundredths, so a package with a
+ * weight or cost with more decimals, or a negative one, can not be written.
+ */
+public class BinaryPackageFileWriter implements Closeable {
+
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	// The most bytes of a long written 7 bits at a time
+	private static final int MAXIMUM_VARINT_BYTES = 10;
+
+	private final FileChannel channel;
+	private final FileChannel indexChannel;
+	private final ByteBuffer buffer;
+	private final ByteBuffer indexBuffer;
+
+	// The position in the file the next record is written at
+	private long position = BinaryPackageFile.HEADER_BYTES;
+	private int packageCount = 0;
+	private int maximumItemCount = 0;
+	private long itemCount = 0;
+	private boolean closed = false;
+
+	public BinaryPackageFileWriter(Path file) throws IOException {
+		this(file, DEFAULT_BUFFER_SIZE);
+	}
+
+	BinaryPackageFileWriter(Path file, int bufferSize) throws IOException {
+		if (bufferSize < BinaryPackageFile.HEADER_BYTES) {
+			throw new IllegalArgumentException(
+					"The buffer must hold at least " + BinaryPackageFile.HEADER_BYTES + " bytes");
+		}
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE);
+		try {
+			Path indexPath = Files.createTempFile(file.toAbsolutePath().getParent(), "packages", ".index");
+			this.indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE,
+					StandardOpenOption.DELETE_ON_CLOSE);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		this.buffer = ByteBuffer.allocate(bufferSize);
+		this.indexBuffer = ByteBuffer.allocate(bufferSize - bufferSize % Long.BYTES);
+		// The header is only filled in once the file is complete
+		buffer.put(new byte[BinaryPackageFile.HEADER_BYTES]);
+	}
+
+	/*
+	 * Converts a text file to a binary package file, parsing the chunks of the
+	 * text file with the number of threads. The binary file is deleted if the
+	 * text file can not be converted.
+	 */
+	public static void convert(Path textFile, Path binaryFile, int parallelism) throws APIException {
+		try {
+			try (BinaryPackageFileWriter writer = new BinaryPackageFileWriter(binaryFile)) {
+				new MappedPackageFileReader(parallelism).readChunks(textFile, packages -> {
+					try {
+						writer.writePackages(packages);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			}
+		} catch (APIException | IOException e) {
+			deleteQuietly(binaryFile);
+			// A value the format can not hold is reported as it is
+			if (e.getCause() instanceof IllegalArgumentException) {
+				throw new APIException("Unable to convert file as " + e.getCause().getMessage(), e.getCause());
+			}
+			throw new APIException("Unable to convert file", e);
+		}
+	}
+
+	/*
+	 * Main method to convert a text file to a binary package file, with the
+	 * text file as first argument and the binary file as second argument.
+	 */
+	public static void main(String[] args) throws APIException {
+		if (args.length != 2) {
+			throw new APIException("Usage: BinaryPackageFileWriter <text file> <binary file>");
+		}
+		convert(Paths.get(args[0]), Paths.get(args[1]), Runtime.getRuntime().availableProcessors());
+	}
+
+	// Writes every package in the batch
+	public void writePackages(PackageBatch packages) throws IOException {
+		for (int p = 0; p < packages.getPackageCount(); p++) {
+			writePackage(packages, p);
+		}
+	}
+
+	// Writes a package in a batch
+	public void writePackage(PackageBatch packages, int packageNumber) throws IOException {
+		int firstItem = packages.getFirstItem(packageNumber);
+		int packageItemCount = packages.getItemCount(packageNumber);
+		startPackage(packages.getMaximumWeight(packageNumber), packageItemCount);
+		for (int i = firstItem; i < firstItem + packageItemCount; i++) {
+			writeItem(packages.getIndexNumber(i), packages.getItemWeight(i), packages.getItemCost(i));
+		}
+	}
+
+	public void writePackage(Package pack) throws IOException {
+		startPackage(pack.getMaximumWeight(), pack.getAvailableItems().size());
+		for (Item item : pack.getAvailableItems()) {
+			writeItem(item.getIndexNumber(), item.getWeight(), item.getCost());
+		}
+	}
+
+	// Records the position of a package in the index and writes its capacity
+	private void startPackage(double maximumWeight, int packageItemCount) throws IOException {
+		if (closed) {
+			throw new IllegalStateException("The writer is closed");
+		}
+		if (packageCount == Integer.MAX_VALUE) {
+			throw new IllegalStateException("The file can not hold more than " + Integer.MAX_VALUE + " packages");
+		}
+		writeIndexEntry(position);
+		packageCount++;
+		long fixedPointWeight = toFixedPoint(maximumWeight, "maximum weight");
+		maximumItemCount = Math.max(maximumItemCount, packageItemCount);
+		itemCount += packageItemCount;
+		writeVarint(fixedPointWeight);
+		writeVarint(packageItemCount);
+	}
+
+	private void writeItem(int indexNumber, double weight, double cost) throws IOException {
+		if (indexNumber < 0) {
+			throw new IllegalArgumentException("the index number " + indexNumber + " in package " + packageCount
+					+ " is negative");
+		}
+		writeVarint(indexNumber);
+		writeVarint(toFixedPoint(weight, "weight"));
+		writeVarint(toFixedPoint(cost, "cost"));
+	}
+
+	/*
+	 * Converts a weight or cost to hundredths, making sure that the hundredths
+	 * are read back as exactly the same double.
+	 */
+	private long toFixedPoint(double value, String description) {
+		long hundredths = Math.round(value * BinaryPackageFile.FIXED_POINT_SCALE);
+		if (value < 0 || hundredths / BinaryPackageFile.FIXED_POINT_SCALE != value) {
+			throw new IllegalArgumentException("the " + description + " " + value + " in package "
+					+ packageCount + " is not a whole number of hundredths");
+		}
+		return hundredths;
+	}
+
+	// Writes a value 7 bits at a time, lowest bits first
+	private void writeVarint(long value) throws IOException {
+		if (buffer.remaining() < MAXIMUM_VARINT_BYTES) {
+			flushBuffer();
+		}
+		int start = buffer.position();
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) (value & 0x7F | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+		position += buffer.position() - start;
+	}
+
+	private void writeIndexEntry(long recordPosition) throws IOException {
+		if (!indexBuffer.hasRemaining()) {
+			indexBuffer.flip();
+			writeFully(indexChannel, indexBuffer);
+			indexBuffer.clear();
+		}
+		indexBuffer.putLong(recordPosition);
+	}
+
+	private void flushBuffer() throws IOException {
+		buffer.flip();
+		writeFully(channel, buffer);
+		buffer.clear();
+	}
+
+	private static void writeFully(FileChannel target, ByteBuffer source) throws IOException {
+		while (source.hasRemaining()) {
+			target.write(source);
+		}
+	}
+
+	/*
+	 * Writes the end of the records to the index, copies the index to the end
+	 * of the file and fills in the header.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			flushBuffer();
+			long indexPosition = position;
+			writeIndexEntry(position);
+			indexBuffer.flip();
+			writeFully(indexChannel, indexBuffer);
+			long indexSize = indexChannel.size();
+			for (long copied = 0; copied < indexSize;) {
+				copied += indexChannel.transferTo(copied, indexSize - copied, channel);
+			}
+
+			ByteBuffer header = ByteBuffer.allocate(BinaryPackageFile.HEADER_BYTES);
+			header.putInt(BinaryPackageFile.MAGIC_POSITION, BinaryPackageFile.MAGIC);
+			header.putInt(BinaryPackageFile.VERSION_POSITION, BinaryPackageFile.VERSION);
+			header.putInt(BinaryPackageFile.PACKAGE_COUNT_POSITION, packageCount);
+			header.putInt(BinaryPackageFile.MAXIMUM_ITEM_COUNT_POSITION, maximumItemCount);
+			header.putLong(BinaryPackageFile.ITEM_COUNT_POSITION, itemCount);
+			header.putLong(BinaryPackageFile.INDEX_POSITION_POSITION, indexPosition);
+			while (header.hasRemaining()) {
+				channel.write(header, header.position());
+			}
+		} finally {
+			try {
+				indexChannel.close();
+			} finally {
+				channel.close();
+			}
+		}
+	}
+
+	private static void deleteQuietly(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			// The error that stopped the conversion is reported
+		}
+	}
+
+}
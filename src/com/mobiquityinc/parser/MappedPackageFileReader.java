@@ -0,0 +1,315 @@
+package com.mobiquityinc.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+import com.mobiquityinc.exception.APIException;
+import com.mobiquityinc.metrics.PackerMetrics;
+import com.mobiquityinc.metrics.PackerMetrics.Stage;
+import com.mobiquityinc.model.OffHeapPackageStore;
+import com.mobiquityinc.model.Package;
+import com.mobiquityinc.model.PackageBatch;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Reads the packages in a file by mapping the file into memory instead of
+ * reading it line by line as Strings.
+ *
+ * The file is split into chunks of roughly the same size, where every chunk
+ * ends at the end of a line. The chunks are mapped and parsed at the same time
+ * by a pool of threads into a PackageBatch for each chunk, and the batches of
+ * the chunks are put back together in the order of the file. Only a few chunks
+ * more than the number of threads are parsed ahead of the chunk being put back,
+ * so when the packages are read into an OffHeapPackageStore only those chunks
+ * are held on the heap. The bytes of a line are parsed as they are in the
+ * mapped buffer without decoding them to characters first (see
+ * AsciiByteSequence), so both UTF-8 and Windows-1252 files can be read. A
+ * file in the binary format of BinaryPackageFile is recognised by its first
+ * bytes and decoded without parsing any text.
+ *
+ * A chunk does not know how many lines come before it, so a formatting error
+ * is only reported once the chunks before it have been counted. The line is
+ * then parsed again with its line number in the file to report the error.
+ *
+ * The time taken to open, split and map the file is recorded as the readFile
+ * stage of the default PackerMetrics and the time taken by each line as the
+ * parse stage.
+ */
+public class MappedPackageFileReader {
+
+	// The size a chunk is at least, unless the file is smaller
+	private static final long DEFAULT_CHUNK_SIZE = 8L * 1024 * 1024;
+	// The number of bytes read at a time while looking for the end of a line
+	private static final int SCAN_BUFFER_SIZE = 8 * 1024;
+	// The bytes of a typical line and item, to size an off-heap store to a file
+	private static final int TYPICAL_LINE_BYTES = 128;
+	private static final int TYPICAL_ITEM_BYTES = 12;
+
+	private final int parallelism;
+	private final long chunkSize;
+	// The most bytes a chunk can be mapped as
+	private final long maximumChunkSize;
+
+	public MappedPackageFileReader(int parallelism) {
+		this(parallelism, DEFAULT_CHUNK_SIZE);
+	}
+
+	MappedPackageFileReader(int parallelism, long chunkSize) {
+		this(parallelism, chunkSize, Integer.MAX_VALUE);
+	}
+
+	MappedPackageFileReader(int parallelism, long chunkSize, long maximumChunkSize) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("The parallelism must be 1 or more");
+		}
+		if (maximumChunkSize < chunkSize || maximumChunkSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(
+					"The maximum chunk size must be between the chunk size and " + Integer.MAX_VALUE);
+		}
+		this.parallelism = parallelism;
+		this.chunkSize = chunkSize;
+		this.maximumChunkSize = maximumChunkSize;
+	}
+
+	// Reads all the packages in the file in the order of the file
+	public List<Package> read(Path file) throws APIException {
+		return new ArrayList<>(readBatch(file).asPackages());
+	}
+
+	// Reads all the packages in the file into a batch in the order of the file
+	public PackageBatch readBatch(Path file) throws APIException {
+		if (BinaryPackageFile.isBinaryPackageFile(file)) {
+			try (BinaryPackageFile binaryFile = new BinaryPackageFile(file)) {
+				return binaryFile.readBatch(parallelism);
+			} catch (IOException e) {
+				throw new APIException("Unable to read file", e);
+			}
+		}
+		PackageBatch[] packages = new PackageBatch[1];
+		// The chunks are as large as the threads can share the file
+		readChunks(file, false, chunkPackages -> {
+			// The batch of the first chunk is used for the whole file
+			if (packages[0] == null) {
+				packages[0] = chunkPackages;
+			} else {
+				packages[0].append(chunkPackages);
+			}
+		});
+		return packages[0] == null ? new PackageBatch() : packages[0];
+	}
+
+	/*
+	 * Adds all the packages in the file to the end of an off-heap store in the
+	 * order of the file. The file is read in chunks of the chunk size, so the
+	 * heap only holds the packages of the chunks being parsed. An empty store
+	 * is first sized to the number of packages and items a file of its size
+	 * typically holds.
+	 */
+	public void readInto(Path file, OffHeapPackageStore store) throws APIException {
+		if (BinaryPackageFile.isBinaryPackageFile(file)) {
+			try (BinaryPackageFile binaryFile = new BinaryPackageFile(file)) {
+				binaryFile.readInto(store);
+			} catch (IOException e) {
+				throw new APIException("Unable to read file", e);
+			}
+			return;
+		}
+		if (store.getPackageCount() == 0) {
+			try {
+				long size = Files.size(file);
+				store.setExpectedSize(size / TYPICAL_LINE_BYTES, size / TYPICAL_ITEM_BYTES);
+			} catch (IOException e) {
+				throw new APIException("Unable to read file", e);
+			}
+		}
+		readChunks(file, store::append);
+	}
+
+	/*
+	 * Hands the packages of each chunk of the file of the chunk size to the
+	 * consumer in the order of the file, so the heap only holds the packages
+	 * of the chunks being parsed.
+	 */
+	public void readChunks(Path file, Consumer<PackageBatch> consumer) throws APIException {
+		readChunks(file, true, consumer);
+	}
+
+	/*
+	 * Parses the chunks of the file on the pool of threads and hands the
+	 * packages of each chunk to the consumer in the order of the file. Large
+	 * chunks are shared evenly by the threads, but are never larger than a
+	 * buffer can be mapped, so a file of more than 2 GB for each thread is
+	 * read in more chunks than threads.
+	 */
+	private void readChunks(Path file, boolean smallChunks, Consumer<PackageBatch> consumer) throws APIException {
+		long start = System.nanoTime();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long targetSize = smallChunks ? chunkSize
+					: Math.min(Math.max(chunkSize, channel.size() / parallelism + 1), maximumChunkSize);
+			List<long[]> chunks = splitIntoChunks(channel, targetSize);
+			PackerMetrics.getDefault().record(Stage.READ_FILE, start);
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				Deque<ForkJoinTask<Chunk>> tasks = new ArrayDeque<>();
+				int nextChunk = 0;
+				long linesBefore = 0;
+				while (nextChunk < chunks.size() || !tasks.isEmpty()) {
+					// Keep every thread busy with a chunk and one more waiting
+					while (nextChunk < chunks.size() && tasks.size() < 2 * parallelism) {
+						long[] range = chunks.get(nextChunk++);
+						tasks.add(pool.submit(() -> parseChunk(channel, range[0], range[1])));
+					}
+					Chunk chunk = tasks.remove().join();
+					chunk.throwFormattingError(linesBefore);
+					consumer.accept(chunk.packages);
+					linesBefore += chunk.lineCount;
+				}
+			} finally {
+				pool.shutdownNow();
+			}
+		} catch (IOException | RuntimeException e) {
+			throw new APIException("Unable to read file", e);
+		}
+	}
+
+	/*
+	 * Splits the file into chunks of at least the target size which end at
+	 * the end of a line. A chunk which would be longer than the maximum chunk
+	 * size because of the line at the target size ends before that line
+	 * instead. Each chunk is returned as its start and end position.
+	 */
+	private List<long[]> splitIntoChunks(FileChannel channel, long targetSize) throws IOException, APIException {
+		long size = channel.size();
+		List<long[]> chunks = new ArrayList<>();
+		ByteBuffer scanBuffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+		long start = 0;
+		while (start < size) {
+			long end = start + targetSize >= size ? size : findEndOfLine(channel, start + targetSize, scanBuffer);
+			if (end - start > maximumChunkSize) {
+				end = findStartOfLine(channel, start, start + targetSize, scanBuffer);
+				// Only a single line is too long to be mapped
+				if (end == start) {
+					throw new APIException(
+							"Unable to read file as a line is longer than " + maximumChunkSize + " bytes");
+				}
+			}
+			chunks.add(new long[] { start, end });
+			start = end;
+		}
+		return chunks;
+	}
+
+	// Returns the position after the first new line at or after the position
+	private static long findEndOfLine(FileChannel channel, long position, ByteBuffer scanBuffer) throws IOException {
+		long size = channel.size();
+		while (position < size) {
+			scanBuffer.clear();
+			int read = channel.read(scanBuffer, position);
+			for (int i = 0; i < read; i++) {
+				if (scanBuffer.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	/*
+	 * Returns the position after the last new line between the start and the
+	 * position, or the start if there is none.
+	 */
+	private static long findStartOfLine(FileChannel channel, long start, long position, ByteBuffer scanBuffer)
+			throws IOException {
+		while (position > start) {
+			int length = (int) Math.min(scanBuffer.capacity(), position - start);
+			long from = position - length;
+			scanBuffer.clear();
+			scanBuffer.limit(length);
+			while (scanBuffer.hasRemaining() && channel.read(scanBuffer, from + scanBuffer.position()) >= 0) {
+				// Read until the buffer holds the whole range
+			}
+			for (int i = scanBuffer.position() - 1; i >= 0; i--) {
+				if (scanBuffer.get(i) == '\n') {
+					return from + i + 1;
+				}
+			}
+			position = from;
+		}
+		return start;
+	}
+
+	// Maps a chunk of the file and parses each line in it
+	private static Chunk parseChunk(FileChannel channel, long start, long end) throws IOException {
+		PackerMetrics metrics = PackerMetrics.getDefault();
+		long mapStart = System.nanoTime();
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+		metrics.record(Stage.READ_FILE, mapStart);
+		Chunk chunk = new Chunk(buffer);
+		PackageLineParser parser = new PackageLineParser();
+		AsciiByteSequence line = new AsciiByteSequence(buffer);
+		int size = buffer.limit();
+		int lineStart = 0;
+		for (int i = 0; i <= size; i++) {
+			// The last line of the file does not have to end with a new line
+			boolean endOfLine = i == size ? lineStart < size : buffer.get(i) == '\n';
+			if (!endOfLine) {
+				continue;
+			}
+			line.setRange(lineStart, i - lineStart);
+			chunk.lineCount++;
+			long parseStart = System.nanoTime();
+			try {
+				parser.parse(line, chunk.lineCount, chunk.packages);
+				metrics.record(Stage.PARSE, parseStart);
+			} catch (APIException e) {
+				chunk.errorLineStart = lineStart;
+				chunk.errorLineLength = i - lineStart;
+				return chunk;
+			}
+			lineStart = i + 1;
+		}
+		return chunk;
+	}
+
+	// The packages parsed from a chunk and the line with an error if any
+	private static final class Chunk {
+
+		private final ByteBuffer buffer;
+		private final PackageBatch packages = new PackageBatch();
+		private long lineCount = 0;
+		private int errorLineStart = -1;
+		private int errorLineLength = 0;
+
+		Chunk(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		/*
+		 * Parses the line with an error again with its line number in the file
+		 * so the error reports the right line
+		 */
+		void throwFormattingError(long linesBefore) throws APIException {
+			if (errorLineStart >= 0) {
+				new PackageLineParser().parse(new AsciiByteSequence(buffer, errorLineStart, errorLineLength),
+						linesBefore + lineCount);
+			}
+		}
+	}
+
+}
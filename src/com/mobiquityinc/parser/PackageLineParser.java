@@ -0,0 +1,232 @@
+package com.mobiquityinc.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.mobiquityinc.exception.APIException;
+import com.mobiquityinc.model.Item;
+import com.mobiquityinc.model.Package;
+import com.mobiquityinc.model.PackageBatch;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Parser which reads a line of the file in a single pass from left to right.
+ * A line has the format:
+ *
+ * 81 : (1,53.38,45) (2,88.62,98)
+ *
+ * The maximum weight of the package is followed by a colon and the items of
+ * the package. Each item has an index number, a weight and a cost, where the
+ * cost starts with a currency symbol. Spaces are allowed between all the
+ * parts of the line.
+ *
+ * The numbers are read digit by digit straight into primitive values, so no
+ * regular expressions or Strings are created while a line is parsed. When a
+ * line does not have the expected format the error states the line and column
+ * (both starting at 1) where the problem was found.
+ *
+ * The values of a line are collected in arrays which are reused for every line,
+ * and are only added to a PackageBatch or turned into a Package once the whole
+ * line was read, so a line with an error never adds a package.
+ *
+ * A parser keeps the position in the line while parsing, so each thread needs
+ * its own parser. The same parser can be used for any number of lines.
+ */
+public class PackageLineParser {
+
+	// Powers of ten which can be represented exactly as doubles
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+	// Digits below this value fit exactly in the mantissa of a double
+	private static final long MAXIMUM_DIGITS = 1L << 53;
+
+	private CharSequence line;
+	private long lineNumber;
+	private int position;
+
+	// The values read from the last line
+	private double maximumWeight;
+	private int itemCount;
+	private int[] indexNumbers = new int[16];
+	private double[] weights = new double[16];
+	private double[] costs = new double[16];
+
+	/*
+	 * Converts a line read from the file to a Package object. The line number
+	 * is only used to report errors.
+	 */
+	public Package parse(CharSequence line, long lineNumber) throws APIException {
+		readLine(line, lineNumber);
+		List<Item> availableItems = new ArrayList<>(itemCount);
+		for (int i = 0; i < itemCount; i++) {
+			availableItems.add(new Item(indexNumbers[i], weights[i], costs[i]));
+		}
+		return new Package(maximumWeight, availableItems);
+	}
+
+	/*
+	 * Adds the package on a line read from the file to the end of a batch and
+	 * returns its number in the batch. The line number is only used to report
+	 * errors.
+	 */
+	public int parse(CharSequence line, long lineNumber, PackageBatch batch) throws APIException {
+		readLine(line, lineNumber);
+		int packageNumber = batch.addPackage(maximumWeight);
+		for (int i = 0; i < itemCount; i++) {
+			batch.addItem(indexNumbers[i], weights[i], costs[i]);
+		}
+		return packageNumber;
+	}
+
+	// Reads the values of a line into the maximum weight and item arrays
+	private void readLine(CharSequence line, long lineNumber) throws APIException {
+		this.line = line;
+		this.lineNumber = lineNumber;
+		this.position = 0;
+		this.itemCount = 0;
+
+		skipSpaces();
+		maximumWeight = readDecimal("the maximum weight of the package");
+		skipSpaces();
+		expect(':');
+		skipSpaces();
+		while (position < line.length()) {
+			readItem();
+			skipSpaces();
+		}
+		this.line = null;
+	}
+
+	// Reads an item in the format (index,weight,cost)
+	private void readItem() throws APIException {
+		expect('(');
+		skipSpaces();
+		int indexNumber = readInteger("the index number of the item");
+		skipSpaces();
+		expect(',');
+		skipSpaces();
+		double weight = readDecimal("the weight of the item");
+		skipSpaces();
+		expect(',');
+		skipSpaces();
+		skipCurrencySymbol();
+		skipSpaces();
+		double cost = readDecimal("the cost of the item");
+		skipSpaces();
+		expect(')');
+		if (itemCount == weights.length) {
+			indexNumbers = Arrays.copyOf(indexNumbers, itemCount * 2);
+			weights = Arrays.copyOf(weights, itemCount * 2);
+			costs = Arrays.copyOf(costs, itemCount * 2);
+		}
+		indexNumbers[itemCount] = indexNumber;
+		weights[itemCount] = weight;
+		costs[itemCount] = cost;
+		itemCount++;
+	}
+
+	// Reads a whole number made up of digits only
+	private int readInteger(String description) throws APIException {
+		int start = position;
+		long value = 0;
+		while (position < line.length() && isDigit(line.charAt(position))) {
+			value = value * 10 + (line.charAt(position) - '0');
+			if (value > Integer.MAX_VALUE) {
+				throw error(start, description + " is too large");
+			}
+			position++;
+		}
+		if (position == start) {
+			throw error(start, "expected " + description);
+		}
+		return (int) value;
+	}
+
+	/*
+	 * Reads a number with an optional decimal point. The digits are collected
+	 * in a long and divided by the power of ten for the number of decimals,
+	 * which gives exactly the same double as Double.parseDouble.
+	 */
+	private double readDecimal(String description) throws APIException {
+		int start = position;
+		long digits = 0;
+		int digitCount = 0;
+		int decimals = -1;
+		while (position < line.length()) {
+			char character = line.charAt(position);
+			if (isDigit(character)) {
+				digits = digits * 10 + (character - '0');
+				digitCount++;
+				if (decimals >= 0) {
+					decimals++;
+				}
+				if (digits >= MAXIMUM_DIGITS || decimals >= POWERS_OF_TEN.length) {
+					throw error(start, description + " has too many digits");
+				}
+			} else if (character == '.' && decimals < 0) {
+				decimals = 0;
+			} else {
+				break;
+			}
+			position++;
+		}
+		if (digitCount == 0) {
+			throw error(start, "expected " + description);
+		}
+		return decimals > 0 ? digits / POWERS_OF_TEN[decimals] : digits;
+	}
+
+	/*
+	 * Skips the currency symbol in front of a cost. Any characters up to the
+	 * first digit are allowed, as long as they are not part of the structure
+	 * of the line.
+	 */
+	private void skipCurrencySymbol() {
+		while (position < line.length()) {
+			char character = line.charAt(position);
+			if (isDigit(character) || character == '.' || character == ',' || character == '(' || character == ')'
+					|| isSpace(character)) {
+				return;
+			}
+			position++;
+		}
+	}
+
+	private void skipSpaces() {
+		while (position < line.length() && isSpace(line.charAt(position))) {
+			position++;
+		}
+	}
+
+	// Moves past the expected character or reports an error
+	private void expect(char expected) throws APIException {
+		if (position >= line.length() || line.charAt(position) != expected) {
+			throw error(position, "expected '" + expected + "'");
+		}
+		position++;
+	}
+
+	private static boolean isDigit(char character) {
+		return character >= '0' && character <= '9';
+	}
+
+	// Spaces, tabs and a carriage return from a Windows line ending
+	private static boolean isSpace(char character) {
+		return character == ' ' || character == '\t' || character == '\r';
+	}
+
+	// Creates the exception for a formatting error at a position in the line
+	private APIException error(int errorPosition, String problem) {
+		String found = errorPosition < line.length() ? "found '" + line.charAt(errorPosition) + "'"
+				: "found end of line";
+		this.line = null;
+		return new APIException(
+				"Unable to extract package and package item data due to a formatting error of data in file at line "
+						+ lineNumber + ", column " + (errorPosition + 1) + ": " + problem + " but " + found);
+	}
+
+}
@@ -0,0 +1,96 @@
+package com.mobiquityinc.util;
+
+import java.util.Arrays;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Index which numbers distinct long keys 0, 1, 2, ... in the order they are
+ * first added. The numbers can be used as positions in primitive arrays which
+ * hold the values for the keys, so no boxed keys, values or entry objects are
+ * created. The keys are kept in an open addressing hash table which is at most
+ * half full.
+ */
+public final class LongHashIndex {
+
+	// Marks an empty position in the hash table
+	private static final int EMPTY = -1;
+
+	private long[] tableKeys;
+	private int[] tableNumbers;
+	private int mask;
+	private int size = 0;
+
+	public LongHashIndex(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(2, expectedSize) * 2 - 1) << 1;
+		allocate(capacity);
+	}
+
+	/*
+	 * Returns the number of the key, adding the key with the next number if it
+	 * is not in the index yet
+	 */
+	public int getOrAdd(long key) {
+		int position = findPosition(key);
+		if (tableNumbers[position] != EMPTY) {
+			return tableNumbers[position];
+		}
+		tableKeys[position] = key;
+		tableNumbers[position] = size;
+		size++;
+		if (size * 2 > tableKeys.length) {
+			resize();
+		}
+		return size - 1;
+	}
+
+	// Returns the number of the key or -1 if the key is not in the index
+	public int get(long key) {
+		return tableNumbers[findPosition(key)];
+	}
+
+	// The number of distinct keys in the index
+	public int size() {
+		return size;
+	}
+
+	// Finds the position of the key or the empty position where it belongs
+	private int findPosition(long key) {
+		int position = hash(key) & mask;
+		while (tableNumbers[position] != EMPTY && tableKeys[position] != key) {
+			position = (position + 1) & mask;
+		}
+		return position;
+	}
+
+	// Doubles the size of the hash table and moves the keys to their new
+	// positions
+	private void resize() {
+		long[] oldKeys = tableKeys;
+		int[] oldNumbers = tableNumbers;
+		allocate(oldKeys.length * 2);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldNumbers[i] != EMPTY) {
+				int position = findPosition(oldKeys[i]);
+				tableKeys[position] = oldKeys[i];
+				tableNumbers[position] = oldNumbers[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		tableKeys = new long[capacity];
+		tableNumbers = new int[capacity];
+		Arrays.fill(tableNumbers, EMPTY);
+		mask = capacity - 1;
+	}
+
+	// Spreads the bits of the key so that similar keys are not clustered
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+}
@@ -0,0 +1,242 @@
+package com.mobiquityinc.workload;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import com.mobiquityinc.algorithm.AbstractAlgorithmStrategy;
+import com.mobiquityinc.exception.APIException;
+import com.mobiquityinc.model.PackageBatch;
+import com.mobiquityinc.packer.Packer;
+import com.mobiquityinc.parser.PackageLineParser;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Measures how the Packer performs on a file, either an existing file or a
+ * file created by the WorkloadGenerator.
+ *
+ * The file is packed with Packer.pack a number of times after a number of
+ * warm up runs, and the lines packed per second of the fastest run are
+ * reported together with the highest heap use of all the runs. The latency of
+ * each line is the time the strategy of the Packer takes to solve its
+ * package, measured around solvePackage after the line is parsed on its own.
+ *
+ * The load test can be run as a java application with settings in the format
+ * --name=value: file (an existing file to pack), runs and warmups, and any
+ * setting of the WorkloadGenerator used when no file is given.
+ */
+public class LoadTest {
+
+	private int runs = 3;
+	private int warmups = 1;
+
+	/*
+	 * Main method to run as java program. Prints the report of the load test
+	 * to the console.
+	 */
+	public static void main(String[] args) throws APIException {
+		Map<String, String> settings = WorkloadGenerator.parseSettings(args, 0);
+		LoadTest loadTest = new LoadTest();
+		try {
+			if (settings.containsKey("runs")) {
+				loadTest.setRuns(Integer.parseInt(settings.remove("runs")));
+			}
+			if (settings.containsKey("warmups")) {
+				loadTest.setWarmups(Integer.parseInt(settings.remove("warmups")));
+			}
+		} catch (IllegalArgumentException e) {
+			throw new APIException("Invalid setting: " + e.getMessage(), e);
+		}
+		String file = settings.remove("file");
+		if (file != null) {
+			if (!settings.isEmpty()) {
+				throw new APIException("Generator settings can not be used with an existing file");
+			}
+			System.out.println(loadTest.run(Paths.get(file)));
+			return;
+		}
+		WorkloadGenerator generator = new WorkloadGenerator();
+		generator.configure(settings);
+		System.out.println(loadTest.run(generator));
+	}
+
+	public int getRuns() {
+		return runs;
+	}
+
+	public void setRuns(int runs) {
+		if (runs < 1) {
+			throw new IllegalArgumentException("runs must be 1 or more");
+		}
+		this.runs = runs;
+	}
+
+	public int getWarmups() {
+		return warmups;
+	}
+
+	public void setWarmups(int warmups) {
+		if (warmups < 0) {
+			throw new IllegalArgumentException("warmups must be 0 or more");
+		}
+		this.warmups = warmups;
+	}
+
+	// Generates a temporary file, packs it and deletes it again
+	public Report run(WorkloadGenerator generator) throws APIException {
+		Path file;
+		try {
+			file = Files.createTempFile("workload", ".txt");
+		} catch (Exception e) {
+			throw new APIException("Unable to create file", e);
+		}
+		try {
+			generator.write(file, StandardCharsets.UTF_8);
+			return run(file);
+		} finally {
+			try {
+				Files.deleteIfExists(file);
+			} catch (Exception e) {
+				// The temporary file is left behind
+			}
+		}
+	}
+
+	// Packs the file and measures the throughput, latency and heap use
+	public Report run(Path file) throws APIException {
+		String absoluteFilePath = file.toAbsolutePath().toString();
+		for (int w = 0; w < warmups; w++) {
+			Packer.pack(absoluteFilePath);
+		}
+
+		resetPeakHeapUsage();
+		long lineCount = 0;
+		long fastestRunNanos = Long.MAX_VALUE;
+		for (int r = 0; r < runs; r++) {
+			long start = System.nanoTime();
+			String solution = Packer.pack(absoluteFilePath);
+			fastestRunNanos = Math.min(fastestRunNanos, System.nanoTime() - start);
+			lineCount = countLines(solution);
+		}
+		// The peak is read before the latencies are measured, as their arrays
+		// would otherwise be counted as heap used by the packer
+		long peakHeapBytes = getPeakHeapUsage();
+		long[] latencies = measureLatencies(absoluteFilePath, lineCount);
+		return new Report(lineCount, fastestRunNanos, latencies, peakHeapBytes);
+	}
+
+	// The time taken to solve the package of every line
+	private static long[] measureLatencies(String absoluteFilePath, long lineCount) throws APIException {
+		long[] latencies = new long[(int) Math.min(lineCount, Integer.MAX_VALUE)];
+		int count = 0;
+		AbstractAlgorithmStrategy strategy = Packer.createAlgorithmStrategy();
+		PackageLineParser parser = new PackageLineParser();
+		PackageBatch batch = new PackageBatch();
+		try (Stream<String> lines = Packer.readFile(absoluteFilePath)) {
+			for (Iterator<String> iterator = lines.iterator(); iterator.hasNext() && count < latencies.length;) {
+				batch.clear();
+				int packageNumber = parser.parse(iterator.next(), count + 1, batch);
+				long start = System.nanoTime();
+				strategy.solvePackage(batch, packageNumber);
+				latencies[count++] = System.nanoTime() - start;
+			}
+		} catch (RuntimeException e) {
+			throw new APIException(e.getMessage(), e);
+		}
+		long[] sorted = Arrays.copyOf(latencies, count);
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	private static long countLines(String solution) {
+		String lineSeparator = System.getProperty("line.separator");
+		long count = 0;
+		for (int i = solution.indexOf(lineSeparator); i >= 0; i = solution.indexOf(lineSeparator,
+				i + lineSeparator.length())) {
+			count++;
+		}
+		return count;
+	}
+
+	private static void resetPeakHeapUsage() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	// The sum of the highest use of each heap memory pool
+	private static long getPeakHeapUsage() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+	/*
+	 * The results of a load test. The latencies of the lines are sorted from
+	 * the lowest to the highest.
+	 */
+	public static final class Report {
+
+		private final long lineCount;
+		private final long fastestRunNanos;
+		private final long[] latencies;
+		private final long peakHeapBytes;
+
+		Report(long lineCount, long fastestRunNanos, long[] latencies, long peakHeapBytes) {
+			this.lineCount = lineCount;
+			this.fastestRunNanos = fastestRunNanos;
+			this.latencies = latencies;
+			this.peakHeapBytes = peakHeapBytes;
+		}
+
+		public long getLineCount() {
+			return lineCount;
+		}
+
+		public double getLinesPerSecond() {
+			return lineCount * 1e9 / Math.max(fastestRunNanos, 1);
+		}
+
+		// The latency in nanoseconds which the percentage of lines are within
+		public long getLatencyPercentile(double percentage) {
+			if (latencies.length == 0) {
+				return 0;
+			}
+			int index = (int) Math.ceil(percentage / 100 * latencies.length) - 1;
+			return latencies[Math.max(0, Math.min(index, latencies.length - 1))];
+		}
+
+		public long getPeakHeapBytes() {
+			return peakHeapBytes;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+					"lines: %d%nlines/sec: %.0f%nlatency p50: %.1f us%nlatency p90: %.1f us%n"
+							+ "latency p99: %.1f us%nlatency p99.9: %.1f us%nlatency max: %.1f us%npeak heap: %.1f MB",
+					lineCount, getLinesPerSecond(), getLatencyPercentile(50) / 1e3,
+					getLatencyPercentile(90) / 1e3, getLatencyPercentile(99) / 1e3,
+					getLatencyPercentile(99.9) / 1e3, getLatencyPercentile(100) / 1e3,
+					peakHeapBytes / (1024.0 * 1024.0));
+		}
+	}
+
+}
@@ -0,0 +1,369 @@
+package com.mobiquityinc.workload;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.mobiquityinc.exception.APIException;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * Generates input files in the format read by the Packer, for example:
+ *
+ * 81 : (1,53.38,45) (2,88.62,98) (3,78.48,3)
+ *
+ * The capacity of each package and its number of items are chosen uniformly
+ * between a minimum and a maximum, and so are the weight and cost of each
+ * item. The weights have the set number of decimals and the costs are whole
+ * numbers. Settings can be chosen to create ties and repeated packages:
+ *
+ * - The cost tie ratio is the share of items which get the cost of an earlier
+ * item in the same package.
+ *
+ * - The duplicate manifest ratio is the share of packages which repeat the
+ * capacity and items of an earlier package, with the items in a new order.
+ *
+ * The same settings and seed always generate the same lines. The generator
+ * can be run as a java application with the file to write as first argument,
+ * followed by settings in the format --name=value (see configure).
+ */
+public class WorkloadGenerator {
+
+	// The number of earlier packages kept to be repeated
+	private static final int REMEMBERED_MANIFESTS = 1000;
+
+	private long seed = 20170417L;
+	private int packageCount = 1000;
+	private int minimumCapacity = 1;
+	private int maximumCapacity = 100;
+	private int minimumItemCount = 1;
+	private int maximumItemCount = 15;
+	private int maximumItemWeight = 100;
+	private int maximumItemCost = 100;
+	private int weightDecimals = 2;
+	private double costTieRatio = 0;
+	private double duplicateManifestRatio = 0;
+
+	/*
+	 * Main method to run as java program. The first argument is the file to
+	 * write and the other arguments are settings in the format --name=value.
+	 */
+	public static void main(String[] args) throws APIException {
+		if (args.length == 0) {
+			throw new APIException("Usage: WorkloadGenerator <file> [--name=value ...]");
+		}
+		WorkloadGenerator generator = new WorkloadGenerator();
+		Map<String, String> settings = parseSettings(args, 1);
+		String charset = settings.remove("charset");
+		generator.configure(settings);
+		generator.write(Paths.get(args[0]), charset == null ? StandardCharsets.UTF_8 : Charset.forName(charset));
+	}
+
+	/*
+	 * Reads arguments in the format --name=value from the position onwards.
+	 * The names are returned without the dashes.
+	 */
+	public static Map<String, String> parseSettings(String[] args, int first) throws APIException {
+		Map<String, String> settings = new HashMap<>();
+		for (int i = first; i < args.length; i++) {
+			int separator = args[i].indexOf('=');
+			if (!args[i].startsWith("--") || separator < 0) {
+				throw new APIException("Expected a setting in the format --name=value but found " + args[i]);
+			}
+			settings.put(args[i].substring(2, separator), args[i].substring(separator + 1));
+		}
+		return settings;
+	}
+
+	/*
+	 * Changes the settings with the given names: seed, packageCount,
+	 * minimumCapacity, maximumCapacity, minimumItemCount, maximumItemCount,
+	 * maximumItemWeight, maximumItemCost, weightDecimals, costTieRatio and
+	 * duplicateManifestRatio.
+	 */
+	public void configure(Map<String, String> settings) throws APIException {
+		try {
+			for (Map.Entry<String, String> setting : settings.entrySet()) {
+				String value = setting.getValue();
+				switch (setting.getKey()) {
+				case "seed":
+					setSeed(Long.parseLong(value));
+					break;
+				case "packageCount":
+					setPackageCount(Integer.parseInt(value));
+					break;
+				case "minimumCapacity":
+					setMinimumCapacity(Integer.parseInt(value));
+					break;
+				case "maximumCapacity":
+					setMaximumCapacity(Integer.parseInt(value));
+					break;
+				case "minimumItemCount":
+					setMinimumItemCount(Integer.parseInt(value));
+					break;
+				case "maximumItemCount":
+					setMaximumItemCount(Integer.parseInt(value));
+					break;
+				case "maximumItemWeight":
+					setMaximumItemWeight(Integer.parseInt(value));
+					break;
+				case "maximumItemCost":
+					setMaximumItemCost(Integer.parseInt(value));
+					break;
+				case "weightDecimals":
+					setWeightDecimals(Integer.parseInt(value));
+					break;
+				case "costTieRatio":
+					setCostTieRatio(Double.parseDouble(value));
+					break;
+				case "duplicateManifestRatio":
+					setDuplicateManifestRatio(Double.parseDouble(value));
+					break;
+				default:
+					throw new APIException("Unknown setting " + setting.getKey());
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			throw new APIException("Invalid setting: " + e.getMessage(), e);
+		}
+		if (minimumCapacity > maximumCapacity || minimumItemCount > maximumItemCount) {
+			throw new APIException("A minimum setting is more than its maximum");
+		}
+	}
+
+	// Generates all the lines
+	public List<String> generateLines() {
+		List<String> lines = new ArrayList<>(packageCount);
+		Random random = new Random(seed);
+		List<Manifest> manifests = new ArrayList<>();
+		for (int p = 0; p < packageCount; p++) {
+			lines.add(nextLine(random, manifests));
+		}
+		return lines;
+	}
+
+	// Writes the lines to a file one at a time
+	public void write(Path file, Charset charset) throws APIException {
+		try (Writer writer = Files.newBufferedWriter(file, charset)) {
+			Random random = new Random(seed);
+			List<Manifest> manifests = new ArrayList<>();
+			for (int p = 0; p < packageCount; p++) {
+				writer.write(nextLine(random, manifests));
+				writer.write(System.getProperty("line.separator"));
+			}
+		} catch (IOException e) {
+			throw new APIException("Unable to write file", e);
+		}
+	}
+
+	private String nextLine(Random random, List<Manifest> manifests) {
+		Manifest manifest;
+		if (!manifests.isEmpty() && random.nextDouble() < duplicateManifestRatio) {
+			manifest = manifests.get(random.nextInt(manifests.size())).shuffle(random);
+		} else {
+			manifest = nextManifest(random);
+			if (manifests.size() < REMEMBERED_MANIFESTS) {
+				manifests.add(manifest);
+			} else {
+				manifests.set(random.nextInt(REMEMBERED_MANIFESTS), manifest);
+			}
+		}
+		return manifest.toLine(weightDecimals);
+	}
+
+	private Manifest nextManifest(Random random) {
+		int capacity = minimumCapacity + random.nextInt(maximumCapacity - minimumCapacity + 1);
+		int itemCount = minimumItemCount + random.nextInt(maximumItemCount - minimumItemCount + 1);
+		long weightUnits = pow10(weightDecimals);
+		long[] weights = new long[itemCount];
+		int[] costs = new int[itemCount];
+		for (int i = 0; i < itemCount; i++) {
+			weights[i] = 1 + (long) (random.nextDouble() * maximumItemWeight * weightUnits);
+			if (i > 0 && random.nextDouble() < costTieRatio) {
+				costs[i] = costs[random.nextInt(i)];
+			} else {
+				costs[i] = 1 + random.nextInt(maximumItemCost);
+			}
+		}
+		return new Manifest(capacity, weights, costs);
+	}
+
+	private static long pow10(int exponent) {
+		long value = 1;
+		for (int i = 0; i < exponent; i++) {
+			value *= 10;
+		}
+		return value;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public int getPackageCount() {
+		return packageCount;
+	}
+
+	public void setPackageCount(int packageCount) {
+		this.packageCount = requireAtLeast(packageCount, 0, "packageCount");
+	}
+
+	public int getMinimumCapacity() {
+		return minimumCapacity;
+	}
+
+	public void setMinimumCapacity(int minimumCapacity) {
+		this.minimumCapacity = requireAtLeast(minimumCapacity, 0, "minimumCapacity");
+	}
+
+	public int getMaximumCapacity() {
+		return maximumCapacity;
+	}
+
+	public void setMaximumCapacity(int maximumCapacity) {
+		this.maximumCapacity = requireAtLeast(maximumCapacity, 0, "maximumCapacity");
+	}
+
+	public int getMinimumItemCount() {
+		return minimumItemCount;
+	}
+
+	public void setMinimumItemCount(int minimumItemCount) {
+		this.minimumItemCount = requireAtLeast(minimumItemCount, 0, "minimumItemCount");
+	}
+
+	public int getMaximumItemCount() {
+		return maximumItemCount;
+	}
+
+	public void setMaximumItemCount(int maximumItemCount) {
+		this.maximumItemCount = requireAtLeast(maximumItemCount, 0, "maximumItemCount");
+	}
+
+	public int getMaximumItemWeight() {
+		return maximumItemWeight;
+	}
+
+	public void setMaximumItemWeight(int maximumItemWeight) {
+		this.maximumItemWeight = requireAtLeast(maximumItemWeight, 1, "maximumItemWeight");
+	}
+
+	public int getMaximumItemCost() {
+		return maximumItemCost;
+	}
+
+	public void setMaximumItemCost(int maximumItemCost) {
+		this.maximumItemCost = requireAtLeast(maximumItemCost, 1, "maximumItemCost");
+	}
+
+	public int getWeightDecimals() {
+		return weightDecimals;
+	}
+
+	// Weights with more than two decimals are not whole hundredths
+	public void setWeightDecimals(int weightDecimals) {
+		if (weightDecimals < 0 || weightDecimals > 9) {
+			throw new IllegalArgumentException("weightDecimals must be between 0 and 9");
+		}
+		this.weightDecimals = weightDecimals;
+	}
+
+	public double getCostTieRatio() {
+		return costTieRatio;
+	}
+
+	public void setCostTieRatio(double costTieRatio) {
+		this.costTieRatio = requireRatio(costTieRatio, "costTieRatio");
+	}
+
+	public double getDuplicateManifestRatio() {
+		return duplicateManifestRatio;
+	}
+
+	public void setDuplicateManifestRatio(double duplicateManifestRatio) {
+		this.duplicateManifestRatio = requireRatio(duplicateManifestRatio, "duplicateManifestRatio");
+	}
+
+	private static int requireAtLeast(int value, int minimum, String name) {
+		if (value < minimum) {
+			throw new IllegalArgumentException(name + " must be " + minimum + " or more");
+		}
+		return value;
+	}
+
+	private static double requireRatio(double value, String name) {
+		if (!(value >= 0 && value <= 1)) {
+			throw new IllegalArgumentException(name + " must be between 0 and 1");
+		}
+		return value;
+	}
+
+	/*
+	 * The capacity and items of a package. The weights are held in units of
+	 * the last decimal.
+	 */
+	private static final class Manifest {
+
+		private final int capacity;
+		private final long[] weights;
+		private final int[] costs;
+
+		Manifest(int capacity, long[] weights, int[] costs) {
+			this.capacity = capacity;
+			this.weights = weights;
+			this.costs = costs;
+		}
+
+		// A manifest with the same items in a random order
+		Manifest shuffle(Random random) {
+			long[] shuffledWeights = weights.clone();
+			int[] shuffledCosts = costs.clone();
+			for (int i = shuffledWeights.length - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				long weight = shuffledWeights[i];
+				shuffledWeights[i] = shuffledWeights[j];
+				shuffledWeights[j] = weight;
+				int cost = shuffledCosts[i];
+				shuffledCosts[i] = shuffledCosts[j];
+				shuffledCosts[j] = cost;
+			}
+			return new Manifest(capacity, shuffledWeights, shuffledCosts);
+		}
+
+		String toLine(int weightDecimals) {
+			long weightUnits = pow10(weightDecimals);
+			StringBuilder line = new StringBuilder();
+			line.append(capacity).append(" :");
+			for (int i = 0; i < weights.length; i++) {
+				line.append(" (").append(i + 1).append(',').append(weights[i] / weightUnits);
+				if (weightDecimals > 0) {
+					String decimals = Long.toString(weights[i] % weightUnits);
+					line.append('.');
+					for (int d = decimals.length(); d < weightDecimals; d++) {
+						line.append('0');
+					}
+					line.append(decimals);
+				}
+				line.append(",").append(costs[i]).append(')');
+			}
+			return line.toString();
+		}
+	}
+
+}
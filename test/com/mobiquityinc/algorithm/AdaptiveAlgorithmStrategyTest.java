@@ -0,0 +1,81 @@
+package com.mobiquityinc.algorithm;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.mobiquityinc.algorithm.AdaptiveAlgorithmStrategy.Choice;
+import com.mobiquityinc.model.Package;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class AdaptiveAlgorithmStrategyTest {
+	// The algorithm is chosen from the number of items, the capacity and the
+	// precision of the weights and costs
+	@Test
+	public void chooseAlgorithmForPackage() {
+		AdaptiveAlgorithmStrategy algorithm = new AdaptiveAlgorithmStrategy(new BranchAndBoundAlgorithmStrategy());
+		algorithm.setMaximumEnumeratedItems(2);
+		algorithm.setMaximumTableSize(3 * 5001);
+		double[] weights = { 10.5, 20, 30.25, 40.125 };
+		double[] costs = { 10, 20, 30, 40 };
+		assertThat(algorithm.chooseAlgorithm(50, weights, costs, 0, 2), equalTo(Choice.BITMASK_ENUMERATION));
+		assertThat(algorithm.chooseAlgorithm(50, weights, costs, 0, 3), equalTo(Choice.DYNAMIC_PROGRAMMING));
+		assertThat(algorithm.chooseAlgorithm(60, weights, costs, 0, 3), equalTo(Choice.BRANCH_AND_BOUND));
+		// A weight with more than two decimals is not exact in hundredths
+		assertThat(algorithm.chooseAlgorithm(50, weights, costs, 1, 3), equalTo(Choice.FALLBACK));
+		// Packages with more items than the maximum are approximated
+		algorithm.setApproximation(new FptasAlgorithmStrategy(), 3);
+		assertThat(algorithm.chooseAlgorithm(50, weights, costs, 0, 4), equalTo(Choice.APPROXIMATION));
+		assertThat(algorithm.chooseAlgorithm(50, weights, costs, 0, 3), equalTo(Choice.DYNAMIC_PROGRAMMING));
+	}
+
+	// The packages get the same cost and weight as with dynamic programming
+	// and the number of packages solved by each algorithm is counted
+	@Test
+	public void selectItemsWithSameCostAndWeightAsDynamicProgramming() {
+		AdaptiveAlgorithmStrategy algorithm = new AdaptiveAlgorithmStrategy(new BranchAndBoundAlgorithmStrategy());
+		algorithm.setMaximumTableSize(20 * 5001);
+		List<Package> expected = new ArrayList<>();
+		List<Package> actual = new ArrayList<>();
+		Random random = new Random(20170417L);
+		for (int p = 0; p < 300; p++) {
+			Package pack = RandomPackages.createPackage(random, random.nextInt(40));
+			expected.add(pack);
+			actual.add(RandomPackages.copyPackage(pack));
+		}
+		new DynamicProgrammingAlgorithmStrategy().solveProblem(expected);
+		algorithm.solveProblem(actual);
+		for (int p = 0; p < expected.size(); p++) {
+			assertThat(actual.get(p).getCostOfItems(), equalTo(expected.get(p).getCostOfItems()));
+			assertThat(actual.get(p).getWeightOfItems(), equalTo(expected.get(p).getWeightOfItems()));
+		}
+		assertThat(algorithm.getSelectionCount(Choice.BITMASK_ENUMERATION), greaterThan(0L));
+		assertThat(algorithm.getSelectionCount(Choice.DYNAMIC_PROGRAMMING), greaterThan(0L));
+		assertThat(algorithm.getSelectionCount(Choice.BRANCH_AND_BOUND), greaterThan(0L));
+		assertThat(algorithm.getSelectionCount(Choice.FALLBACK), equalTo(0L));
+	}
+
+	// The calibration measures both algorithms and sets thresholds the
+	// algorithms can use
+	@Test
+	public void calibrateThresholds() {
+		AdaptiveAlgorithmStrategy algorithm = new AdaptiveAlgorithmStrategy(new BranchAndBoundAlgorithmStrategy());
+		AdaptiveAlgorithmStrategy.Calibration calibration = algorithm.calibrate();
+		assertThat(calibration.getNanosPerSelection(), greaterThan(0.0));
+		assertThat(calibration.getNanosPerTableEntry(), greaterThan(0.0));
+		assertThat(algorithm.getMaximumEnumeratedItems(),
+				lessThanOrEqualTo(BitmaskEnumerationAlgorithmStrategy.MAXIMUM_ENUMERATED_ITEMS));
+		assertThat(algorithm.getMaximumTableSize(), equalTo(calibration.getMaximumTableSize()));
+	}
+
+}
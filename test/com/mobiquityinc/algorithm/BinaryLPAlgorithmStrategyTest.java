@@ -179,4 +179,23 @@ public class BinaryLPAlgorithmStrategyTest {
 		assertThat(pack2.isSendPackage(), equalTo(true));
 	}
 
+	// If more than one package with the same cost has the lowest weight, only
+	// the first of those packages is sent
+	@Test
+	public void ifMultiplePackagesWithSameCostAndWeightSendFirst() {
+		List<Package> packages = new ArrayList<>();
+		for (int p = 0; p < 3; p++) {
+			Package pack = new Package(8, new ArrayList<Item>(), new ArrayList<Item>());
+			pack.setCostOfItems(55.31);
+			pack.setWeightOfItems(p == 0 ? 30 : 22.9);
+			pack.getSelectedItems().add(new Item(1, pack.getWeightOfItems(), 55.31));
+			packages.add(pack);
+		}
+		BinaryLPAlgorithmStrategy algorithm = new BinaryLPAlgorithmStrategy();
+		algorithm.choosePackagesToSend(packages);
+		assertThat(packages.get(0).isSendPackage(), equalTo(false));
+		assertThat(packages.get(1).isSendPackage(), equalTo(true));
+		assertThat(packages.get(2).isSendPackage(), equalTo(false));
+	}
+
 }
@@ -0,0 +1,82 @@
+package com.mobiquityinc.algorithm;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.mobiquityinc.model.Item;
+import com.mobiquityinc.model.Package;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class BitmaskEnumerationAlgorithmStrategyTest {
+	// Items with a weight or cost more than allowed should not be selected
+	@Test
+	public void doNotSelectItemsWhichAreNotAllowed() {
+		List<Item> availableItems = new ArrayList<Item>() {
+			{
+				add(new Item(1, 15.3, 34));
+				add(new Item(2, 105, 34));
+				add(new Item(3, 5, 101));
+			}
+		};
+		List<Package> packages = new ArrayList<Package>() {
+			{
+				add(new Package(8, availableItems));
+			}
+		};
+		BitmaskEnumerationAlgorithmStrategy algorithm = new BitmaskEnumerationAlgorithmStrategy();
+		algorithm.solveProblem(packages);
+		assertThat(packages.stream().findFirst().orElse(null).getSelectedItems(), hasSize(equalTo(0)));
+	}
+
+	// The optimal combination of items is selected in the order of the items
+	// in the package
+	@Test
+	public void selectOptimalCombinationOfItemsWithMaximumCost() {
+		List<Item> availableItems = new ArrayList<Item>() {
+			{
+				add(new Item(1, 90.72, 13));
+				add(new Item(2, 33.80, 40));
+				add(new Item(3, 43.15, 10));
+				add(new Item(4, 37.97, 16));
+				add(new Item(5, 46.81, 36));
+				add(new Item(6, 48.77, 79));
+				add(new Item(7, 81.80, 45));
+				add(new Item(8, 19.36, 79));
+				add(new Item(9, 6.76, 64));
+			}
+		};
+		List<Package> packages = new ArrayList<Package>() {
+			{
+				add(new Package(56, availableItems));
+			}
+		};
+		BitmaskEnumerationAlgorithmStrategy algorithm = new BitmaskEnumerationAlgorithmStrategy();
+		algorithm.solveProblem(packages);
+		Package pack = packages.stream().findFirst().orElse(null);
+		assertThat(pack.getSelectedItems(), hasSize(equalTo(2)));
+		assertThat(pack.getSelectedItems().get(0).getIndexNumber(), equalTo(8));
+		assertThat(pack.getSelectedItems().get(1).getIndexNumber(), equalTo(9));
+	}
+
+	// The selected cost and weight must match the dynamic programming strategy
+	// for randomly generated packages
+	@Test
+	public void selectSameCostAndWeightAsDynamicProgramming() {
+		Random random = new Random(20170416L);
+		for (int p = 0; p < 500; p++) {
+			RandomPackages.assertSameCostAndWeightAsDynamicProgramming(new BitmaskEnumerationAlgorithmStrategy(),
+					RandomPackages.createPackage(random, random.nextInt(16)));
+		}
+	}
+
+}
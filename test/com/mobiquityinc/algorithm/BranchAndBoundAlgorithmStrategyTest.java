@@ -0,0 +1,109 @@
+package com.mobiquityinc.algorithm;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.notNullValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.mobiquityinc.model.Item;
+import com.mobiquityinc.model.Package;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class BranchAndBoundAlgorithmStrategyTest {
+	// Items with a weight or cost more than allowed should not be selected
+	@Test
+	public void doNotSelectItemsWhichAreNotAllowed() {
+		List<Item> availableItems = new ArrayList<Item>() {
+			{
+				add(new Item(1, 15.3, 34));
+				add(new Item(2, 105, 34));
+				add(new Item(3, 5, 101));
+			}
+		};
+		List<Package> packages = new ArrayList<Package>() {
+			{
+				add(new Package(8, availableItems));
+			}
+		};
+		BranchAndBoundAlgorithmStrategy algorithm = new BranchAndBoundAlgorithmStrategy();
+		algorithm.solveProblem(packages);
+		assertThat(packages.stream().findFirst().orElse(null).getSelectedItems(), hasSize(equalTo(0)));
+	}
+
+	// The optimal combination of items is selected for the package and the cost
+	// is maximized
+	@Test
+	public void selectOptimalCombinationOfItemsWithMaximumCost() {
+		List<Item> availableItems = new ArrayList<Item>() {
+			{
+				add(new Item(1, 85.31, 29));
+				add(new Item(2, 14.55, 74));
+				add(new Item(3, 3.98, 16));
+				add(new Item(4, 26.24, 55));
+				add(new Item(5, 63.69, 52));
+				add(new Item(6, 76.25, 75));
+				add(new Item(7, 60.02, 74));
+				add(new Item(8, 93.18, 35));
+				add(new Item(9, 89.95, 78));
+			}
+		};
+		List<Package> packages = new ArrayList<Package>() {
+			{
+				add(new Package(75, availableItems));
+			}
+		};
+		BranchAndBoundAlgorithmStrategy algorithm = new BranchAndBoundAlgorithmStrategy();
+		algorithm.solveProblem(packages);
+		Package pack = packages.stream().findFirst().orElse(null);
+		assertThat(pack.getCostOfItems(), equalTo(148.0));
+		assertThat(pack.getSelectedItems(), hasSize(equalTo(2)));
+		assertThat(pack.getSelectedItems().parallelStream().filter(i -> i.getIndexNumber() == 2).findAny().orElse(null),
+				notNullValue());
+		assertThat(pack.getSelectedItems().parallelStream().filter(i -> i.getIndexNumber() == 7).findAny().orElse(null),
+				notNullValue());
+	}
+
+	// If more than one combination of items has the highest cost, the lightest
+	// combination is selected
+	@Test
+	public void selectLightestCombinationIfCostsAreEqual() {
+		List<Item> availableItems = new ArrayList<Item>() {
+			{
+				add(new Item(1, 10, 50));
+				add(new Item(2, 5, 25));
+				add(new Item(3, 4.99, 25));
+			}
+		};
+		List<Package> packages = new ArrayList<Package>() {
+			{
+				add(new Package(10, availableItems));
+			}
+		};
+		BranchAndBoundAlgorithmStrategy algorithm = new BranchAndBoundAlgorithmStrategy();
+		algorithm.solveProblem(packages);
+		Package pack = packages.stream().findFirst().orElse(null);
+		assertThat(pack.getCostOfItems(), equalTo(50.0));
+		assertThat(pack.getWeightOfItems(), equalTo(9.99));
+	}
+
+	// The selected cost and weight must match the dynamic programming strategy
+	// for randomly generated packages
+	@Test
+	public void selectSameCostAndWeightAsDynamicProgramming() {
+		Random random = new Random(20170415L);
+		for (int p = 0; p < 500; p++) {
+			RandomPackages.assertSameCostAndWeightAsDynamicProgramming(new BranchAndBoundAlgorithmStrategy(),
+					RandomPackages.createPackage(random, 1 + random.nextInt(15)));
+		}
+	}
+
+}
@@ -0,0 +1,122 @@
+package com.mobiquityinc.algorithm;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.mobiquityinc.model.Item;
+import com.mobiquityinc.model.Package;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class CachingAlgorithmStrategyTest {
+	// A package with the same items in a different order is found in the
+	// cache and the selection is mapped back to its own items
+	@Test
+	public void selectCachedItemsOfPackageWithItemsInDifferentOrder() {
+		List<Item> availableItems = new ArrayList<Item>() {
+			{
+				add(new Item(1, 53.38, 45));
+				add(new Item(2, 88.62, 98));
+				add(new Item(3, 78.48, 3));
+				add(new Item(4, 72.30, 76));
+				add(new Item(5, 30.18, 9));
+				add(new Item(6, 46.34, 48));
+			}
+		};
+		List<Item> reorderedItems = new ArrayList<Item>() {
+			{
+				add(new Item(1, 46.34, 48));
+				add(new Item(2, 72.30, 76));
+				add(new Item(3, 30.18, 9));
+				add(new Item(4, 88.62, 98));
+				add(new Item(5, 78.48, 3));
+				add(new Item(6, 53.38, 45));
+			}
+		};
+		List<Package> packages = new ArrayList<Package>() {
+			{
+				add(new Package(81, availableItems));
+				add(new Package(81, reorderedItems));
+			}
+		};
+		CachingAlgorithmStrategy algorithm = new CachingAlgorithmStrategy(new DynamicProgrammingAlgorithmStrategy(),
+				10);
+		algorithm.solveProblem(packages);
+		assertThat(packages.get(0).getSelectedItems().size(), equalTo(1));
+		assertThat(packages.get(0).getSelectedItems().get(0).getIndexNumber(), equalTo(4));
+		assertThat(packages.get(1).getSelectedItems().size(), equalTo(1));
+		assertThat(packages.get(1).getSelectedItems().get(0).getIndexNumber(), equalTo(2));
+		assertThat(algorithm.getMissCount(), equalTo(1L));
+		assertThat(algorithm.getHitCount(), equalTo(1L));
+	}
+
+	// Only the most recently used packages are kept
+	@Test
+	public void evictLeastRecentlyUsedPackage() {
+		CachingAlgorithmStrategy algorithm = new CachingAlgorithmStrategy(new DynamicProgrammingAlgorithmStrategy(),
+				2);
+		// The items do not fit together, so the packages are not solved
+		// before they reach the cache
+		for (double maximumWeight : new double[] { 10, 10.5, 10, 10.8, 10.5, 10 }) {
+			algorithm.solvePackage(new Package(maximumWeight, new ArrayList<Item>() {
+				{
+					add(new Item(1, 5, 10));
+					add(new Item(2, 6, 12));
+				}
+			}));
+		}
+		// 10 and 10.5 are missed, 10 is hit, 10.8 is missed and evicts 10.5,
+		// 10.5 is missed and evicts 10, 10 is missed and evicts 10.8
+		assertThat(algorithm.getMissCount(), equalTo(5L));
+		assertThat(algorithm.getHitCount(), equalTo(1L));
+		assertThat(algorithm.getEvictionCount(), equalTo(3L));
+		assertThat(algorithm.getSize(), equalTo(2));
+	}
+
+	// Packages solved through the cache by more than one thread get the same
+	// results as the strategy behind the cache
+	@Test
+	public void selectSameItemsAsStrategyInParallel() {
+		Random random = new Random(20170417L);
+		List<List<Item>> manifests = new ArrayList<>();
+		for (int m = 0; m < 20; m++) {
+			List<Item> items = new ArrayList<>();
+			int itemCount = random.nextInt(15);
+			for (int i = 1; i <= itemCount; i++) {
+				items.add(new Item(i, (1 + random.nextInt(10000)) / 100.0, random.nextInt(101)));
+			}
+			manifests.add(items);
+		}
+		List<Package> expected = new ArrayList<>();
+		List<Package> actual = new ArrayList<>();
+		for (int p = 0; p < 1000; p++) {
+			List<Item> items = new ArrayList<>(manifests.get(random.nextInt(manifests.size())));
+			Collections.shuffle(items, random);
+			expected.add(new Package(50, items));
+			actual.add(new Package(50, items));
+		}
+		new DynamicProgrammingAlgorithmStrategy().solveProblem(expected);
+		CachingAlgorithmStrategy algorithm = new CachingAlgorithmStrategy(new DynamicProgrammingAlgorithmStrategy(),
+				100);
+		algorithm.setParallelism(4);
+		algorithm.solveProblem(actual);
+		for (int p = 0; p < expected.size(); p++) {
+			assertThat(actual.get(p).getCostOfItems(), equalTo(expected.get(p).getCostOfItems()));
+			assertThat(actual.get(p).getWeightOfItems(), equalTo(expected.get(p).getWeightOfItems()));
+			assertThat(actual.get(p).isSendPackage(), equalTo(expected.get(p).isSendPackage()));
+		}
+		// Packages in which all the items fit are solved before the cache
+		assertThat(algorithm.getHitCount() + algorithm.getMissCount()
+				+ algorithm.getPresolver().getSolvedPackageCount(), equalTo(1000L));
+	}
+
+}
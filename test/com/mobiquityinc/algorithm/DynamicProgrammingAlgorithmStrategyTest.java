@@ -0,0 +1,179 @@
+package com.mobiquityinc.algorithm;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.notNullValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.mobiquityinc.model.Item;
+import com.mobiquityinc.model.Package;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class DynamicProgrammingAlgorithmStrategyTest {
+	// Item with a weight which is more than the package weight should not be
+	// selected
+	@Test
+	public void doNotSelectItemWithWeightMoreThanPackageWeight() {
+		List<Item> availableItems = new ArrayList<Item>() {
+			{
+				add(new Item(1, 15.3, 34));
+			}
+		};
+		List<Package> packages = new ArrayList<Package>() {
+			{
+				add(new Package(8, availableItems));
+			}
+		};
+		DynamicProgrammingAlgorithmStrategy algorithm = new DynamicProgrammingAlgorithmStrategy();
+		algorithm.solveProblem(packages);
+		assertThat(packages.stream().findFirst().orElse(null).getSelectedItems(), hasSize(equalTo(0)));
+	}
+
+	// Item with weight more than 100 should not be selected even if the
+	// package weight is more than 100
+	@Test
+	public void doNotSelectItemWithWeightMoreThan100() {
+		List<Item> availableItems = new ArrayList<Item>() {
+			{
+				add(new Item(1, 105, 34));
+			}
+		};
+		List<Package> packages = new ArrayList<Package>() {
+			{
+				add(new Package(110, availableItems));
+			}
+		};
+		DynamicProgrammingAlgorithmStrategy algorithm = new DynamicProgrammingAlgorithmStrategy();
+		algorithm.solveProblem(packages);
+		assertThat(packages.stream().findFirst().orElse(null).getSelectedItems(), hasSize(equalTo(0)));
+	}
+
+	// Item with cost more than 100 should not be selected
+	@Test
+	public void doNotSelectItemWithCostMoreThan100() {
+		List<Item> availableItems = new ArrayList<Item>() {
+			{
+				add(new Item(1, 15, 101));
+			}
+		};
+		List<Package> packages = new ArrayList<Package>() {
+			{
+				add(new Package(98, availableItems));
+			}
+		};
+		DynamicProgrammingAlgorithmStrategy algorithm = new DynamicProgrammingAlgorithmStrategy();
+		algorithm.solveProblem(packages);
+		assertThat(packages.stream().findFirst().orElse(null).getSelectedItems(), hasSize(equalTo(0)));
+	}
+
+	// The optimal combination of items is selected for the package and the cost
+	// is maximized
+	@Test
+	public void selectOptimalCombinationOfItemsWithMaximumCost() {
+		List<Item> availableItems = new ArrayList<Item>() {
+			{
+				add(new Item(1, 85.31, 29));
+				add(new Item(2, 14.55, 74));
+				add(new Item(3, 3.98, 16));
+				add(new Item(4, 26.24, 55));
+				add(new Item(5, 63.69, 52));
+				add(new Item(6, 76.25, 75));
+				add(new Item(7, 60.02, 74));
+				add(new Item(8, 93.18, 35));
+				add(new Item(9, 89.95, 78));
+			}
+		};
+		List<Package> packages = new ArrayList<Package>() {
+			{
+				add(new Package(75, availableItems));
+			}
+		};
+		DynamicProgrammingAlgorithmStrategy algorithm = new DynamicProgrammingAlgorithmStrategy();
+		algorithm.solveProblem(packages);
+		Package pack = packages.stream().findFirst().orElse(null);
+		assertThat(pack.getCostOfItems(), equalTo(148.0));
+		assertThat(pack.getSelectedItems(), hasSize(equalTo(2)));
+		assertThat(pack.getSelectedItems().parallelStream().filter(i -> i.getIndexNumber() == 2).findAny().orElse(null),
+				notNullValue());
+		assertThat(pack.getSelectedItems().parallelStream().filter(i -> i.getIndexNumber() == 7).findAny().orElse(null),
+				notNullValue());
+	}
+
+	// An item weighing exactly the package weight may be selected
+	@Test
+	public void selectItemWithWeightEqualToPackageWeight() {
+		List<Item> availableItems = new ArrayList<Item>() {
+			{
+				add(new Item(1, 53.38, 45));
+				add(new Item(2, 81, 50));
+			}
+		};
+		List<Package> packages = new ArrayList<Package>() {
+			{
+				add(new Package(81, availableItems));
+			}
+		};
+		DynamicProgrammingAlgorithmStrategy algorithm = new DynamicProgrammingAlgorithmStrategy();
+		algorithm.solveProblem(packages);
+		Package pack = packages.stream().findFirst().orElse(null);
+		assertThat(pack.getSelectedItems(), hasSize(equalTo(1)));
+		assertThat(pack.getSelectedItems().get(0).getIndexNumber(), equalTo(2));
+	}
+
+	// If more than one combination of items has the highest cost, the lightest
+	// combination is selected
+	@Test
+	public void selectLightestCombinationIfCostsAreEqual() {
+		List<Item> availableItems = new ArrayList<Item>() {
+			{
+				add(new Item(1, 10, 50));
+				add(new Item(2, 5, 25));
+				add(new Item(3, 4.99, 25));
+			}
+		};
+		List<Package> packages = new ArrayList<Package>() {
+			{
+				add(new Package(10, availableItems));
+			}
+		};
+		DynamicProgrammingAlgorithmStrategy algorithm = new DynamicProgrammingAlgorithmStrategy();
+		algorithm.solveProblem(packages);
+		Package pack = packages.stream().findFirst().orElse(null);
+		assertThat(pack.getCostOfItems(), equalTo(50.0));
+		assertThat(pack.getSelectedItems(), hasSize(equalTo(2)));
+		assertThat(pack.getSelectedItems().get(0).getIndexNumber(), equalTo(2));
+		assertThat(pack.getSelectedItems().get(1).getIndexNumber(), equalTo(3));
+	}
+
+	// Solving the packages in parallel produces the same results in the same
+	// order as solving them one at a time
+	@Test
+	public void solveInParallelProducesSameResultsInSameOrder() {
+		Random random = new Random(20170418L);
+		List<Package> sequentialPackages = new ArrayList<>();
+		List<Package> parallelPackages = new ArrayList<>();
+		for (int p = 0; p < 1000; p++) {
+			Package pack = RandomPackages.createPackage(random, random.nextInt(16));
+			sequentialPackages.add(pack);
+			parallelPackages.add(RandomPackages.copyPackage(pack));
+		}
+		new DynamicProgrammingAlgorithmStrategy().solveProblem(sequentialPackages);
+		DynamicProgrammingAlgorithmStrategy algorithm = new DynamicProgrammingAlgorithmStrategy();
+		algorithm.setParallelism(4);
+		algorithm.solveProblem(parallelPackages);
+		for (int p = 0; p < sequentialPackages.size(); p++) {
+			assertThat(parallelPackages.get(p).getSelectedItems(), equalTo(sequentialPackages.get(p).getSelectedItems()));
+			assertThat(parallelPackages.get(p).isSendPackage(), equalTo(sequentialPackages.get(p).isSendPackage()));
+		}
+	}
+
+}
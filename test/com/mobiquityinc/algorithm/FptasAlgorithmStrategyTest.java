@@ -0,0 +1,66 @@
+package com.mobiquityinc.algorithm;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.mobiquityinc.model.Item;
+import com.mobiquityinc.model.Package;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class FptasAlgorithmStrategyTest {
+	// The selection of a package with many items costs at least the
+	// guaranteed ratio of the optimal cost, which is at least 1 - epsilon
+	@Test
+	public void selectWithinGuaranteedRatioOfOptimalCost() {
+		FptasAlgorithmStrategy algorithm = new FptasAlgorithmStrategy(0.2);
+		Random random = new Random(20170419L);
+		for (int p = 0; p < 200; p++) {
+			List<Item> availableItems = RandomPackages.createItems(random, 50 + random.nextInt(150));
+			double maximumWeight = 1 + random.nextInt(100);
+			Package expected = new Package(maximumWeight, availableItems);
+			Package actual = new Package(maximumWeight, availableItems);
+			new DynamicProgrammingAlgorithmStrategy().solvePackage(expected);
+			algorithm.solvePackage(actual);
+			assertThat(actual.getWeightOfItems(), lessThanOrEqualTo(maximumWeight));
+			assertThat(actual.getGuaranteedRatio(), greaterThanOrEqualTo(0.8));
+			assertThat(actual.getCostOfItems(),
+					greaterThanOrEqualTo(actual.getGuaranteedRatio() * expected.getCostOfItems() - 1e-9));
+		}
+	}
+
+	// With an epsilon small enough that the costs are not rounded, the
+	// selection is optimal
+	@Test
+	public void selectOptimallyWithSmallEpsilon() {
+		FptasAlgorithmStrategy algorithm = new FptasAlgorithmStrategy(0.0001);
+		Random random = new Random(20170420L);
+		for (int p = 0; p < 200; p++) {
+			List<Item> availableItems = RandomPackages.createItems(random, 1 + random.nextInt(15));
+			double maximumWeight = 1 + random.nextInt(100);
+			Package expected = new Package(maximumWeight, availableItems);
+			Package actual = new Package(maximumWeight, availableItems);
+			new DynamicProgrammingAlgorithmStrategy().solvePackage(expected);
+			algorithm.solvePackage(actual);
+			assertThat(actual.getCostOfItems(), equalTo(expected.getCostOfItems()));
+			assertThat(actual.getWeightOfItems(), equalTo(expected.getWeightOfItems()));
+			assertThat(actual.isApproximate(), equalTo(false));
+		}
+	}
+
+	// The epsilon must be between 0 and 1
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectEpsilonOutOfRange() {
+		new FptasAlgorithmStrategy(1);
+	}
+
+}
@@ -0,0 +1,86 @@
+package com.mobiquityinc.algorithm;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.mobiquityinc.model.Item;
+import com.mobiquityinc.model.Package;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class IncrementalPackageChooserTest {
+	// Only the lightest of the packages with the same cost is sent, even if
+	// it is the last package
+	@Test
+	public void sendLightestPackageWithSameCost() {
+		IncrementalPackageChooser chooser = new IncrementalPackageChooser();
+		chooser.add(55.31, 22.9);
+		chooser.add(55.31, 22.89);
+		chooser.add(55.31, 22.89);
+		chooser.finish();
+		assertThat(chooser.isSendPackage(0, 55.31, true), equalTo(false));
+		assertThat(chooser.isSendPackage(1, 55.31, true), equalTo(true));
+		assertThat(chooser.isSendPackage(2, 55.31, true), equalTo(false));
+		assertThat(chooser.getCostCount(), equalTo(1));
+	}
+
+	// A package without any cost is only sent if items were selected
+	@Test
+	public void sendPackageWithoutCostIfItemsWereSelected() {
+		IncrementalPackageChooser chooser = new IncrementalPackageChooser();
+		chooser.add(0, 0);
+		chooser.add(0, 3);
+		chooser.finish();
+		assertThat(chooser.isSendPackage(0, 0, false), equalTo(false));
+		assertThat(chooser.isSendPackage(1, 0, true), equalTo(true));
+		assertThat(chooser.getCostCount(), equalTo(0));
+	}
+
+	// Packages can only be chosen once all the packages were added
+	@Test(expected = IllegalStateException.class)
+	public void chooseOnlyOnceFinished() {
+		IncrementalPackageChooser chooser = new IncrementalPackageChooser();
+		chooser.add(10, 5);
+		chooser.isSendPackage(0, 10, true);
+	}
+
+	// The packages chosen one at a time must match the packages chosen for the
+	// whole file at once
+	@Test
+	public void chooseSamePackagesAsWholeFile() {
+		Random random = new Random(20170419L);
+		List<Package> packages = new ArrayList<>();
+		for (int p = 0; p < 2000; p++) {
+			Package pack = new Package(100, new ArrayList<Item>());
+			pack.setCostOfItems(random.nextInt(40));
+			pack.setWeightOfItems(random.nextInt(20));
+			if (pack.getCostOfItems() > 0 || random.nextBoolean()) {
+				pack.getSelectedItems().add(new Item(1, pack.getWeightOfItems(), pack.getCostOfItems()));
+			}
+			packages.add(pack);
+		}
+		new DynamicProgrammingAlgorithmStrategy().choosePackagesToSend(packages);
+
+		IncrementalPackageChooser chooser = new IncrementalPackageChooser();
+		for (Package pack : packages) {
+			chooser.add(pack.getCostOfItems(), pack.getWeightOfItems());
+		}
+		chooser.finish();
+
+		assertThat(chooser.getPackageCount(), equalTo((long) packages.size()));
+		for (int p = 0; p < packages.size(); p++) {
+			Package pack = packages.get(p);
+			assertThat(chooser.isSendPackage(p, pack.getCostOfItems(), !pack.getSelectedItems().isEmpty()),
+					equalTo(pack.isSendPackage()));
+		}
+	}
+
+}
@@ -0,0 +1,106 @@
+package com.mobiquityinc.algorithm;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.mobiquityinc.model.Item;
+import com.mobiquityinc.model.Package;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class ItemPresolverTest {
+	// Items which are not allowed or do not add to the cost are removed
+	@Test
+	public void removeItemsWhichCanNotBePacked() {
+		ItemPresolver.Reduction reduction = new ItemPresolver().presolve(50,
+				new double[] { 10, 60, 20, 30, 105, 45 }, new double[] { 30, 20, 101, 0, 10, 35 }, 0, 6);
+		assertThat(reduction.getOriginalItemCount(), equalTo(6));
+		assertThat(reduction.getRemainingItemCount(), equalTo(2));
+		assertThat(reduction.getItemPosition(0), equalTo(0));
+		assertThat(reduction.getItemPosition(1), equalTo(5));
+		assertThat(reduction.isSolved(), equalTo(false));
+	}
+
+	// A dominated item or duplicate is removed when it does not fit together
+	// with the items which dominate it
+	@Test
+	public void removeDominatedAndDuplicateItems() {
+		ItemPresolver.Reduction reduction = new ItemPresolver().presolve(60,
+				new double[] { 30, 35, 30, 25, 40 }, new double[] { 50, 40, 50, 10, 60 }, 0, 5);
+		// The item weighing 35 is dominated by both copies of the first item
+		// and does not fit together with them. The second copy is dominated
+		// by the first copy but fits together with it.
+		assertThat(reduction.getRemainingItemCount(), equalTo(4));
+		reduction = new ItemPresolver().presolve(50, new double[] { 30, 35, 30, 40 },
+				new double[] { 50, 40, 50, 60 }, 0, 4);
+		// None of the dominated items fit with the items dominating them
+		assertThat(reduction.getRemainingItemCount(), equalTo(2));
+		assertThat(reduction.getItemPosition(0), equalTo(0));
+		assertThat(reduction.getItemPosition(1), equalTo(3));
+	}
+
+	// A package with many items is reduced without comparing every pair of
+	// items: only the first two of 100000 copies fit together
+	@Test
+	public void removeDominatedItemsOfLargePackage() {
+		double[] weights = new double[100000];
+		double[] costs = new double[weights.length];
+		Arrays.fill(weights, 50);
+		Arrays.fill(costs, 10);
+		ItemPresolver.Reduction reduction = new ItemPresolver().presolve(100, weights, costs, 0, weights.length);
+		assertThat(reduction.getRemainingItemCount(), equalTo(2));
+		assertThat(reduction.getItemPosition(1), equalTo(1));
+		assertThat(reduction.isSolved(), equalTo(true));
+	}
+
+	// A package in which all the remaining items fit is solved
+	@Test
+	public void solvePackageWhenAllItemsFit() {
+		ItemPresolver presolver = new ItemPresolver();
+		List<ItemPresolver.Reduction> reductions = new ArrayList<>();
+		presolver.setReductionListener(reductions::add);
+		assertThat(presolver.presolve(50, new double[] { 10, 20, 70 }, new double[] { 5, 6, 7 }, 0, 3).isSolved(),
+				equalTo(true));
+		assertThat(presolver.presolve(50, new double[0], new double[0], 0, 0).isSolved(), equalTo(true));
+		assertThat(presolver.getPackageCount(), equalTo(2L));
+		assertThat(presolver.getSolvedPackageCount(), equalTo(2L));
+		assertThat(presolver.getItemCount(), equalTo(3L));
+		assertThat(presolver.getRemovedItemCount(), equalTo(1L));
+		assertThat(reductions.size(), equalTo(2));
+		assertThat(reductions.get(0).getRemovedItemCount(), equalTo(1));
+	}
+
+	// Packages reduced by the presolver get the same cost and weight as
+	// packages solved from all their items
+	@Test
+	public void selectItemsWithSameCostAndWeightAsWithoutPresolver() {
+		Random random = new Random(20170417L);
+		for (int p = 0; p < 500; p++) {
+			List<Item> availableItems = new ArrayList<>();
+			int itemCount = random.nextInt(20);
+			for (int i = 1; i <= itemCount; i++) {
+				// Few distinct values so there are many duplicates
+				availableItems.add(new Item(i, 5 * (1 + random.nextInt(25)), 10 * random.nextInt(11)));
+			}
+			double maximumWeight = 1 + random.nextInt(120);
+			Package expected = new Package(maximumWeight, availableItems);
+			Package actual = new Package(maximumWeight, availableItems);
+			DynamicProgrammingAlgorithmStrategy withoutPresolver = new DynamicProgrammingAlgorithmStrategy();
+			withoutPresolver.setPresolver(null);
+			withoutPresolver.solvePackage(expected);
+			new DynamicProgrammingAlgorithmStrategy().solvePackage(actual);
+			assertThat(actual.getCostOfItems(), equalTo(expected.getCostOfItems()));
+			assertThat(actual.getWeightOfItems(), equalTo(expected.getWeightOfItems()));
+		}
+	}
+
+}
@@ -0,0 +1,41 @@
+package com.mobiquityinc.algorithm;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+import org.junit.Test;
+
+import scpsolver.lpsolver.GLPKSolver;
+import scpsolver.lpsolver.LinearProgramSolver;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class LinearProgramSolverPoolTest {
+	// A solver returned to the pool is reused instead of creating a new one
+	@Test
+	public void reuseSolverReturnedToPool() {
+		LinearProgramSolverPool pool = new LinearProgramSolverPool(GLPKSolver::new);
+		LinearProgramSolver solver = pool.acquire();
+		pool.release(solver);
+		assertThat(pool.acquire(), sameInstance(solver));
+		assertThat(pool.getCreatedCount(), equalTo(1L));
+		assertThat(pool.getReusedCount(), equalTo(1L));
+	}
+
+	// A new solver is created if all the solvers in the pool are in use
+	@Test
+	public void createSolverIfAllSolversAreInUse() {
+		LinearProgramSolverPool pool = new LinearProgramSolverPool(GLPKSolver::new);
+		LinearProgramSolver firstSolver = pool.acquire();
+		LinearProgramSolver secondSolver = pool.acquire();
+		pool.release(firstSolver);
+		pool.release(secondSolver);
+		assertThat(pool.getCreatedCount(), equalTo(2L));
+		assertThat(pool.getReusedCount(), equalTo(0L));
+		assertThat(pool.getIdleCount(), equalTo(2));
+	}
+
+}
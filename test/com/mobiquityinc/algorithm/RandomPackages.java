@@ -0,0 +1,61 @@
+package com.mobiquityinc.algorithm;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.mobiquityinc.model.Item;
+import com.mobiquityinc.model.Package;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+/*
+ * This class generates the random packages which the tests use to check the
+ * strategies against the dynamic programming strategy. Weights and costs are
+ * both given in hundredths, so costs which are not whole numbers are checked
+ * as well.
+ */
+final class RandomPackages {
+
+	private RandomPackages() {
+	}
+
+	// Creates items numbered from 1 with weights and costs from 0.01 to 100
+	static List<Item> createItems(Random random, int itemCount) {
+		List<Item> items = new ArrayList<>();
+		for (int i = 1; i <= itemCount; i++) {
+			items.add(new Item(i, (1 + random.nextInt(10000)) / 100.0, (1 + random.nextInt(10000)) / 100.0));
+		}
+		return items;
+	}
+
+	// Creates a package with a whole number capacity from 1 to 100
+	static Package createPackage(Random random, int itemCount) {
+		double maximumWeight = 1 + random.nextInt(100);
+		return new Package(maximumWeight, createItems(random, itemCount));
+	}
+
+	// Creates an unsolved package with the same capacity and items
+	static Package copyPackage(Package pack) {
+		return new Package(pack.getMaximumWeight(), pack.getAvailableItems());
+	}
+
+	// Solves a copy of the package with the strategy and checks that the cost
+	// and weight match the dynamic programming strategy. The solved copy is
+	// returned so that the caller can check it further.
+	static Package assertSameCostAndWeightAsDynamicProgramming(AbstractAlgorithmStrategy algorithm, Package pack) {
+		Package expected = copyPackage(pack);
+		Package actual = copyPackage(pack);
+		new DynamicProgrammingAlgorithmStrategy().solvePackage(expected);
+		algorithm.solvePackage(actual);
+		assertThat(actual.getCostOfItems(), equalTo(expected.getCostOfItems()));
+		assertThat(actual.getWeightOfItems(), equalTo(expected.getWeightOfItems()));
+		return actual;
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.mobiquityinc.algorithm;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.mobiquityinc.model.Item;
+import com.mobiquityinc.model.Package;
+import com.mobiquityinc.model.PackageBatch;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class TimeBudgetAlgorithmStrategyTest {
+	// With enough time the selection is optimal and not marked as approximate
+	@Test
+	public void selectSameCostAndWeightAsDynamicProgrammingWithinBudget() {
+		TimeBudgetAlgorithmStrategy algorithm = new TimeBudgetAlgorithmStrategy(Long.MAX_VALUE);
+		Random random = new Random(20170418L);
+		for (int p = 0; p < 500; p++) {
+			Package actual = RandomPackages.assertSameCostAndWeightAsDynamicProgramming(algorithm,
+					RandomPackages.createPackage(random, 1 + random.nextInt(15)));
+			assertThat(actual.isApproximate(), equalTo(false));
+		}
+		assertThat(algorithm.getApproximateCount(), equalTo(0L));
+	}
+
+	// Without time the greedy selection is returned and marked as approximate,
+	// unless the package is solved without searching
+	@Test
+	public void selectGreedilyWithoutBudget() {
+		PackageBatch batch = new PackageBatch();
+		batch.addPackage(10);
+		batch.addItem(1, 6, 60);
+		batch.addItem(2, 5, 45);
+		batch.addItem(3, 5, 45);
+		batch.addPackage(10);
+		batch.addItem(1, 5, 50);
+		batch.addItem(2, 5, 40);
+		TimeBudgetAlgorithmStrategy algorithm = new TimeBudgetAlgorithmStrategy(0);
+		algorithm.solveProblem(batch);
+
+		assertThat(batch.getCostOfItems(0), equalTo(60.0));
+		assertThat(batch.isItemSelected(0), equalTo(true));
+		assertThat(batch.isApproximate(0), equalTo(true));
+		// The fractional bound is 60 + 4 / 5 of 45
+		assertThat(batch.getGuaranteedRatio(0), equalTo(60 / 96.0));
+		assertThat(batch.getCostOfItems(1), equalTo(90.0));
+		assertThat(batch.isApproximate(1), equalTo(false));
+		assertThat(batch.getApproximatePackageCount(), equalTo(1));
+		assertThat(batch.getPackage(0).isApproximate(), equalTo(true));
+	}
+
+	// A package with weights which are not whole hundredths is never
+	// overweight and is marked as approximate
+	@Test
+	public void markPackagesWhichAreNotFixedPointAsApproximate() {
+		List<Item> availableItems = Arrays.asList(new Item(1, 3.333, 40), new Item(2, 3.333, 40),
+				new Item(3, 3.334, 40), new Item(4, 9, 10));
+		Package pack = new Package(10, availableItems);
+		new TimeBudgetAlgorithmStrategy().solvePackage(pack);
+		assertThat(pack.getWeightOfItems(), lessThanOrEqualTo(10.0));
+		assertThat(pack.isApproximate(), equalTo(true));
+		assertThat(pack.getGuaranteedRatio(), equalTo(0.0));
+	}
+
+	// Only optimal selections are remembered by the cache
+	@Test
+	public void doNotCacheApproximateSelections() {
+		CachingAlgorithmStrategy algorithm = new CachingAlgorithmStrategy(new TimeBudgetAlgorithmStrategy(0), 10);
+		List<Item> availableItems = Arrays.asList(new Item(1, 6, 60), new Item(2, 5, 45), new Item(3, 5, 45));
+		Package first = new Package(10, availableItems);
+		Package second = new Package(10, availableItems);
+		algorithm.solvePackage(first);
+		algorithm.solvePackage(second);
+		assertThat(second.isApproximate(), equalTo(true));
+		assertThat(algorithm.getHitCount(), equalTo(0L));
+		assertThat(algorithm.getSize(), equalTo(0));
+	}
+
+}
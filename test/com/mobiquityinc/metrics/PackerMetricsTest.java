@@ -0,0 +1,106 @@
+package com.mobiquityinc.metrics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Test;
+
+import com.mobiquityinc.exception.APIException;
+import com.mobiquityinc.metrics.PackerMetrics.Counter;
+import com.mobiquityinc.metrics.PackerMetrics.Stage;
+import com.mobiquityinc.packer.Packer;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class PackerMetricsTest {
+	// Counters are added up and listed by name in the summary
+	@Test
+	public void countAndSummarize() {
+		PackerMetrics metrics = new PackerMetrics();
+		metrics.increment(Counter.PACKAGES);
+		metrics.add(Counter.ITEMS, 15);
+		metrics.record(Stage.PARSE, System.nanoTime());
+		assertThat(metrics.getCount(Counter.PACKAGES), equalTo(1L));
+		assertThat(metrics.getCounters().get("items"), equalTo(15L));
+		assertThat(metrics.getTimer(Stage.PARSE).getCount(), equalTo(1L));
+		assertThat(metrics.getSummary(), containsString("choosePackagesToSend"));
+		assertThat(metrics.getSummary(), containsString("linearPrograms"));
+		metrics.reset();
+		assertThat(metrics.getCount(Counter.ITEMS), equalTo(0L));
+		assertThat(metrics.getTimer(Stage.PARSE).getCount(), equalTo(0L));
+	}
+
+	// The counters and the timer of every stage can be read over JMX
+	@Test
+	public void publishAsMBeans() throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		String name = "com.mobiquityinc:type=PackerMetricsTest";
+		PackerMetrics metrics = new PackerMetrics();
+		metrics.register(server, name);
+		try {
+			metrics.add(Counter.SENT_PACKAGES, 3);
+			metrics.getTimer(Stage.SOLVE_MODEL).record(2000);
+			TabularData counters = (TabularData) server.getAttribute(new ObjectName(name), "Counters");
+			CompositeData sentPackages = counters.get(new Object[] { "sentPackages" });
+			assertThat(sentPackages.get("value"), equalTo((Object) 3L));
+			assertThat(server.getAttribute(new ObjectName(name + ",stage=solveModel"), "MaxNanos"),
+					equalTo((Object) 2000L));
+			server.invoke(new ObjectName(name), "reset", null, null);
+			assertThat(metrics.getTimer(Stage.SOLVE_MODEL).getCount(), equalTo(0L));
+		} finally {
+			metrics.unregister(server, name);
+		}
+		assertThat(server.isRegistered(new ObjectName(name)), equalTo(false));
+	}
+
+	// Packing a file records its stages and counters in the default registry
+	@Test
+	public void packRecordsStagesAndCounters() throws APIException, IOException, JMException {
+		PackerMetrics metrics = PackerMetrics.getDefault();
+		Map<Stage, Long> stageCounts = new EnumMap<>(Stage.class);
+		for (Stage stage : Stage.values()) {
+			stageCounts.put(stage, metrics.getTimer(stage).getCount());
+		}
+		long packages = metrics.getCount(Counter.PACKAGES);
+		long items = metrics.getCount(Counter.ITEMS);
+		long sentPackages = metrics.getCount(Counter.SENT_PACKAGES);
+		Path file = Files.createTempFile("packer", ".txt");
+		try {
+			Files.write(file, Arrays.asList("8 : (1,15.3,34)", "20 : (1,10,45) (2,15,60)",
+					"75 : (1,85.31,29) (2,14.55,74) (3,3.98,16) (4,26.24,55)"), StandardCharsets.UTF_8);
+			Packer.pack(file.toString());
+		} finally {
+			Files.delete(file);
+		}
+		assertThat(metrics.getCount(Counter.PACKAGES) - packages, equalTo(3L));
+		assertThat(metrics.getCount(Counter.ITEMS) - items, equalTo(7L));
+		assertThat(metrics.getCount(Counter.SENT_PACKAGES) - sentPackages, equalTo(2L));
+		for (Stage stage : Arrays.asList(Stage.READ_FILE, Stage.PARSE, Stage.PRESOLVE, Stage.SELECT_ITEMS,
+				Stage.CHOOSE_PACKAGES, Stage.FORMAT_OUTPUT)) {
+			assertThat(stage.getName(), metrics.getTimer(stage).getCount(), greaterThan(stageCounts.get(stage)));
+		}
+		assertThat(metrics.getTimer(Stage.PARSE).getCount() - stageCounts.get(Stage.PARSE), equalTo(3L));
+		assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(PackerMetrics.OBJECT_NAME)),
+				equalTo(true));
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.mobiquityinc.metrics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class StageTimerTest {
+	// Every time falls in a bucket with a limit of at most a quarter more
+	@Test
+	public void bucketLimitIsCloseToTime() {
+		long[] times = { 0, 1, 3, 4, 7, 8, 9, 1000, 123456789, Long.MAX_VALUE };
+		for (long time : times) {
+			long limit = StageTimer.getBucketLimit(StageTimer.getBucket(time));
+			assertThat(limit, greaterThanOrEqualTo(time));
+			assertThat(limit - time, lessThanOrEqualTo(time / 4));
+		}
+		assertThat(StageTimer.getBucket(8), equalTo(StageTimer.getBucket(9)));
+		assertThat(StageTimer.getBucket(Long.MAX_VALUE) > StageTimer.getBucket(Long.MAX_VALUE / 2), equalTo(true));
+	}
+
+	// The count, total, maximum and percentiles of the recorded times
+	@Test
+	public void summarizeRecordedTimes() {
+		StageTimer timer = new StageTimer("parse");
+		for (int time = 1; time <= 100; time++) {
+			timer.record(time * 1000L);
+		}
+		assertThat(timer.getCount(), equalTo(100L));
+		assertThat(timer.getTotalNanos(), equalTo(5050000L));
+		assertThat(timer.getMeanNanos(), equalTo(50500L));
+		assertThat(timer.getMaxNanos(), equalTo(100000L));
+		assertThat(timer.getMedianNanos(), greaterThanOrEqualTo(50000L));
+		assertThat(timer.getMedianNanos(), lessThanOrEqualTo(62500L));
+		assertThat(timer.getPercentile99Nanos(), greaterThanOrEqualTo(99000L));
+		assertThat(timer.getPercentile99Nanos(), lessThanOrEqualTo(100000L));
+		timer.reset();
+		assertThat(timer.getCount(), equalTo(0L));
+		assertThat(timer.getMedianNanos(), equalTo(0L));
+	}
+
+	// Recording a time does not create any object
+	@Test
+	public void recordWithoutAllocating() {
+		assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+		PackerMetrics metrics = new PackerMetrics();
+		long threadId = Thread.currentThread().getId();
+		for (int i = 0; i < 20000; i++) {
+			metrics.record(PackerMetrics.Stage.PARSE, System.nanoTime());
+			metrics.increment(PackerMetrics.Counter.PACKAGES);
+		}
+		long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+		allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < 100000; i++) {
+			metrics.record(PackerMetrics.Stage.PARSE, System.nanoTime());
+			metrics.increment(PackerMetrics.Counter.PACKAGES);
+		}
+		long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+		// Allow for the objects created to read the allocated bytes
+		assertThat(allocated, lessThanOrEqualTo(1024L));
+	}
+
+}
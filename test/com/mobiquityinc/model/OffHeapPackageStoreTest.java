@@ -0,0 +1,134 @@
+package com.mobiquityinc.model;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.mobiquityinc.algorithm.DynamicProgrammingAlgorithmStrategy;
+import com.mobiquityinc.exception.APIException;
+import com.mobiquityinc.packer.Packer;
+import com.mobiquityinc.packer.SolutionWriter;
+import com.mobiquityinc.parser.PackageLineParser;
+import com.mobiquityinc.workload.WorkloadGenerator;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class OffHeapPackageStoreTest {
+	// Packages beyond the memory limit are kept in the mapped file and read
+	// back the same as the packages in memory
+	@Test
+	public void spillToMappedFileBeyondMemoryLimit() throws IOException {
+		Path directory = Paths.get(System.getProperty("java.io.tmpdir"));
+		try (OffHeapPackageStore store = new OffHeapPackageStore(960, directory, 480)) {
+			for (int p = 0; p < 100; p++) {
+				store.addPackage(p);
+				for (int i = 0; i < p % 7; i++) {
+					store.addItem(i + 1, p + i / 100.0, i);
+				}
+			}
+			assertThat(store.getMemoryUsed(), equalTo(960L));
+			assertThat(store.getSpilledBytes(), greaterThan(0L));
+			long position = 0;
+			for (int p = 0; p < 100; p++) {
+				assertThat(store.getMaximumWeight(p), equalTo((double) p));
+				assertThat(store.getFirstItem(p), equalTo(position));
+				assertThat(store.getItemCount(p), equalTo(p % 7));
+				for (int i = 0; i < p % 7; i++, position++) {
+					assertThat(store.getIndexNumber(position), equalTo(i + 1));
+					assertThat(store.getItemWeight(position), equalTo(p + i / 100.0));
+					assertThat(store.getItemCost(position), equalTo((double) i));
+				}
+			}
+			assertThat(store.getItemCount(), equalTo(position));
+		}
+	}
+
+	// A store sized to a few packages only allocates small chunks, and keeps
+	// no more in memory than the JVM allows for direct buffers
+	@Test
+	public void sizeChunksToExpectedPackages() throws IOException {
+		Path directory = Paths.get(System.getProperty("java.io.tmpdir"));
+		try (OffHeapPackageStore store = new OffHeapPackageStore(Long.MAX_VALUE, directory)) {
+			assertThat(store.getMemoryLimit(), lessThan(Long.MAX_VALUE));
+			store.setExpectedSize(2, 3);
+			for (int p = 0; p < 100; p++) {
+				store.addPackage(p);
+				store.addItem(1, p, p);
+			}
+			assertThat(store.getMemoryUsed(), equalTo(2 * 64 * (48L + 24)));
+			assertThat(store.getItemCost(99), equalTo(99.0));
+		}
+	}
+
+	// Solving a store gives the same results as solving a batch
+	@Test
+	public void solveStoreLikeBatch() throws APIException, IOException {
+		WorkloadGenerator generator = new WorkloadGenerator();
+		generator.setPackageCount(1000);
+		PackageLineParser parser = new PackageLineParser();
+		PackageBatch batch = new PackageBatch();
+		List<String> lines = generator.generateLines();
+		for (int p = 0; p < lines.size(); p++) {
+			parser.parse(lines.get(p), p + 1, batch);
+		}
+		try (OffHeapPackageStore store = new OffHeapPackageStore(64 * 1024,
+				Paths.get(System.getProperty("java.io.tmpdir")), 4096)) {
+			store.append(batch);
+			DynamicProgrammingAlgorithmStrategy algorithm = new DynamicProgrammingAlgorithmStrategy();
+			algorithm.setParallelism(4);
+			algorithm.solveProblem(store);
+			algorithm.solveProblem(batch);
+
+			for (int p = 0; p < batch.getPackageCount(); p++) {
+				assertThat(store.getCostOfItems(p), equalTo(batch.getCostOfItems(p)));
+				assertThat(store.getWeightOfItems(p), equalTo(batch.getWeightOfItems(p)));
+				assertThat(store.isSendPackage(p), equalTo(batch.isSendPackage(p)));
+			}
+			ByteArrayOutputStream storeOutput = new ByteArrayOutputStream();
+			ByteArrayOutputStream batchOutput = new ByteArrayOutputStream();
+			try (SolutionWriter storeWriter = new SolutionWriter(storeOutput);
+					SolutionWriter batchWriter = new SolutionWriter(batchOutput)) {
+				storeWriter.writePackages(store);
+				batchWriter.writePackages(batch);
+			}
+			assertThat(storeOutput.toByteArray(), equalTo(batchOutput.toByteArray()));
+		}
+	}
+
+	// A file packed off the heap has the same solution as a file packed on
+	// the heap
+	@Test
+	public void packFileOffHeap() throws APIException, IOException {
+		Path file = Files.createTempFile("packer", ".txt");
+		try {
+			WorkloadGenerator generator = new WorkloadGenerator();
+			generator.setPackageCount(500);
+			generator.write(file, StandardCharsets.UTF_8);
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			System.setProperty(Packer.OFF_HEAP_MEMORY_PROPERTY, "0");
+			try {
+				Packer.pack(file.toString(), output);
+			} finally {
+				System.clearProperty(Packer.OFF_HEAP_MEMORY_PROPERTY);
+			}
+			assertThat(new String(output.toByteArray(), StandardCharsets.US_ASCII),
+					equalTo(Packer.pack(file.toString())));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+}
@@ -0,0 +1,153 @@
+package com.mobiquityinc.model;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.mobiquityinc.algorithm.DynamicProgrammingAlgorithmStrategy;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class PackageBatchTest {
+	// Solving a batch gives the same results as solving the Package objects
+	@Test
+	public void solveBatchLikePackages() {
+		solveBatchLikePackages(1);
+	}
+
+	// Packages solved by more than one thread only write their own selection
+	@Test
+	public void solveBatchInParallelLikePackages() {
+		solveBatchLikePackages(4);
+	}
+
+	// The selection of a package with more items than fit in one long is kept
+	// in more than one long
+	@Test
+	public void selectItemsOfPackageWithMoreThan64Items() {
+		PackageBatch batch = new PackageBatch(1, 1);
+		batch.addPackage(50);
+		batch.addPackage(100);
+		for (int i = 1; i <= 150; i++) {
+			batch.addItem(i, 1, 1);
+		}
+		batch.addPackage(20);
+		batch.addItem(1, 2, 3);
+		for (int i = batch.getFirstItem(1); i < batch.getFirstItem(2); i++) {
+			batch.setItemSelected(i, batch.getIndexNumber(i) % 3 == 0);
+		}
+		batch.setItemSelected(batch.getFirstItem(2), true);
+		assertThat(batch.getItemCount(0), equalTo(0));
+		assertThat(batch.getItemCount(1), equalTo(150));
+		assertThat(batch.hasSelectedItems(0), equalTo(false));
+		for (int i = batch.getFirstItem(1); i < batch.getFirstItem(2); i++) {
+			assertThat(batch.isItemSelected(i), equalTo(batch.getIndexNumber(i) % 3 == 0));
+		}
+		assertThat(batch.isItemSelected(batch.getFirstItem(2)), equalTo(true));
+
+		// The selected items of each package are listed from its own bitset
+		int expected = 3;
+		for (int i = batch.nextSelectedItem(1, batch.getFirstItem(1)); i >= 0; i = batch.nextSelectedItem(1, i + 1)) {
+			assertThat(batch.getIndexNumber(i), equalTo(expected));
+			assertThat(batch.isItemSelected(1, i), equalTo(true));
+			expected += 3;
+		}
+		assertThat(expected, equalTo(153));
+		assertThat(batch.nextSelectedItem(0, batch.getFirstItem(0)), equalTo(-1));
+		assertThat(batch.nextSelectedItem(2, batch.getFirstItem(2)), equalTo(batch.getFirstItem(2)));
+		assertThat(batch.nextSelectedItem(2, batch.getFirstItem(2) + 1), equalTo(-1));
+	}
+
+	// The Package objects of the view hold the same data as the batch
+	@Test
+	public void viewPackagesOfBatch() {
+		List<Item> availableItems = new ArrayList<Item>() {
+			{
+				add(new Item(1, 53.38, 45));
+				add(new Item(2, 88.62, 98));
+			}
+		};
+		List<Package> packages = new ArrayList<Package>() {
+			{
+				add(new Package(81, availableItems));
+				add(new Package(8, new ArrayList<Item>()));
+			}
+		};
+		packages.get(0).getSelectedItems().add(availableItems.get(1));
+		packages.get(0).setCostOfItems(98);
+		packages.get(0).setWeightOfItems(88.62);
+		packages.get(0).setSendPackage(true);
+
+		List<Package> view = PackageBatch.fromPackages(packages).asPackages();
+		assertThat(view.size(), equalTo(2));
+		assertThat(view.get(0).getMaximumWeight(), equalTo(81.0));
+		assertThat(view.get(0).getAvailableItems().size(), equalTo(2));
+		assertThat(view.get(0).getAvailableItems().get(0).getWeight(), equalTo(53.38));
+		assertThat(view.get(0).getSelectedItems().size(), equalTo(1));
+		assertThat(view.get(0).getSelectedItems().get(0).getIndexNumber(), equalTo(2));
+		assertThat(view.get(0).getCostOfItems(), equalTo(98.0));
+		assertThat(view.get(0).isSendPackage(), equalTo(true));
+		assertThat(view.get(1).getAvailableItems().size(), equalTo(0));
+		assertThat(view.get(1).isSendPackage(), equalTo(false));
+	}
+
+	// A cleared batch holds no packages and no selections or totals of the
+	// old packages
+	@Test
+	public void clearBatch() {
+		PackageBatch batch = new PackageBatch();
+		batch.addPackage(10);
+		batch.setItemSelected(batch.addItem(1, 2, 3), true);
+		batch.setSendPackage(0, true);
+		batch.setCostOfItems(0, 3);
+		batch.setWeightOfItems(0, 2);
+		batch.clear();
+		assertThat(batch.getPackageCount(), equalTo(0));
+		batch.addPackage(10);
+		batch.addItem(1, 2, 3);
+		assertThat(batch.hasSelectedItems(0), equalTo(false));
+		assertThat(batch.isSendPackage(0), equalTo(false));
+		assertThat(batch.getCostOfItems(0), equalTo(0.0));
+		assertThat(batch.getWeightOfItems(0), equalTo(0.0));
+	}
+
+	private void solveBatchLikePackages(int parallelism) {
+		Random random = new Random(20170417L);
+		List<Package> packages = new ArrayList<>();
+		for (int p = 0; p < 500; p++) {
+			List<Item> availableItems = new ArrayList<>();
+			int itemCount = random.nextInt(16);
+			for (int i = 1; i <= itemCount; i++) {
+				availableItems.add(new Item(i, (1 + random.nextInt(10000)) / 100.0, random.nextInt(101)));
+			}
+			packages.add(new Package(1 + random.nextInt(120), availableItems));
+		}
+		PackageBatch batch = PackageBatch.fromPackages(packages);
+		DynamicProgrammingAlgorithmStrategy strategy = new DynamicProgrammingAlgorithmStrategy();
+		strategy.setParallelism(parallelism);
+		strategy.solveProblem(packages);
+		strategy.solveProblem(batch);
+
+		List<Package> solved = batch.asPackages();
+		for (int p = 0; p < packages.size(); p++) {
+			Package expected = packages.get(p);
+			Package actual = solved.get(p);
+			assertThat(actual.isSendPackage(), equalTo(expected.isSendPackage()));
+			assertThat(actual.getCostOfItems(), equalTo(expected.getCostOfItems()));
+			assertThat(actual.getWeightOfItems(), equalTo(expected.getWeightOfItems()));
+			assertThat(actual.getSelectedItems().size(), equalTo(expected.getSelectedItems().size()));
+			for (int i = 0; i < expected.getSelectedItems().size(); i++) {
+				assertThat(actual.getSelectedItems().get(i).getIndexNumber(),
+						equalTo(expected.getSelectedItems().get(i).getIndexNumber()));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,128 @@
+package com.mobiquityinc.packer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import com.mobiquityinc.exception.APIException;
+import com.mobiquityinc.workload.WorkloadGenerator;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class BatchPackerTest {
+	// Every file is packed to its own output and a malformed file only fails
+	// itself
+	@Test
+	public void packFilesToTheirOwnOutput() throws APIException, IOException {
+		Path directory = Files.createTempDirectory("batch");
+		try {
+			WorkloadGenerator generator = new WorkloadGenerator();
+			generator.setPackageCount(300);
+			for (int f = 0; f < 4; f++) {
+				generator.setSeed(f);
+				generator.write(directory.resolve("file" + f + ".txt"), StandardCharsets.UTF_8);
+			}
+			Files.write(directory.resolve("file2.txt"), Arrays.asList("81 : (1,53.38,45)", "81 (1,53.38,45)"),
+					StandardCharsets.UTF_8);
+			Path outputDirectory = directory.resolve("out");
+
+			List<Path> files = BatchPacker.resolveInputs(Collections.singletonList(directory.toString()));
+			BatchPacker.Report report = new BatchPacker(2, outputDirectory).pack(files);
+
+			assertThat(report.getFileCount(), equalTo(4));
+			assertThat(report.getFailedFileCount(), equalTo(1));
+			assertThat(report.getPackageCount(), equalTo(900L));
+			assertThat(report.getPackagesPerSecond(), greaterThan(0.0));
+			for (BatchPacker.FileResult result : report.getFileResults()) {
+				if (result.getFile().endsWith("file2.txt")) {
+					assertThat(result.isFailed(), equalTo(true));
+					assertThat(result.getOutput(), nullValue());
+				} else {
+					assertThat(result.getError(), nullValue());
+					assertThat(new String(Files.readAllBytes(result.getOutput()), StandardCharsets.US_ASCII),
+							equalTo(Packer.pack(result.getFile().toString())));
+				}
+			}
+			try (Stream<Path> outputs = Files.list(outputDirectory)) {
+				assertThat(outputs.count(), equalTo(3L));
+			}
+		} finally {
+			delete(directory);
+		}
+	}
+
+	// Files are found by glob, by list and by path
+	@Test
+	public void resolveGlobsListsAndPaths() throws APIException, IOException {
+		Path directory = Files.createTempDirectory("batch");
+		try {
+			Path first = Files.createFile(directory.resolve("a.txt"));
+			Path second = Files.createFile(directory.resolve("b.txt"));
+			Path other = Files.createFile(directory.resolve("c.csv"));
+			Path list = Files.write(directory.resolve("files.lst"),
+					Arrays.asList(other.toString(), "", first.toString()), StandardCharsets.UTF_8);
+			assertThat(BatchPacker.resolveInputs(Collections.singletonList(directory + "/*.txt")),
+					equalTo(Arrays.asList(first, second)));
+			assertThat(BatchPacker.resolveInputs(Arrays.asList("@" + list, second.toString())),
+					equalTo(Arrays.asList(other, first, second)));
+			assertThat(new BatchPacker(1, null).getOutputFile(first), equalTo(directory.resolve("a.txt.out")));
+		} finally {
+			delete(directory);
+		}
+	}
+
+	// A directory can be packed again next to the solutions of the last run,
+	// and files with the same name fail instead of overwriting each other
+	@Test
+	public void packDirectoryAgainWithoutOverwritingSolutions() throws APIException, IOException {
+		Path directory = Files.createTempDirectory("batch");
+		try {
+			WorkloadGenerator generator = new WorkloadGenerator();
+			generator.setPackageCount(50);
+			Path file = directory.resolve("packages.txt");
+			generator.write(file, StandardCharsets.UTF_8);
+			List<String> inputs = Collections.singletonList(directory.toString());
+			assertThat(new BatchPacker(1, null).pack(BatchPacker.resolveInputs(inputs)).getFailedFileCount(),
+					equalTo(0));
+			Files.createFile(directory.resolve("packages.txt.out1234.tmp"));
+			assertThat(BatchPacker.resolveInputs(inputs), equalTo(Collections.singletonList(file)));
+			assertThat(BatchPacker.resolveInputs(Collections.singletonList(directory + "/*")),
+					equalTo(Collections.singletonList(file)));
+
+			Path other = Files.createDirectory(directory.resolve("other")).resolve("packages.txt");
+			generator.write(other, StandardCharsets.UTF_8);
+			Path outputDirectory = directory.resolve("out");
+			BatchPacker.Report report = new BatchPacker(2, outputDirectory).pack(Arrays.asList(file, other));
+			assertThat(report.getFailedFileCount(), equalTo(2));
+			assertThat(report.getFileResults().get(0).getError(), containsString("overwrite"));
+			assertThat(Files.exists(outputDirectory), equalTo(false));
+		} finally {
+			delete(directory);
+		}
+	}
+
+	private static void delete(Path directory) throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,106 @@
+package com.mobiquityinc.packer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.startsWith;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.mobiquityinc.exception.APIException;
+import com.mobiquityinc.workload.WorkloadGenerator;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class PackerServerTest {
+	// The results of files and lines are sent back in the order of the
+	// requests
+	@Test
+	public void packFilesAndLinesInOrderOfRequests() throws APIException, IOException {
+		Path file = Files.createTempFile("packer", ".txt");
+		try (PackerServer server = new PackerServer(0)) {
+			Files.write(file,
+					Arrays.asList("81 : (1,53.38,45) (2,88.62,98) (3,78.48,3)", "8 : (1,15.3,34)",
+							"20 : (1,10,45) (2,30,60)",
+							"75 : (1,85.31,29) (2,14.55,74) (3,3.98,16) (4,26.24,55)"),
+					StandardCharsets.UTF_8);
+			List<String> replies = send(server.getPort(),
+					Arrays.asList("75 : (1,85.31,29) (2,14.55,74) (3,3.98,16) (4,26.24,55)",
+							"FILE " + file.toAbsolutePath(), "", "8 : (1,15.3,34)", "81 (1,53.38,45)",
+							"FILE " + file.toAbsolutePath() + ".missing", "20 : (1,10,45) (2,30,60)"));
+			assertThat(replies.subList(0, 7), equalTo(Arrays.asList("2,3,4", "-", "-", "1", "2,3,4", "END", "-")));
+			assertThat(replies.get(7), startsWith("ERROR "));
+			assertThat(replies.get(8), startsWith("ERROR "));
+			assertThat(replies.get(9), equalTo("1"));
+			assertThat(replies.size(), equalTo(10));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	// Lines sent by many clients at the same time get the same results as
+	// lines packed one at a time
+	@Test
+	public void packLinesOfConcurrentClients() throws Exception {
+		WorkloadGenerator generator = new WorkloadGenerator();
+		generator.setPackageCount(200);
+		List<String> lines = generator.generateLines();
+		List<String> expected = new ArrayList<>();
+		try (PackerService service = new PackerService()) {
+			for (String line : lines) {
+				expected.add(service.packLineAsync(line).get());
+			}
+		}
+		ExecutorService clients = Executors.newFixedThreadPool(8);
+		try (PackerServer server = new PackerServer(0, 16)) {
+			List<Future<List<String>>> replies = new ArrayList<>();
+			for (int c = 0; c < 8; c++) {
+				replies.add(clients.submit(() -> send(server.getPort(), lines)));
+			}
+			for (Future<List<String>> reply : replies) {
+				assertThat(reply.get(), equalTo(expected));
+			}
+		} finally {
+			clients.shutdown();
+		}
+	}
+
+	// Sends the requests, closes the output and reads every reply
+	private static List<String> send(int port, List<String> requests) throws IOException {
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			Writer output = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+			for (String request : requests) {
+				output.write(request);
+				output.write('\n');
+			}
+			output.flush();
+			socket.shutdownOutput();
+			BufferedReader input = new BufferedReader(
+					new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			List<String> replies = new ArrayList<>();
+			for (String reply = input.readLine(); reply != null; reply = input.readLine()) {
+				replies.add(reply);
+			}
+			return replies;
+		}
+	}
+
+}
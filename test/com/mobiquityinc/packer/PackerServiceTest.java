@@ -0,0 +1,113 @@
+package com.mobiquityinc.packer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.mobiquityinc.exception.APIException;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class PackerServiceTest {
+	// Files packed by the service have the same solution as Packer.pack
+	@Test
+	public void packFilesAsynchronously() throws APIException, IOException, InterruptedException, ExecutionException {
+		Path file = Files.createTempFile("packer", ".txt");
+		try (PackerService service = new PackerService(4)) {
+			Files.write(file,
+					Arrays.asList("81 : (1,53.38,45) (2,88.62,98) (3,78.48,3)", "8 : (1,15.3,34)",
+							"20 : (1,10,45) (2,30,60)",
+							"75 : (1,85.31,29) (2,14.55,74) (3,3.98,16) (4,26.24,55)"),
+					StandardCharsets.UTF_8);
+			List<CompletableFuture<PackResult>> results = new ArrayList<>();
+			for (int i = 0; i < 10; i++) {
+				results.add(service.packAsync(file));
+			}
+			String solution = Packer.pack(file.toString());
+			for (CompletableFuture<PackResult> result : results) {
+				assertThat(result.get().getSolution(), equalTo(solution));
+				assertThat(result.get().getPackageCount(), equalTo(4));
+				assertThat(result.get().getSentPackageCount(), equalTo(2));
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	// A single line is packed into its selected items or "-"
+	@Test
+	public void packLinesAsynchronously() throws InterruptedException, ExecutionException {
+		try (PackerService service = new PackerService()) {
+			assertThat(service.packLineAsync("75 : (1,85.31,29) (2,14.55,74) (3,3.98,16) (4,26.24,55)").get(),
+					equalTo("2,3,4"));
+			assertThat(service.packLineAsync("8 : (1,15.3,34)").get(), equalTo("-"));
+		}
+	}
+
+	// A file or line which can not be packed completes the future with an
+	// APIException
+	@Test
+	public void completeExceptionallyWithAPIException() throws InterruptedException {
+		try (PackerService service = new PackerService()) {
+			assertCause(service.packAsync(Paths.get("does", "not", "exist.txt")));
+			assertCause(service.packLineAsync("81 (1,53.38,45)"));
+			assertThat(service.getInFlightCount(), equalTo(0));
+		}
+	}
+
+	private static void assertCause(CompletableFuture<?> future) throws InterruptedException {
+		try {
+			future.get();
+			throw new AssertionError("Expected the request to fail");
+		} catch (ExecutionException e) {
+			assertThat(e.getCause(), instanceOf(APIException.class));
+		}
+	}
+
+	// Once the maximum number of requests are in flight a new request waits
+	// until a request is done
+	@Test
+	public void waitWhileMaximumRequestsAreInFlight() throws InterruptedException, ExecutionException {
+		ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+		PackerService service = new PackerService(tasks::add, 2);
+		CompletableFuture<String> first = service.packLineAsync("8 : (1,15.3,34)");
+		service.packLineAsync("8 : (1,15.3,34)");
+		assertThat(service.getInFlightCount(), equalTo(2));
+
+		List<CompletableFuture<String>> third = new ArrayList<>();
+		Thread submitter = new Thread(() -> third.add(service.packLineAsync("20 : (1,10,45) (2,30,60)")));
+		submitter.start();
+		submitter.join(200);
+		assertThat(submitter.isAlive(), equalTo(true));
+		assertThat(tasks.size(), equalTo(2));
+
+		// Running a request lets the waiting request be submitted
+		tasks.poll().run();
+		assertThat(first.get(), equalTo("-"));
+		submitter.join(TimeUnit.SECONDS.toMillis(10));
+		assertThat(submitter.isAlive(), equalTo(false));
+		while (!tasks.isEmpty()) {
+			tasks.poll().run();
+		}
+		assertThat(third.get(0).get(), equalTo("1"));
+		assertThat(service.getInFlightCount(), equalTo(0));
+	}
+
+}
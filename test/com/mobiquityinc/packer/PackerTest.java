@@ -7,16 +7,27 @@ import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertNotNull;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.hamcrest.collection.IsEmptyCollection;
 import org.junit.Test;
 
+import com.mobiquityinc.algorithm.AdaptiveAlgorithmStrategy;
+import com.mobiquityinc.algorithm.DynamicProgrammingAlgorithmStrategy;
 import com.mobiquityinc.exception.APIException;
 import com.mobiquityinc.model.Item;
 import com.mobiquityinc.model.Package;
+import com.mobiquityinc.workload.WorkloadGenerator;
 
 /**
  * @author Dewald Pieters
@@ -115,4 +126,115 @@ public class PackerTest {
 		Packer.extractPackageData(Stream.of(line));
 	}
 
+	// The streamed results are in the order of the lines in the file and only
+	// the lightest package with a duplicate cost is sent
+	@Test
+	public void packStreamReturnsResultForEachLineInOrder() throws APIException, IOException {
+		Path file = Files.createTempFile("packer", ".txt");
+		try {
+			Files.write(file,
+					Arrays.asList("81 : (1,53.38,45) (2,88.62,98) (3,78.48,3)",
+							"8 : (1,15.3,34)", "20 : (1,10,45) (2,30,60)",
+							"75 : (1,85.31,29) (2,14.55,74) (3,3.98,16) (4,26.24,55)"),
+					StandardCharsets.UTF_8);
+			List<String> results;
+			try (Stream<String> stream = Packer.packStream(file.toString(),
+					new DynamicProgrammingAlgorithmStrategy())) {
+				results = stream.collect(Collectors.toList());
+			}
+			assertThat(results, equalTo(Arrays.asList("-", "-", "1", "2,3,4")));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	// Results spilled to a temporary file beyond the memory limit are the
+	// same as the results of the whole file solved at once
+	@Test
+	public void streamedResultsBeyondMemoryLimitMatchWholeFile() throws APIException, IOException {
+		Path file = Files.createTempFile("packer", ".txt");
+		try {
+			WorkloadGenerator generator = new WorkloadGenerator();
+			generator.setPackageCount(2000);
+			generator.write(file, StandardCharsets.UTF_8);
+			String[] expected = Packer.convertSolutionToString(
+					Packer.solveFile(file, new DynamicProgrammingAlgorithmStrategy()))
+					.split(System.getProperty("line.separator"));
+			List<String> results = new ArrayList<>();
+			try (Stream<String> lines = Files.lines(file)) {
+				PackageResultIterator iterator = new PackageResultIterator(lines.iterator(),
+						new DynamicProgrammingAlgorithmStrategy(), 64);
+				while (iterator.hasNext()) {
+					results.add(iterator.next());
+				}
+			}
+			assertThat(results, equalTo(Arrays.asList(expected)));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	// With threads set, main packs a text file as a whole and prints the same
+	// results as when it streams the lines
+	@Test
+	public void mainPacksWholeFileWithParallelism() throws APIException, IOException {
+		Path file = Files.createTempFile("packer", ".txt");
+		try {
+			WorkloadGenerator generator = new WorkloadGenerator();
+			generator.setPackageCount(500);
+			generator.write(file, StandardCharsets.UTF_8);
+			String streamed = runMain(file);
+			System.setProperty(Packer.PARALLELISM_PROPERTY, "4");
+			try {
+				assertThat(runMain(file), equalTo(streamed));
+			} finally {
+				System.clearProperty(Packer.PARALLELISM_PROPERTY);
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	private static String runMain(Path file) throws APIException {
+		PrintStream console = System.out;
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(output, true));
+		try {
+			Packer.main(new String[] { file.toString() });
+		} finally {
+			System.setOut(console);
+		}
+		return new String(output.toByteArray(), StandardCharsets.US_ASCII);
+	}
+
+	// Unless calibration is asked for, the algorithm for each package is
+	// chosen with the fixed default thresholds
+	@Test
+	public void chooseAlgorithmsWithFixedThresholdsByDefault() {
+		AdaptiveAlgorithmStrategy strategy = (AdaptiveAlgorithmStrategy) Packer.createAlgorithmStrategy();
+		assertThat(strategy.getMaximumEnumeratedItems(),
+				equalTo(AdaptiveAlgorithmStrategy.DEFAULT_MAXIMUM_ENUMERATED_ITEMS));
+		assertThat(strategy.getMaximumTableSize(), equalTo(AdaptiveAlgorithmStrategy.DEFAULT_MAXIMUM_TABLE_SIZE));
+	}
+
+	// The sample file is packed with the algorithm chosen for each package
+	@Test
+	public void packReturnsSolutionOfSampleFile() throws APIException, IOException {
+		Path file = Files.createTempFile("packer", ".txt");
+		try {
+			Files.write(file, Arrays.asList(
+					"81 : (1,53.38,45) (2,88.62,98) (3,78.48,3) (4,72.30,76) (5,30.18,9) (6,46.34,48)",
+					"8 : (1,15.3,34)",
+					"75 : (1,85.31,29) (2,14.55,74) (3,3.98,16) (4,26.24,55) (5,63.69,52) (6,76.25,75) "
+							+ "(7,60.02,74) (8,93.18,35) (9,89.95,78)",
+					"56 : (1,90.72,13) (2,33.80,40) (3,43.15,10) (4,37.97,16) (5,46.81,36) (6,48.77,79) "
+							+ "(7,81.80,45) (8,19.36,79) (9,6.76,64)"),
+					StandardCharsets.UTF_8);
+			String[] lines = Packer.pack(file.toString()).split(System.getProperty("line.separator"));
+			assertThat(Arrays.asList(lines), equalTo(Arrays.asList("4", "-", "2,7", "8,9")));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
 }
@@ -0,0 +1,110 @@
+package com.mobiquityinc.packer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.mobiquityinc.algorithm.DynamicProgrammingAlgorithmStrategy;
+import com.mobiquityinc.exception.APIException;
+import com.mobiquityinc.model.Item;
+import com.mobiquityinc.model.Package;
+import com.mobiquityinc.model.PackageBatch;
+import com.mobiquityinc.parser.PackageLineParser;
+import com.mobiquityinc.workload.WorkloadGenerator;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class SolutionWriterTest {
+	// Index numbers of any size are written as their digits
+	@Test
+	public void writeIndexNumbers() throws IOException {
+		List<Item> selectedItems = new ArrayList<Item>() {
+			{
+				add(new Item(0, 1, 1));
+				add(new Item(9, 1, 1));
+				add(new Item(10, 1, 1));
+				add(new Item(Integer.MAX_VALUE, 1, 1));
+				add(new Item(-12, 1, 1));
+			}
+		};
+		Package pack = new Package(10, selectedItems, selectedItems);
+		pack.setSendPackage(true);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		SolutionWriter writer = new SolutionWriter(Channels.newChannel(output), null, 11);
+		writer.writePackage(pack);
+		writer.writeLine("-");
+		writer.flush();
+		String lineSeparator = System.getProperty("line.separator");
+		assertThat(new String(output.toByteArray(), StandardCharsets.US_ASCII),
+				equalTo("0,9,10,2147483647,-12" + lineSeparator + "-" + lineSeparator));
+	}
+
+	// The packages of a batch and the Package objects are written the same
+	// as the solution string, also when the buffer is drained many times
+	@Test
+	public void writeSameBytesAsSolutionString() throws APIException, IOException {
+		WorkloadGenerator generator = new WorkloadGenerator();
+		generator.setPackageCount(2000);
+		generator.setDuplicateManifestRatio(0.3);
+		PackageLineParser parser = new PackageLineParser();
+		List<Package> packages = new ArrayList<>();
+		List<String> lines = generator.generateLines();
+		for (int p = 0; p < lines.size(); p++) {
+			packages.add(parser.parse(lines.get(p), p + 1));
+		}
+		new DynamicProgrammingAlgorithmStrategy().solveProblem(packages);
+		PackageBatch batch = PackageBatch.fromPackages(packages);
+		String solution = Packer.convertSolutionToString(batch);
+
+		ByteArrayOutputStream batchOutput = new ByteArrayOutputStream();
+		ByteArrayOutputStream packageOutput = new ByteArrayOutputStream();
+		try (SolutionWriter batchWriter = new SolutionWriter(Channels.newChannel(batchOutput), null, 16);
+				SolutionWriter packageWriter = new SolutionWriter(packageOutput)) {
+			batchWriter.writePackages(batch);
+			for (Package pack : packages) {
+				packageWriter.writePackage(pack);
+			}
+		}
+		assertThat(batchOutput.toByteArray(), equalTo(solution.getBytes(StandardCharsets.US_ASCII)));
+		assertThat(packageOutput.toByteArray(), equalTo(solution.getBytes(StandardCharsets.US_ASCII)));
+		assertThat(Packer.convertSolutionToString(packages), equalTo(solution));
+	}
+
+	// A file packed to an output stream has the same solution as pack
+	@Test
+	public void packFileToOutputStream() throws APIException, IOException {
+		Path file = Files.createTempFile("packer", ".txt");
+		try {
+			Files.write(file,
+					Arrays.asList("81 : (1,53.38,45) (2,88.62,98) (3,78.48,3)", "8 : (1,15.3,34)",
+							"75 : (1,85.31,29) (2,14.55,74) (3,3.98,16) (4,26.24,55)"),
+					StandardCharsets.UTF_8);
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			Packer.pack(file.toString(), output);
+			assertThat(new String(output.toByteArray(), StandardCharsets.US_ASCII),
+					equalTo(Packer.pack(file.toString())));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	// A result with a character which is not ASCII is not written
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectNonAsciiResult() throws IOException {
+		new SolutionWriter(new ByteArrayOutputStream()).writeLine("");
+	}
+
+}
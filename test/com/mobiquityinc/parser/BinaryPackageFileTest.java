@@ -0,0 +1,117 @@
+package com.mobiquityinc.parser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.mobiquityinc.exception.APIException;
+import com.mobiquityinc.model.Item;
+import com.mobiquityinc.model.Package;
+import com.mobiquityinc.model.PackageBatch;
+import com.mobiquityinc.packer.Packer;
+import com.mobiquityinc.workload.WorkloadGenerator;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class BinaryPackageFileTest {
+	// The packages read back from many small segments in parallel are the same
+	// as the packages written, and any package can be read on its own
+	@Test
+	public void readPackagesWrittenToBinaryFile() throws APIException, IOException {
+		WorkloadGenerator generator = new WorkloadGenerator();
+		generator.setPackageCount(2000);
+		PackageBatch expected = new PackageBatch();
+		PackageLineParser parser = new PackageLineParser();
+		List<String> lines = generator.generateLines();
+		for (int p = 0; p < lines.size(); p++) {
+			parser.parse(lines.get(p), p + 1, expected);
+		}
+		Path file = Files.createTempFile("packer", ".bin");
+		try {
+			try (BinaryPackageFileWriter writer = new BinaryPackageFileWriter(file, 64)) {
+				writer.writePackages(expected);
+			}
+			assertThat(BinaryPackageFile.isBinaryPackageFile(file), equalTo(true));
+			try (BinaryPackageFile binaryFile = new BinaryPackageFile(file, 4096)) {
+				assertThat(binaryFile.getPackageCount(), equalTo(expected.getPackageCount()));
+				assertThat(binaryFile.getItemCount(), equalTo((long) expected.getItemCount()));
+				PackageBatch actual = binaryFile.readBatch(3);
+				assertThat(actual.getPackageCount(), equalTo(expected.getPackageCount()));
+				int maximumItemCount = 0;
+				for (int p = 0; p < expected.getPackageCount(); p++) {
+					assertThat(actual.getMaximumWeight(p), equalTo(expected.getMaximumWeight(p)));
+					assertThat(actual.getFirstItem(p), equalTo(expected.getFirstItem(p)));
+					maximumItemCount = Math.max(maximumItemCount, expected.getItemCount(p));
+				}
+				assertThat(binaryFile.getMaximumItemCount(), equalTo(maximumItemCount));
+				for (int i = 0; i < expected.getItemCount(); i++) {
+					assertThat(actual.getIndexNumber(i), equalTo(expected.getIndexNumber(i)));
+					assertThat(actual.getItemWeight(i), equalTo(expected.getItemWeight(i)));
+					assertThat(actual.getItemCost(i), equalTo(expected.getItemCost(i)));
+				}
+
+				Package pack = binaryFile.getPackage(1234);
+				assertThat(pack.getMaximumWeight(), equalTo(expected.getMaximumWeight(1234)));
+				assertThat(binaryFile.getItemCount(1234), equalTo(expected.getItemCount(1234)));
+				Item item = pack.getAvailableItems().get(0);
+				assertThat(item.getWeight(), equalTo(expected.getItemWeight(expected.getFirstItem(1234))));
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	// A converted file is smaller than the text file and packs to the same
+	// solution
+	@Test
+	public void packConvertedFileLikeTextFile() throws APIException, IOException {
+		Path textFile = Files.createTempFile("packer", ".txt");
+		Path binaryFile = Files.createTempFile("packer", ".bin");
+		try {
+			WorkloadGenerator generator = new WorkloadGenerator();
+			generator.setPackageCount(500);
+			generator.write(textFile, StandardCharsets.UTF_8);
+			BinaryPackageFileWriter.convert(textFile, binaryFile, 2);
+
+			assertThat(Files.size(binaryFile), lessThan(Files.size(textFile) / 2));
+			assertThat(Packer.pack(binaryFile.toString()), equalTo(Packer.pack(textFile.toString())));
+		} finally {
+			Files.delete(textFile);
+			Files.deleteIfExists(binaryFile);
+		}
+	}
+
+	// A weight the format can not hold stops the conversion and no binary
+	// file is left behind
+	@Test
+	public void rejectWeightsWhichAreNotWholeHundredths() throws IOException {
+		Path textFile = Files.createTempFile("packer", ".txt");
+		Path binaryFile = Files.createTempFile("packer", ".bin");
+		try {
+			Files.write(textFile, Arrays.asList("81 : (1,53.38,45)", "10 : (1,3.333,40)"),
+					StandardCharsets.UTF_8);
+			BinaryPackageFileWriter.convert(textFile, binaryFile, 1);
+			fail("Expected the conversion to fail");
+		} catch (APIException e) {
+			assertThat(e.getMessage(), containsString("the weight 3.333 in package 2"));
+			assertThat(Files.exists(binaryFile), equalTo(false));
+		} finally {
+			Files.delete(textFile);
+			Files.deleteIfExists(binaryFile);
+		}
+	}
+
+}
@@ -0,0 +1,128 @@
+package com.mobiquityinc.parser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.mobiquityinc.exception.APIException;
+import com.mobiquityinc.model.Package;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class MappedPackageFileReaderTest {
+	// The packages read from small chunks in parallel are the same and in the
+	// same order as the lines in a UTF-8 file
+	@Test
+	public void readPackagesInOrderFromUtf8File() throws APIException, IOException {
+		readPackagesInOrder(StandardCharsets.UTF_8, new MappedPackageFileReader(4, 1024));
+	}
+
+	// The euro sign in a Windows-1252 file is a single byte which is skipped
+	// like any other currency symbol
+	@Test
+	public void readPackagesInOrderFromWindows1252File() throws APIException, IOException {
+		readPackagesInOrder(Charset.forName("windows-1252"), new MappedPackageFileReader(4, 1024));
+	}
+
+	// A file larger than a chunk can be mapped is split into more chunks than
+	// threads
+	@Test
+	public void splitFileLargerThanMaximumChunkSize() throws APIException, IOException {
+		readPackagesInOrder(StandardCharsets.UTF_8, new MappedPackageFileReader(1, 64, 1024));
+	}
+
+	// Only a line longer than a chunk can be mapped can not be read
+	@Test
+	public void rejectLineLongerThanMaximumChunkSize() throws IOException {
+		List<String> lines = createLines(100);
+		StringBuilder longLine = new StringBuilder("100 :");
+		for (int i = 1; i <= 200; i++) {
+			longLine.append(" (").append(i).append(",1.5,2)");
+		}
+		lines.set(50, longLine.toString());
+		Path file = Files.createTempFile("packer", ".txt");
+		try {
+			Files.write(file, lines, StandardCharsets.UTF_8);
+			new MappedPackageFileReader(1, 64, 1024).read(file);
+			fail("Expected the long line to be rejected");
+		} catch (APIException e) {
+			assertThat(e.getMessage(), containsString("a line is longer than 1024 bytes"));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	// A formatting error reports the line number in the file and not in the
+	// chunk
+	@Test
+	public void reportLineNumberOfFormattingErrorInFile() throws IOException {
+		List<String> lines = createLines(5000);
+		lines.set(4321, "81 : (1,53.38,45) (378.48,3)");
+		Path file = Files.createTempFile("packer", ".txt");
+		try {
+			Files.write(file, lines, StandardCharsets.UTF_8);
+			new MappedPackageFileReader(4, 1024).read(file);
+			fail("Expected a formatting error");
+		} catch (APIException e) {
+			assertThat(e.getMessage(), containsString("line 4322, column"));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	private void readPackagesInOrder(Charset charset, MappedPackageFileReader reader)
+			throws APIException, IOException {
+		List<String> lines = createLines(5000);
+		Path file = Files.createTempFile("packer", ".txt");
+		try {
+			Files.write(file, lines, charset);
+			List<Package> packages = reader.read(file);
+			assertThat(packages.size(), equalTo(lines.size()));
+			PackageLineParser parser = new PackageLineParser();
+			for (int p = 0; p < lines.size(); p++) {
+				Package expected = parser.parse(lines.get(p), p + 1);
+				assertThat(packages.get(p).getMaximumWeight(), equalTo(expected.getMaximumWeight()));
+				assertThat(packages.get(p).getAvailableItems().size(), equalTo(expected.getAvailableItems().size()));
+				for (int i = 0; i < expected.getAvailableItems().size(); i++) {
+					assertThat(packages.get(p).getAvailableItems().get(i).getWeight(),
+							equalTo(expected.getAvailableItems().get(i).getWeight()));
+					assertThat(packages.get(p).getAvailableItems().get(i).getCost(),
+							equalTo(expected.getAvailableItems().get(i).getCost()));
+				}
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	private static List<String> createLines(int lineCount) {
+		Random random = new Random(20170420L);
+		List<String> lines = new ArrayList<>();
+		for (int p = 0; p < lineCount; p++) {
+			StringBuilder line = new StringBuilder().append(1 + random.nextInt(100)).append(" :");
+			int itemCount = random.nextInt(16);
+			for (int i = 1; i <= itemCount; i++) {
+				line.append(" (").append(i).append(',').append(random.nextInt(100)).append('.')
+						.append(random.nextInt(10)).append(random.nextInt(10)).append(",")
+						.append(1 + random.nextInt(100)).append(')');
+			}
+			lines.add(line.toString());
+		}
+		return lines;
+	}
+
+}
@@ -0,0 +1,79 @@
+package com.mobiquityinc.parser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.mobiquityinc.exception.APIException;
+import com.mobiquityinc.model.Item;
+import com.mobiquityinc.model.Package;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class PackageLineParserTest {
+	// The maximum weight and all the items of the package are read from the
+	// line
+	@Test
+	public void parseMaximumWeightAndItems() throws APIException {
+		Package pack = new PackageLineParser().parse("81 : (1,53.38,45) (2,88.62,98) (3,78.48,3)", 1);
+		assertThat(pack.getMaximumWeight(), equalTo(81.0));
+		assertThat(pack.getAvailableItems(), hasSize(equalTo(3)));
+		Item item = pack.getAvailableItems().get(1);
+		assertThat(item.getIndexNumber(), equalTo(2));
+		assertThat(item.getWeight(), equalTo(88.62));
+		assertThat(item.getCost(), equalTo(98.0));
+	}
+
+	// Decimal numbers are read as exactly the same double as
+	// Double.parseDouble
+	@Test
+	public void parseDecimalsSameAsParseDouble() throws APIException {
+		PackageLineParser parser = new PackageLineParser();
+		for (int hundredths = 0; hundredths <= 10000; hundredths++) {
+			String weight = String.format("%d.%02d", hundredths / 100, hundredths % 100);
+			Package pack = parser.parse("100 : (1," + weight + ",1.5)", hundredths);
+			assertThat(pack.getAvailableItems().get(0).getWeight(), equalTo(Double.parseDouble(weight)));
+			assertThat(pack.getAvailableItems().get(0).getCost(), equalTo(1.5));
+		}
+	}
+
+	// Spaces, other currency symbols and a Windows line ending are allowed
+	@Test
+	public void allowSpacesOtherCurrenciesAndCarriageReturn() throws APIException {
+		Package pack = new PackageLineParser().parse("  8.5:( 1 , 15.3 , $34 )(2,2,EUR 7)\r", 1);
+		assertThat(pack.getMaximumWeight(), equalTo(8.5));
+		assertThat(pack.getAvailableItems(), hasSize(equalTo(2)));
+		assertThat(pack.getAvailableItems().get(1).getCost(), equalTo(7.0));
+	}
+
+	// The line and column of a formatting error are reported
+	@Test
+	public void reportLineAndColumnOfFormattingError() {
+		try {
+			new PackageLineParser().parse("81 : (1,53.38,45) (378.48,3)", 7);
+			fail("Expected a formatting error");
+		} catch (APIException e) {
+			assertThat(e.getMessage(), containsString("line 7, column 24"));
+			assertThat(e.getMessage(), containsString("expected ','"));
+		}
+	}
+
+	// A missing parenthesis is reported at the start of the next item
+	@Test
+	public void reportMissingParenthesis() {
+		try {
+			new PackageLineParser().parse("81 : (1,53.38,45) (2,88.62,98 (3,78.48,3)", 1);
+			fail("Expected a formatting error");
+		} catch (APIException e) {
+			assertThat(e.getMessage(), containsString("column 33"));
+			assertThat(e.getMessage(), containsString("expected ')'"));
+		}
+	}
+
+}
@@ -4,14 +4,48 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
+import com.mobiquityinc.algorithm.AdaptiveAlgorithmStrategyTest;
 import com.mobiquityinc.algorithm.BinaryLPAlgorithmStrategyTest;
+import com.mobiquityinc.algorithm.BitmaskEnumerationAlgorithmStrategyTest;
+import com.mobiquityinc.algorithm.BranchAndBoundAlgorithmStrategyTest;
+import com.mobiquityinc.algorithm.CachingAlgorithmStrategyTest;
+import com.mobiquityinc.algorithm.DynamicProgrammingAlgorithmStrategyTest;
+import com.mobiquityinc.algorithm.FptasAlgorithmStrategyTest;
+import com.mobiquityinc.algorithm.IncrementalPackageChooserTest;
+import com.mobiquityinc.algorithm.ItemPresolverTest;
+import com.mobiquityinc.algorithm.LinearProgramSolverPoolTest;
+import com.mobiquityinc.algorithm.MeetInTheMiddleAlgorithmStrategyTest;
+import com.mobiquityinc.algorithm.TimeBudgetAlgorithmStrategyTest;
+import com.mobiquityinc.metrics.PackerMetricsTest;
+import com.mobiquityinc.metrics.StageTimerTest;
+import com.mobiquityinc.model.OffHeapPackageStoreTest;
+import com.mobiquityinc.model.PackageBatchTest;
+import com.mobiquityinc.packer.BatchPackerTest;
+import com.mobiquityinc.packer.PackerServerTest;
+import com.mobiquityinc.packer.PackerServiceTest;
 import com.mobiquityinc.packer.PackerTest;
+import com.mobiquityinc.packer.SolutionWriterTest;
+import com.mobiquityinc.parser.BinaryPackageFileTest;
+import com.mobiquityinc.parser.MappedPackageFileReaderTest;
+import com.mobiquityinc.parser.PackageLineParserTest;
+import com.mobiquityinc.util.LongHashIndexTest;
+import com.mobiquityinc.workload.WorkloadGeneratorTest;
 
 /**
  * @author Dewald Pieters
  *
  */
 @RunWith(Suite.class)
-@SuiteClasses({ PackerTest.class, BinaryLPAlgorithmStrategyTest.class })
+@SuiteClasses({ PackerTest.class, BinaryLPAlgorithmStrategyTest.class, DynamicProgrammingAlgorithmStrategyTest.class,
+		BranchAndBoundAlgorithmStrategyTest.class, BitmaskEnumerationAlgorithmStrategyTest.class,
+		MeetInTheMiddleAlgorithmStrategyTest.class, LinearProgramSolverPoolTest.class,
+		IncrementalPackageChooserTest.class, LongHashIndexTest.class,
+		PackageLineParserTest.class, MappedPackageFileReaderTest.class, PackageBatchTest.class,
+		CachingAlgorithmStrategyTest.class, ItemPresolverTest.class,
+		AdaptiveAlgorithmStrategyTest.class, WorkloadGeneratorTest.class,
+		StageTimerTest.class, PackerMetricsTest.class, PackerServiceTest.class,
+		PackerServerTest.class, SolutionWriterTest.class, BatchPackerTest.class,
+		TimeBudgetAlgorithmStrategyTest.class, FptasAlgorithmStrategyTest.class,
+		OffHeapPackageStoreTest.class, BinaryPackageFileTest.class })
 public class PackingChallengeTests {
 }
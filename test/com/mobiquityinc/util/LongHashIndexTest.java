@@ -0,0 +1,38 @@
+package com.mobiquityinc.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.Test;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class LongHashIndexTest {
+	// Keys are numbered in the order they are first added
+	@Test
+	public void numberKeysInOrderTheyAreAdded() {
+		LongHashIndex index = new LongHashIndex(2);
+		assertThat(index.getOrAdd(Double.doubleToLongBits(45)), equalTo(0));
+		assertThat(index.getOrAdd(Double.doubleToLongBits(98)), equalTo(1));
+		assertThat(index.getOrAdd(Double.doubleToLongBits(45)), equalTo(0));
+		assertThat(index.size(), equalTo(2));
+	}
+
+	// Keys keep their numbers when the index grows and unknown keys are not
+	// found
+	@Test
+	public void keepNumbersWhenIndexGrows() {
+		LongHashIndex index = new LongHashIndex(1);
+		for (int i = 0; i < 10000; i++) {
+			index.getOrAdd(Double.doubleToLongBits(i / 4.0));
+		}
+		assertThat(index.size(), equalTo(10000));
+		for (int i = 0; i < 10000; i++) {
+			assertThat(index.get(Double.doubleToLongBits(i / 4.0)), equalTo(i));
+		}
+		assertThat(index.get(Double.doubleToLongBits(-1)), equalTo(-1));
+	}
+
+}
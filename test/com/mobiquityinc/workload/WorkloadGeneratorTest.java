@@ -0,0 +1,107 @@
+package com.mobiquityinc.workload;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.mobiquityinc.exception.APIException;
+import com.mobiquityinc.model.Item;
+import com.mobiquityinc.model.Package;
+import com.mobiquityinc.parser.PackageLineParser;
+
+/**
+ * @author Dewald Pieters
+ *
+ */
+public class WorkloadGeneratorTest {
+	// The same seed generates the same lines and another seed other lines
+	@Test
+	public void generateSameLinesForSameSeed() {
+		WorkloadGenerator generator = new WorkloadGenerator();
+		List<String> lines = generator.generateLines();
+		assertThat(generator.generateLines(), equalTo(lines));
+		generator.setSeed(1);
+		assertThat(generator.generateLines(), not(equalTo(lines)));
+	}
+
+	// The lines can be parsed and keep to the configured distributions
+	@Test
+	public void generateLinesWithConfiguredSettings() throws APIException {
+		WorkloadGenerator generator = new WorkloadGenerator();
+		Map<String, String> settings = new HashMap<>();
+		settings.put("packageCount", "500");
+		settings.put("minimumCapacity", "20");
+		settings.put("maximumCapacity", "120");
+		settings.put("minimumItemCount", "3");
+		settings.put("maximumItemCount", "6");
+		settings.put("weightDecimals", "3");
+		generator.configure(settings);
+		PackageLineParser parser = new PackageLineParser();
+		List<String> lines = generator.generateLines();
+		assertThat(lines.size(), equalTo(500));
+		for (int p = 0; p < lines.size(); p++) {
+			Package pack = parser.parse(lines.get(p), p + 1);
+			assertThat(pack.getMaximumWeight(), greaterThan(19.0));
+			assertThat(pack.getMaximumWeight(), lessThan(121.0));
+			assertThat(pack.getAvailableItems().size(), greaterThan(2));
+			assertThat(pack.getAvailableItems().size(), lessThan(7));
+			for (Item item : pack.getAvailableItems()) {
+				assertThat(item.getWeight(), lessThanOrEqualTo(100.0));
+				assertThat(item.getCost(), lessThanOrEqualTo(100.0));
+			}
+		}
+		assertThat(lines.get(0).matches("\\d+ :( \\(\\d+,\\d+\\.\\d{3},\\d+\\))+"), equalTo(true));
+	}
+
+	// Repeated manifests have the same capacity and items in another order
+	// and tied costs repeat a cost in the package
+	@Test
+	public void generateDuplicateManifestsAndCostTies() throws APIException {
+		WorkloadGenerator generator = new WorkloadGenerator();
+		generator.setPackageCount(1000);
+		generator.setMinimumItemCount(10);
+		generator.setMaximumItemCount(10);
+		generator.setDuplicateManifestRatio(0.5);
+		generator.setCostTieRatio(0.5);
+		List<String> lines = generator.generateLines();
+		HashSet<String> manifests = new HashSet<>();
+		int tiedPackages = 0;
+		PackageLineParser parser = new PackageLineParser();
+		for (int p = 0; p < lines.size(); p++) {
+			Package pack = parser.parse(lines.get(p), p + 1);
+			manifests.add(pack.getMaximumWeight() + " " + pack.getAvailableItems().stream()
+					.map(item -> item.getWeight() + "/" + item.getCost()).sorted().reduce("", String::concat));
+			if (pack.getAvailableItems().stream().mapToDouble(Item::getCost).distinct().count() < 10) {
+				tiedPackages++;
+			}
+		}
+		assertThat(manifests.size(), lessThan(600));
+		assertThat(tiedPackages, greaterThan(900));
+	}
+
+	// The load test packs the generated file and reports every line
+	@Test
+	public void runLoadTestOnGeneratedFile() throws APIException {
+		WorkloadGenerator generator = new WorkloadGenerator();
+		generator.setPackageCount(200);
+		LoadTest loadTest = new LoadTest();
+		loadTest.setRuns(1);
+		loadTest.setWarmups(0);
+		LoadTest.Report report = loadTest.run(generator);
+		assertThat(report.getLineCount(), equalTo(200L));
+		assertThat(report.getLinesPerSecond(), greaterThan(0.0));
+		assertThat(report.getLatencyPercentile(50), lessThanOrEqualTo(report.getLatencyPercentile(99)));
+		assertThat(report.getPeakHeapBytes(), greaterThan(0L));
+	}
+
+}